@@ -1,6 +1,8 @@
 package com.bookstore.configuration;
 
 import com.bookstore.service.SecurityFilter;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -15,12 +17,17 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  * Spring Security Configuration
  */
 @Configuration
 @EnableMethodSecurity
 public class AuthConfig {
+    private static final Pattern BCRYPT_STRENGTH = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
     private final SecurityFilter securityFilter;
 
     public AuthConfig(SecurityFilter securityFilter) {
@@ -33,8 +40,11 @@ public class AuthConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authorize -> authorize
+                        // The request was authorized before it went async (e.g. a streamed export).
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.POST, "/auth/*").permitAll()
                         .requestMatchers(HttpMethod.GET, "/resources/*").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
                         .anyRequest().authenticated())
                 .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class)
                 .build();
@@ -46,8 +56,21 @@ public class AuthConfig {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    /**
+     * The password encoder, hashing with the configured work factor. A hash with another work factor, lower or
+     * higher, is upgraded at the next successful sign in.
+     */
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength) {
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                final Matcher matcher = encodedPassword == null ? null : BCRYPT_STRENGTH.matcher(encodedPassword);
+                if (matcher == null || !matcher.find()) {
+                    return super.upgradeEncoding(encodedPassword);
+                }
+                return Integer.parseInt(matcher.group(1)) != strength;
+            }
+        };
     }
 }
\ No newline at end of file
@@ -1,39 +1,89 @@
 package com.bookstore.controller;
 
 import com.bookstore.repository.entity.Users;
-import com.bookstore.service.TokenService;
+import com.bookstore.service.RefreshTokenService;
+import com.bookstore.service.SignInService;
 import com.bookstore.service.dto.JwtDTO;
+import com.bookstore.service.dto.RefreshRequestDTO;
 import com.bookstore.service.dto.SignInRequestDTO;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * Class with APIS for managing {@link Users} authentication.
  */
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
-    private final AuthenticationManager authenticationManager;
-    private final TokenService tokenService;
+    private final SignInService signInService;
+    private final RefreshTokenService refreshTokenService;
 
-    public AuthController(AuthenticationManager authenticationManager, TokenService tokenService) {
-        this.authenticationManager = authenticationManager;
-        this.tokenService = tokenService;
+    public AuthController(SignInService signInService, RefreshTokenService refreshTokenService) {
+        this.signInService = signInService;
+        this.refreshTokenService = refreshTokenService;
     }
 
+    /**
+     * API for signing in. The password is checked on the sign in pool, the request thread being released
+     * meanwhile.
+     *
+     * @param signInRequestDTO the request dto.
+     * @return the tokens in {@link JwtDTO}, 401 if the credentials are invalid, 429 if too many sign ins are in
+     * progress.
+     */
     @PostMapping("/signin")
-    public ResponseEntity<JwtDTO> signIn(@RequestBody @Valid SignInRequestDTO signInRequestDTO) {
-        final UsernamePasswordAuthenticationToken usernamePassword =
-                new UsernamePasswordAuthenticationToken(signInRequestDTO.username(), signInRequestDTO.password());
-        final Authentication authUser = authenticationManager.authenticate(usernamePassword);
-        final String accessToken = tokenService.generateAccessToken((Users) authUser.getPrincipal());
-        return ResponseEntity.ok(new JwtDTO(accessToken));
+    public CompletableFuture<ResponseEntity<JwtDTO>> signIn(@RequestBody @Valid SignInRequestDTO signInRequestDTO) {
+        final CompletableFuture<JwtDTO> tokens;
+        try {
+            tokens = signInService.signIn(signInRequestDTO);
+        } catch (IllegalStateException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1").build());
+        }
+        return tokens.thenApply(ResponseEntity::ok).exceptionally(e -> {
+            final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof AuthenticationException) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            throw e instanceof CompletionException completion ? completion : new CompletionException(cause);
+        });
+    }
+
+    /**
+     * API for exchanging a refresh token for a new access token and a new refresh token, without checking the
+     * password again. The refresh token can be used once.
+     *
+     * @param refreshRequestDTO the request dto.
+     * @return the new tokens in {@link JwtDTO}, 401 if the refresh token is invalid, expired or already used.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<JwtDTO> refresh(@RequestBody RefreshRequestDTO refreshRequestDTO) {
+        final JwtDTO tokens = refreshTokenService.refresh(refreshRequestDTO.refreshToken());
+        if (tokens == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(tokens);
+    }
+
+    /**
+     * API for signing out: revokes the refresh token and the ones it was rotated from or into.
+     *
+     * @param refreshRequestDTO the request dto.
+     * @return the ResponseEntity.
+     */
+    @PostMapping("/signout")
+    public ResponseEntity<Void> signOut(@RequestBody RefreshRequestDTO refreshRequestDTO) {
+        refreshTokenService.revoke(refreshRequestDTO.refreshToken());
+        return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+}
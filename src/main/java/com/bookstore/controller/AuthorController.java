@@ -4,10 +4,16 @@ import com.bookstore.exception.NotFoundException;
 import com.bookstore.repository.entity.Author;
 import com.bookstore.service.AuthorService;
 import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.AuthorPatchDTO;
+import com.bookstore.service.dto.BatchOperationDTO;
+import com.bookstore.service.dto.BatchResultDTO;
+import com.bookstore.service.dto.CountDTO;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -56,7 +62,18 @@ public class AuthorController {
     }
 
     /**
-     * API for getting an author for the given Id.
+     * API for getting the approximate authors count in constant time.
+     *
+     * @return the response entity with the count of authors in {@link CountDTO}.
+     */
+    @GetMapping(value = "/count", params = "approximate=true")
+    public ResponseEntity<CountDTO> getAuthorsCountEstimate() {
+        return ResponseEntity.ok(authorService.getAuthorsCountEstimate());
+    }
+
+    /**
+     * API for getting an author for the given Id. The response carries the entity tag of the author, and a request
+     * whose If-None-Match header matches it is answered with 304.
      *
      * @param authorId id of the requested author.
      * @return the response entity of the requested author in {@link AuthorDTO}.
@@ -66,7 +83,7 @@ public class AuthorController {
         final AuthorDTO author = authorService.getAuthorById(authorId);
         if (author == null)
             return ResponseEntity.notFound().build();
-        return ResponseEntity.ok(authorService.getAuthorById(authorId));
+        return ResponseEntity.ok().eTag(EntityTags.of(author)).body(author);
     }
 
     /**
@@ -88,22 +105,84 @@ public class AuthorController {
     }
 
     /**
-     * API for updating existing author with the given details.
+     * API for updating existing author with the given details. With an If-Match header, the author is updated only
+     * if it still has the version of the entity tag, otherwise the response is 412.
      *
      * @param authorId         the id of the author which needs to be updated.
+     * @param ifMatch          the entity tag the client has read, or * for any.
      * @param authorRequestDTO the request dto.
      * @return the updated author dto in {@link AuthorDTO}.
      */
     @PutMapping("/{authorId}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<AuthorDTO> updateAuthor(@PathVariable Long authorId, @RequestBody @Valid AuthorDTO authorRequestDTO) {
-        final AuthorDTO updated = authorService.updateAuthor(authorId, authorRequestDTO);
+    public ResponseEntity<AuthorDTO> updateAuthor(@PathVariable Long authorId,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                  String ifMatch,
+                                                  @RequestBody @Valid AuthorDTO authorRequestDTO) {
+        final AuthorDTO updated;
+        try {
+            updated = ifMatch == null || ifMatch.trim().equals("*")
+                    ? authorService.updateAuthor(authorId, authorRequestDTO)
+                    : authorService.updateAuthor(authorId, EntityTags.version(ifMatch), authorRequestDTO);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
         if (updated == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(updated);
+        return ResponseEntity.ok().eTag(EntityTags.of(updated)).body(updated);
     }
 
+    /**
+     * API for updating only the given details of an existing author: the properties absent from the request are
+     * left as they are. With an If-Match header, the author is updated only if it still has the version of the
+     * entity tag, otherwise the response is 412.
+     *
+     * @param authorId the id of the author which needs to be updated.
+     * @param ifMatch  the entity tag the client has read, or * for any.
+     * @param patch    the details to change.
+     * @return the updated author dto in {@link AuthorDTO}.
+     */
+    @PatchMapping("/{authorId}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<AuthorDTO> patchAuthor(@PathVariable Long authorId,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                 String ifMatch,
+                                                 @RequestBody AuthorPatchDTO patch) {
+        final AuthorDTO updated;
+        try {
+            updated = authorService.patchAuthor(authorId,
+                    ifMatch == null || ifMatch.trim().equals("*") ? null : EntityTags.version(ifMatch), patch);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (updated == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().eTag(EntityTags.of(updated)).body(updated);
+    }
+
+
+    /**
+     * API for creating, updating and deleting authors in one transaction.
+     *
+     * @param operations the operations, applied in order.
+     * @return the response entity with the result of every operation in {@link BatchResultDTO}.
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<BatchResultDTO>> applyBatch(
+            @RequestBody List<BatchOperationDTO<AuthorDTO>> operations) {
+        try {
+            return ResponseEntity.ok(authorService.applyBatch(operations));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
     /**
      * API for deleting an author for the given id.
@@ -3,18 +3,46 @@ package com.bookstore.controller;
 import com.bookstore.exception.NotFoundException;
 import com.bookstore.repository.entity.Book;
 import com.bookstore.service.BookService;
+import com.bookstore.service.bulk.BookImportService;
+import com.bookstore.service.dto.BatchOperationDTO;
+import com.bookstore.service.dto.BatchResultDTO;
+import com.bookstore.service.dto.BookCursorPageDTO;
 import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.BookFacetsDTO;
+import com.bookstore.service.dto.BookPageDTO;
+import com.bookstore.service.dto.BookPatchDTO;
 import com.bookstore.service.dto.BookSearchDTO;
+import com.bookstore.service.dto.CountDTO;
+import com.bookstore.service.dto.ImportJobDTO;
+import com.bookstore.service.dto.RankedBookPageDTO;
+import com.bookstore.service.dto.SuggestionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Class for managing {@link Book} related apis
@@ -23,13 +51,25 @@ import java.util.List;
 @RequestMapping("/book")
 public class BookController {
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final ObjectMapper objectMapper;
+    private final AsyncTaskExecutor taskExecutor;
+    private final Duration exportTimeout;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookImportService bookImportService, ObjectMapper objectMapper,
+                          @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                          AsyncTaskExecutor taskExecutor,
+                          @Value("${bookstore.export.timeout:PT1H}") Duration exportTimeout) {
         this.bookService = bookService;
+        this.bookImportService = bookImportService;
+        this.objectMapper = objectMapper;
+        this.taskExecutor = taskExecutor;
+        this.exportTimeout = exportTimeout;
     }
 
     /**
-     * API for getting a book for the given id.
+     * API for getting a book for the given id. The response carries the entity tag of the book, and a request whose
+     * If-None-Match header matches it is answered with 304.
      *
      * @param bookId id of the requested book.
      * @return the response entity of the requested book in {@link BookDTO}.
@@ -39,7 +79,7 @@ public class BookController {
         final BookDTO book = bookService.getBookById(bookId);
         if (book == null)
             return ResponseEntity.notFound().build();
-        return ResponseEntity.ok(book);
+        return ResponseEntity.ok().eTag(EntityTags.of(book)).body(book);
     }
 
     /**
@@ -57,7 +97,77 @@ public class BookController {
                 pageable.getSortOr(Sort.by(Sort.Direction.ASC, "id"))
         );
 
-        return ResponseEntity.ok(bookService.getAllBooks(bookSearchDTO, pageRequest));
+        try {
+            return ResponseEntity.ok(bookService.getAllBooks(bookSearchDTO, pageRequest));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * API for searching the books, returning the page together with the total and the paging metadata.
+     *
+     * @param bookSearchDTO dto object for search.
+     * @param count         whether the total should be computed, if false only the page and hasNext are returned.
+     * @param pageable      the pageable object.
+     * @return the response entity with the page of books in {@link BookPageDTO}.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<BookPageDTO> searchBooks(BookSearchDTO bookSearchDTO,
+                                                   @RequestParam(defaultValue = "true") boolean count,
+                                                   Pageable pageable) {
+        final Pageable pageRequest = PageRequest.of(
+                pageable.getPageNumber(),
+                pageable.getPageSize(),
+                pageable.getSortOr(Sort.by(Sort.Direction.ASC, "id"))
+        );
+
+        try {
+            return ResponseEntity.ok(bookService.searchBooks(bookSearchDTO, pageRequest, count));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * API for searching the books by relevance to the given words, the best matches of the title and the
+     * description first, each with its score.
+     *
+     * @param q             the words to search for.
+     * @param bookSearchDTO dto object for search.
+     * @param pageable      the pageable object, the sort is ignored.
+     * @return the response entity with the page of ranked books in {@link RankedBookPageDTO}.
+     */
+    @GetMapping("/relevance")
+    public ResponseEntity<RankedBookPageDTO> searchBooksByRelevance(@RequestParam String q,
+                                                                    BookSearchDTO bookSearchDTO,
+                                                                    Pageable pageable) {
+        try {
+            return ResponseEntity.ok(bookService.searchBooksByRelevance(q, bookSearchDTO, pageable));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * API for scrolling through the books with keyset pagination. The first page is requested without a cursor
+     * and with the sort order; every next page is requested with the cursor returned by the previous one.
+     *
+     * @param bookSearchDTO dto object for search.
+     * @param cursor        the cursor of the page, null for the first page.
+     * @param pageable      the pageable object, only the size and the first sort order are used.
+     * @return the response entity with the page of books in {@link BookCursorPageDTO}.
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<BookCursorPageDTO> scrollBooks(BookSearchDTO bookSearchDTO,
+                                                         @RequestParam(required = false) String cursor,
+                                                         Pageable pageable) {
+        final Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+        try {
+            return ResponseEntity.ok(bookService.scrollBooks(bookSearchDTO, order, cursor, pageable.getPageSize()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -71,6 +181,126 @@ public class BookController {
         return ResponseEntity.ok(bookService.getBooksCount(bookSearchDTO));
     }
 
+    /**
+     * API for getting the books count, approximate and in constant time when there is no search criteria.
+     *
+     * @param bookSearchDTO dto object for search.
+     * @return the response entity with the count of books in {@link CountDTO}.
+     */
+    @GetMapping(value = "/count", params = "approximate=true")
+    public ResponseEntity<CountDTO> getBooksCountEstimate(BookSearchDTO bookSearchDTO) {
+        return ResponseEntity.ok(bookService.getBooksCountEstimate(bookSearchDTO));
+    }
+
+    /**
+     * API for getting the books count per genre and per author of a search in one call.
+     *
+     * @param bookSearchDTO dto object for search.
+     * @param limit         the max number of authors to return.
+     * @return the response entity with the counts in {@link BookFacetsDTO}.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacetsDTO> getBookFacets(BookSearchDTO bookSearchDTO,
+                                                       @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(bookService.getBookFacets(bookSearchDTO, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * API for the type-ahead completions of the search box over the book titles and the author names.
+     *
+     * @param q     the typed text.
+     * @param limit the max number of completions.
+     * @return the response entity with the list of {@link SuggestionDTO}.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam String q,
+                                                       @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(bookService.suggest(q, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * API for exporting the whole catalog as NDJSON: one line per book, with its authors and genres, in id order.
+     * The response is streamed while the books are read, so it starts right away and takes no memory per book. It
+     * has its own timeout, long enough for the whole catalog, which the other async requests do not get.
+     *
+     * @return the response entity with the streamed books.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> exportBooks() {
+        final ResponseBodyEmitter emitter = new ResponseBodyEmitter(exportTimeout.toMillis());
+        taskExecutor.execute(() -> {
+            try {
+                bookService.exportBooks(books -> writeLines(emitter, books));
+                emitter.complete();
+            } catch (RuntimeException e) {
+                emitter.completeWithError(e instanceof UncheckedIOException io ? io.getCause() : e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    private void writeLines(final ResponseBodyEmitter emitter, final List<BookDTO> books) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            for (BookDTO book : books) {
+                output.write(objectMapper.writeValueAsBytes(book));
+                output.write('\n');
+            }
+            // Every chunk reaches the client before the next one is read.
+            emitter.send(output.toByteArray(), MediaType.APPLICATION_NDJSON);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * API for importing the books of a CSV or NDJSON file in the background. The CSV header names the columns
+     * title, description, price, year, authorIds and genreIds, the ids being separated by ';'. The NDJSON lines
+     * are books in the format of the export.
+     *
+     * @param file the file, a .csv, .ndjson or .jsonl one.
+     * @return the response entity with the queued job in {@link ImportJobDTO}, its status url in the location.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<ImportJobDTO> importBooks(@RequestParam MultipartFile file) {
+        final ImportJobDTO job;
+        try (InputStream content = file.getInputStream()) {
+            job = bookImportService.submit(file.getOriginalFilename(), content);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/book/import/" + job.id())).body(job);
+    }
+
+    /**
+     * API for getting the progress of a book import.
+     *
+     * @param jobId the id of the import job.
+     * @return the response entity with the job in {@link ImportJobDTO}.
+     */
+    @GetMapping("/import/{jobId}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<ImportJobDTO> getImportJob(@PathVariable UUID jobId) {
+        final ImportJobDTO job = bookImportService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
     /**
      * API for creating a book with the given details.
      *
@@ -94,27 +324,83 @@ public class BookController {
     }
 
     /**
-     * API for updating existing book with the given details.
+     * API for updating existing book with the given details. With an If-Match header, the book is updated only if
+     * it still has the version of the entity tag, otherwise the response is 412.
      *
      * @param bookId         the id of the book which needs to be updated.
+     * @param ifMatch        the entity tag the client has read, or * for any.
      * @param bookRequestDTO the request dto.
      * @return the updated book dto in {@link BookDTO}.
      */
     @PutMapping("/{bookId}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<BookDTO> updateBook(@PathVariable Long bookId, @RequestBody @Valid BookDTO bookRequestDTO) {
+    public ResponseEntity<BookDTO> updateBook(@PathVariable Long bookId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                              String ifMatch,
+                                              @RequestBody @Valid BookDTO bookRequestDTO) {
         final BookDTO updated;
         try {
-            updated = bookService.updateBook(bookId, bookRequestDTO);
+            updated = ifMatch == null || ifMatch.trim().equals("*")
+                    ? bookService.updateBook(bookId, bookRequestDTO)
+                    : bookService.updateBook(bookId, EntityTags.version(ifMatch), bookRequestDTO);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
         if (updated == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(updated);
+        return ResponseEntity.ok().eTag(EntityTags.of(updated)).body(updated);
     }
 
+    /**
+     * API for updating only the given details of an existing book: the properties absent from the request are left
+     * as they are, and given authors or genres replace the current ones. With an If-Match header, the book is
+     * updated only if it still has the version of the entity tag, otherwise the response is 412.
+     *
+     * @param bookId  the id of the book which needs to be updated.
+     * @param ifMatch the entity tag the client has read, or * for any.
+     * @param patch   the details to change.
+     * @return the updated book dto in {@link BookDTO}.
+     */
+    @PatchMapping("/{bookId}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<BookDTO> patchBook(@PathVariable Long bookId,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                             String ifMatch,
+                                             @RequestBody BookPatchDTO patch) {
+        final BookDTO updated;
+        try {
+            updated = bookService.patchBook(bookId,
+                    ifMatch == null || ifMatch.trim().equals("*") ? null : EntityTags.version(ifMatch), patch);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (updated == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().eTag(EntityTags.of(updated)).body(updated);
+    }
+
+
+    /**
+     * API for creating, updating and deleting books in one transaction.
+     *
+     * @param operations the operations, applied in order.
+     * @return the response entity with the result of every operation in {@link BatchResultDTO}.
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<BatchResultDTO>> applyBatch(@RequestBody List<BatchOperationDTO<BookDTO>> operations) {
+        try {
+            return ResponseEntity.ok(bookService.applyBatch(operations));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
     /**
      * API for deleting the book for the given id.
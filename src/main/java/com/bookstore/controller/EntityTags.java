@@ -0,0 +1,63 @@
+package com.bookstore.controller;
+
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+
+/**
+ * Helper deriving the entity tags of the books and authors from their version columns.
+ * <p>
+ * A book embeds its authors, so its tag also carries the sum of the versions of its authors: renaming an author
+ * changes the tag of the books without changing their version. Only the version part is checked on a conditional
+ * write, the authors not being written with the book.
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * Method to get the entity tag of a book.
+     *
+     * @param book the book.
+     * @return the strong entity tag, quoted.
+     */
+    static String of(BookDTO book) {
+        long authorVersions = 0;
+        if (book.getListOfAuthors() != null) {
+            for (AuthorDTO author : book.getListOfAuthors()) {
+                authorVersions += author.getVersion() == null ? 0 : author.getVersion();
+            }
+        }
+        return "\"" + book.getVersion() + "." + authorVersions + "\"";
+    }
+
+    /**
+     * Method to get the entity tag of an author.
+     *
+     * @param author the author.
+     * @return the strong entity tag, quoted.
+     */
+    static String of(AuthorDTO author) {
+        return "\"" + author.getVersion() + "\"";
+    }
+
+    /**
+     * Method to get the version an If-Match header asks for.
+     *
+     * @param ifMatch the If-Match header, a single strong entity tag.
+     * @return the version, -1 if the header can not match any version, such as a weak or malformed tag.
+     */
+    static long version(String ifMatch) {
+        final String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return -1;
+        }
+        final String value = tag.substring(1, tag.length() - 1);
+        final int end = value.indexOf('.');
+        try {
+            return Long.parseLong(end < 0 ? value : value.substring(0, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.bookstore.controller;
 
 import com.bookstore.service.ResourceService;
+import com.bookstore.service.dto.GenreCatalogDTO;
 import com.bookstore.service.dto.GenreDTO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
+import java.util.Locale;
 
 /**
  * Class for managing static resources.
@@ -22,12 +27,40 @@ public class ResourceController {
     }
 
     /**
-     * API for getting all the genres.
+     * API for getting all the genres. The body is written as serialized in the snapshot, compressed if the client
+     * accepts gzip, and a request whose If-None-Match header matches the entity tag is answered with 304. The
+     * compressed and the uncompressed bodies have distinct entity tags, so a cache never revalidates one with the
+     * tag of the other.
      *
-     * @return the response entity with the list of genres in {@link GenreDTO}.
+     * @param acceptEncoding the Accept-Encoding header.
+     * @return the response entity with the JSON array of genres in {@link GenreDTO}.
      */
-    @GetMapping("/genre")
-    public ResponseEntity<List<GenreDTO>> getAllGenres() {
-        return ResponseEntity.ok(resourceService.getAllGenres());
+    @GetMapping(value = "/genre", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getAllGenres(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        final GenreCatalogDTO catalog = resourceService.getGenreCatalog();
+        final boolean gzip = acceptsGzip(acceptEncoding);
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(gzip ? catalog.gzippedETag() : catalog.eTag())
+                .cacheControl(CacheControl.maxAge(resourceService.getGenreMaxAge()).cachePublic())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(catalog.gzippedJson());
+        }
+        return response.body(catalog.json());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            final String[] parts = coding.split(";");
+            if (parts[0].trim().equals("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 }
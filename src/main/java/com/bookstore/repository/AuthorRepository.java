@@ -2,11 +2,22 @@ package com.bookstore.repository;
 
 
 import com.bookstore.repository.entity.Author;
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 /**
  * Repository for the {@link Author} entity.
  */
-public interface AuthorRepository extends CrudRepository<Author, Long>, PagingAndSortingRepository<Author, Long> {
+public interface AuthorRepository extends JpaRepository<Author, Long> {
+
+    /**
+     * Method to get the planner estimate of the number of authors, read from the catalog in constant time.
+     *
+     * @return the {@link TableEstimateView}.
+     */
+    @Query(value = "select c.reltuples as rows, "
+            + "cast(current_setting('autovacuum_analyze_scale_factor') as float8) as scaleFactor, "
+            + "cast(current_setting('autovacuum_analyze_threshold') as bigint) as threshold "
+            + "from pg_class c where c.oid = cast('public.author' as regclass)", nativeQuery = true)
+    TableEstimateView estimateCount();
 }
@@ -0,0 +1,115 @@
+package com.bookstore.repository;
+
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.GenreDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Repository writing books in bulk with plain JDBC batches, bypassing the persistence context.
+ * <p>
+ * The batches are sent as multi-row inserts when the driver runs with {@code reWriteBatchedInserts}, so a batch of
+ * books costs a few round trips whatever its size.
+ */
+@Repository
+public class BookBulkRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Method to allocate a block of book ids from the book sequence, in a single round trip.
+     *
+     * @param count the number of ids.
+     * @return the ids.
+     */
+    public long[] allocateIds(int count) {
+        return jdbcTemplate.queryForList("select nextval('public.book_id_seq') from generate_series(1, ?)",
+                Long.class, count).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Method to get which of the given author ids exist.
+     *
+     * @param ids the author ids.
+     * @return the existing ones.
+     */
+    public Set<Long> findExistingAuthorIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList("select id from author where id = any(cast(? as bigint[]))",
+                Long.class, toArrayLiteral(ids)));
+    }
+
+    /**
+     * Method to get which of the given genre ids exist.
+     *
+     * @param ids the genre ids.
+     * @return the existing ones.
+     */
+    public Set<Integer> findExistingGenreIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList("select id from genre where id = any(cast(? as integer[]))",
+                Integer.class, toArrayLiteral(ids)));
+    }
+
+    /**
+     * Method to insert the books with their author and genre links, one batch per table.
+     *
+     * @param books        the books, with their ids already allocated.
+     * @param creationDate the creation date of the books.
+     */
+    public void insertAll(List<BookDTO> books, Instant creationDate) {
+        final Timestamp created = Timestamp.from(creationDate);
+        jdbcTemplate.batchUpdate(
+                "insert into book (id, title, description, price, year, creation_date) values (?, ?, ?, ?, ?, ?)",
+                books, books.size(), (statement, book) -> {
+                    statement.setLong(1, book.getId());
+                    statement.setString(2, book.getTitle());
+                    statement.setString(3, book.getDescription());
+                    statement.setObject(4, book.getPrice(), Types.DOUBLE);
+                    statement.setObject(5, book.getYear(), Types.INTEGER);
+                    statement.setTimestamp(6, created);
+                });
+        final List<long[]> authorLinks = new ArrayList<>();
+        final List<long[]> genreLinks = new ArrayList<>();
+        for (BookDTO book : books) {
+            if (book.getListOfAuthors() != null) {
+                book.getListOfAuthors().stream().map(AuthorDTO::getId).distinct()
+                        .forEach(authorId -> authorLinks.add(new long[]{book.getId(), authorId}));
+            }
+            if (book.getListOfGenres() != null) {
+                book.getListOfGenres().stream().map(GenreDTO::getId).distinct()
+                        .forEach(genreId -> genreLinks.add(new long[]{book.getId(), genreId}));
+            }
+        }
+        insertLinks("insert into book_author (book_id, author_id) values (?, ?)", authorLinks);
+        insertLinks("insert into book_genre (book_id, genre_id) values (?, ?)", genreLinks);
+    }
+
+    private void insertLinks(String sql, List<long[]> links) {
+        if (links.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, links, links.size(), (statement, link) -> {
+            statement.setLong(1, link[0]);
+            statement.setLong(2, link[1]);
+        });
+    }
+
+    private static String toArrayLiteral(Collection<? extends Number> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+}
@@ -0,0 +1,14 @@
+package com.bookstore.repository;
+
+import com.bookstore.repository.entity.Book;
+
+/**
+ * Projection of the {@link Book} entity with the id, the price and the year only.
+ */
+public interface BookCatalogView {
+    Long getId();
+
+    Double getPrice();
+
+    Integer getYear();
+}
@@ -0,0 +1,12 @@
+package com.bookstore.repository;
+
+import com.bookstore.repository.entity.Book;
+
+/**
+ * Projection of a link between a {@link Book} and one of its authors or genres.
+ */
+public interface BookFacetView {
+    Long getBookId();
+
+    Long getFacetId();
+}
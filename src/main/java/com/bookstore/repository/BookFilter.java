@@ -0,0 +1,176 @@
+package com.bookstore.repository;
+
+import com.bookstore.repository.entity.Book;
+import com.bookstore.service.dto.TitleMatch;
+
+import java.util.List;
+
+/**
+ * Filter criteria applied by the custom {@link Book} queries of {@link BookRepositoryCustom}.
+ */
+public class BookFilter {
+    /**
+     * The most ids sent to the database as a restriction: beyond it, the criteria they were resolved from are sent
+     * instead, so a broad criterion does not turn into megabytes of SQL.
+     */
+    public static final int MAX_DATABASE_IDS = 10_000;
+
+    private String title;
+    private TitleMatch titleMatch = TitleMatch.SUBSTRING;
+    private List<Long> authorIds;
+    private List<Integer> genreIds;
+    private Double minPrice;
+    private Double maxPrice;
+    private Integer minYear;
+    private Integer maxYear;
+    private int[] ids;
+    private BookFilter unresolved;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public TitleMatch getTitleMatch() {
+        return titleMatch;
+    }
+
+    public void setTitleMatch(TitleMatch titleMatch) {
+        this.titleMatch = titleMatch;
+    }
+
+    public List<Long> getAuthorIds() {
+        return authorIds;
+    }
+
+    public void setAuthorIds(List<Long> authorIds) {
+        this.authorIds = authorIds;
+    }
+
+    public List<Integer> getGenreIds() {
+        return genreIds;
+    }
+
+    public void setGenreIds(List<Integer> genreIds) {
+        this.genreIds = genreIds;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Integer getMinYear() {
+        return minYear;
+    }
+
+    public void setMinYear(Integer minYear) {
+        this.minYear = minYear;
+    }
+
+    public Integer getMaxYear() {
+        return maxYear;
+    }
+
+    public void setMaxYear(Integer maxYear) {
+        this.maxYear = maxYear;
+    }
+
+    /**
+     * The ids the result is restricted to, resolved up front (e.g. by an in-memory index), null for no restriction.
+     */
+    public int[] getIds() {
+        return ids;
+    }
+
+    public void setIds(int[] ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * The filter as it was before some of its criteria were resolved to ids, null if none was.
+     */
+    public BookFilter getUnresolved() {
+        return unresolved;
+    }
+
+    public void setUnresolved(BookFilter unresolved) {
+        this.unresolved = unresolved;
+    }
+
+    /**
+     * Method to get the filter the database evaluates: this one, or the unresolved one when the ids are too many to
+     * send.
+     *
+     * @param maxIds the most ids sent to the database.
+     * @return the filter.
+     */
+    public BookFilter forDatabase(int maxIds) {
+        return hasIds() && ids.length > maxIds && unresolved != null ? unresolved : this;
+    }
+
+    /**
+     * Method to copy the criteria of the filter.
+     *
+     * @return the copy.
+     */
+    public BookFilter copy() {
+        final BookFilter copy = new BookFilter();
+        copy.title = title;
+        copy.titleMatch = titleMatch;
+        copy.authorIds = authorIds;
+        copy.genreIds = genreIds;
+        copy.minPrice = minPrice;
+        copy.maxPrice = maxPrice;
+        copy.minYear = minYear;
+        copy.maxYear = maxYear;
+        copy.ids = ids;
+        copy.unresolved = unresolved;
+        return copy;
+    }
+
+    public boolean hasTitle() {
+        return title != null && !title.isEmpty();
+    }
+
+    public boolean hasAuthorIds() {
+        return authorIds != null && !authorIds.isEmpty();
+    }
+
+    public boolean hasGenreIds() {
+        return genreIds != null && !genreIds.isEmpty();
+    }
+
+    public boolean hasPriceRange() {
+        return minPrice != null || maxPrice != null;
+    }
+
+    public boolean hasYearRange() {
+        return minYear != null || maxYear != null;
+    }
+
+    public boolean hasIds() {
+        return ids != null;
+    }
+
+    /**
+     * @return true if the filter has any criteria besides the id restriction.
+     */
+    public boolean hasCriteriaBesidesIds() {
+        return hasTitle() || hasAuthorIds() || hasGenreIds() || hasPriceRange() || hasYearRange();
+    }
+}
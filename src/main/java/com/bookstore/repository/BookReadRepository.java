@@ -0,0 +1,157 @@
+package com.bookstore.repository;
+
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.GenreDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Repository of the {@code book_read} table: the denormalized read model of the books, one row per book with its
+ * authors and genres as JSON arrays, so a book is read with one primary key lookup instead of a five-table join.
+ * <p>
+ * The rows are derived from the normalized tables with {@link #REFRESH}, which recomputes the rows of the given
+ * books and drops the ones of the deleted books.
+ * <p>
+ * The refreshes are called once the write they follow is committed, so each one runs in a new transaction rather
+ * than joining the finished one. The refreshes of a book are serialized with an advisory lock on its id, taken by a
+ * statement of its own so the rows are read after the lock is granted: a refresh reading an older state of the
+ * book can not commit after one reading a newer state. The refreshes of many books hold a lock on the whole table,
+ * shared with the refreshes of single books.
+ */
+@Repository
+public class BookReadRepository {
+    private static final String REFRESH = "insert into book_read "
+            + "(id, title, description, price, year, creation_date, version, authors, genres) "
+            + "select b.id, b.title, b.description, b.price, b.year, b.creation_date, b.version, "
+            + "coalesce((select jsonb_agg(jsonb_build_object('id', a.id, 'name', a.name, 'surname', a.surname, "
+            + "'version', a.version) order by a.id) "
+            + "from book_author ba join author a on a.id = ba.author_id where ba.book_id = b.id), '[]'), "
+            + "coalesce((select jsonb_agg(jsonb_build_object('id', g.id, 'name', g.name) order by g.id) "
+            + "from book_genre bg join genre g on g.id = bg.genre_id where bg.book_id = b.id), '[]') "
+            + "from book b where %s "
+            + "on conflict (id) do update set title = excluded.title, description = excluded.description, "
+            + "price = excluded.price, year = excluded.year, creation_date = excluded.creation_date, "
+            + "version = excluded.version, authors = excluded.authors, genres = excluded.genres";
+    // The book locks are in the bigint key space of the advisory locks, the table lock in the separate two-key one.
+    private static final String LOCK_BOOKS = "select pg_advisory_xact_lock(id) "
+            + "from (select unnest(cast(? as bigint[])) as id order by id) ids";
+    private static final String LOCK_TABLE_SHARED = "select pg_advisory_xact_lock_shared(hashtext('book_read'), 0)";
+    private static final String LOCK_TABLE = "select pg_advisory_xact_lock(hashtext('book_read'), 0)";
+    private static final TypeReference<Set<AuthorDTO>> AUTHORS = new TypeReference<>() {
+    };
+    private static final TypeReference<Set<GenreDTO>> GENRES = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final RowMapper<BookDTO> rowMapper = (resultSet, rowNum) -> {
+        final BookDTO book = new BookDTO();
+        book.setId(resultSet.getLong("id"));
+        book.setTitle(resultSet.getString("title"));
+        book.setDescription(resultSet.getString("description"));
+        book.setPrice(resultSet.getObject("price", Double.class));
+        book.setYear(resultSet.getObject("year", Integer.class));
+        book.setCreationDate(resultSet.getTimestamp("creation_date").toInstant());
+        book.setVersion(resultSet.getLong("version"));
+        book.setListOfAuthors(parse(resultSet.getString("authors"), AUTHORS));
+        book.setListOfGenres(parse(resultSet.getString("genres"), GENRES));
+        return book;
+    };
+
+    public BookReadRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Method to get the books with the given ids.
+     *
+     * @param ids the ids of the books.
+     * @return the list of {@link BookDTO} in no particular order, the missing books left out.
+     */
+    public List<BookDTO> findAllByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("select * from book_read where id = any(cast(? as bigint[]))", rowMapper,
+                toArrayLiteral(ids));
+    }
+
+    /**
+     * Method to recompute the rows of the given books, dropping the ones of the books which no longer exist.
+     *
+     * @param ids the ids of the books.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void refresh(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        final String literal = toArrayLiteral(ids);
+        lockBooks(literal);
+        jdbcTemplate.update("delete from book_read r where r.id = any(cast(? as bigint[])) "
+                + "and not exists (select 1 from book b where b.id = r.id)", literal);
+        jdbcTemplate.update(REFRESH.formatted("b.id = any(cast(? as bigint[]))"), literal);
+    }
+
+    /**
+     * Method to recompute the rows of the books of the given author.
+     *
+     * @param authorId the id of the author.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void refreshByAuthor(Long authorId) {
+        final String literal = toArrayLiteral(jdbcTemplate.queryForList(
+                "select book_id from book_author where author_id = ?", Long.class, authorId));
+        lockBooks(literal);
+        jdbcTemplate.update(REFRESH.formatted("b.id = any(cast(? as bigint[]))"), literal);
+    }
+
+    /**
+     * Method to add the rows of the books which have none, such as the books imported in bulk.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void refreshMissing() {
+        jdbcTemplate.queryForList(LOCK_TABLE);
+        jdbcTemplate.update(REFRESH.formatted("not exists (select 1 from book_read r where r.id = b.id)"));
+    }
+
+    /**
+     * Method to recompute all the rows.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void rebuild() {
+        jdbcTemplate.queryForList(LOCK_TABLE);
+        jdbcTemplate.update("delete from book_read");
+        jdbcTemplate.update(REFRESH.formatted("true"));
+    }
+
+    private void lockBooks(String literal) {
+        jdbcTemplate.queryForList(LOCK_TABLE_SHARED);
+        jdbcTemplate.queryForList(LOCK_BOOKS, literal);
+    }
+
+    private <T> T parse(String json, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid read model row: " + json, e);
+        }
+    }
+
+    private static String toArrayLiteral(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+}
@@ -1,30 +1,89 @@
 package com.bookstore.repository;
 
 import com.bookstore.repository.entity.Book;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Repository for the {@link Book} entity.
  */
-public interface BookRepository extends CrudRepository<Book, Long>, PagingAndSortingRepository<Book, Long> {
-    @Query("select distinct b from Book b left join b.listOfAuthors a left join b.listOfGenres g " +
-            " where (:title = '' or (lower(b.title) like concat('%',lower(:title),'%'))) " +
-            " AND (COALESCE(:authorIds, NULL) IS NULL OR  a.id in (:authorIds))" +
-            " AND (COALESCE(:genreIds, NULL) IS NULL OR  g.id in (:genreIds))")
-    Page<Book> findAll(@Param("title") String title, @Param("authorIds") List<Long> authorIds,
-                       @Param("genreIds") List<Integer> genreIds, Pageable pageable);
-
-    @Query("select count(distinct(b.id)) from Book b left join b.listOfAuthors a left join b.listOfGenres g " +
-            " where (:title = '' or (lower(b.title) like concat('%',lower(:title),'%'))) " +
-            " AND (COALESCE(:authorIds, NULL) IS NULL OR  a.id in (:authorIds))" +
-            " AND (COALESCE(:genreIds, NULL) IS NULL OR  g.id in (:genreIds))")
-    Long count(@Param("title") String title, @Param("authorIds") List<Long> authorIds,
-               @Param("genreIds") List<Integer> genreIds);
+public interface BookRepository extends CrudRepository<Book, Long>, PagingAndSortingRepository<Book, Long>,
+        BookRepositoryCustom {
+
+    /**
+     * Method to get the id and the title of all the books.
+     *
+     * @return the list of {@link BookTitleView}.
+     */
+    @Query("select b.id as id, b.title as title from Book b")
+    List<BookTitleView> findAllTitles();
+
+    /**
+     * Method to get the id, the title and the description of all the books.
+     *
+     * @return the list of {@link BookTextView}.
+     */
+    @Query("select b.id as id, b.title as title, b.description as description from Book b")
+    List<BookTextView> findAllTexts();
+
+    /**
+     * Method to get the id, the price and the year of all the books, ordered by id.
+     *
+     * @return the list of {@link BookCatalogView}.
+     */
+    @Query("select b.id as id, b.price as price, b.year as year from Book b order by b.id")
+    List<BookCatalogView> findAllCatalogRows();
+
+    /**
+     * Method to get the id and the title of the books whose title starts with the given prefix, ignoring the case.
+     *
+     * @param prefix   the prefix.
+     * @param pageable the pageable object.
+     * @return the list of {@link BookTitleView} ordered by title.
+     */
+    List<BookTitleView> findByTitleStartingWithIgnoreCaseOrderByTitle(String prefix, Pageable pageable);
+
+    /**
+     * Method to get all the links between the books and their authors.
+     *
+     * @return the list of {@link BookFacetView} with the author id as facet id.
+     */
+    @Query("select b.id as bookId, a.id as facetId from Book b join b.listOfAuthors a")
+    List<BookFacetView> findAllAuthorLinks();
+
+    /**
+     * Method to get all the links between the books and their genres.
+     *
+     * @return the list of {@link BookFacetView} with the genre id as facet id.
+     */
+    @Query("select b.id as bookId, g.id as facetId from Book b join b.listOfGenres g")
+    List<BookFacetView> findAllGenreLinks();
+
+    /**
+     * Method to load the books with the given ids together with their authors and genres in a single query.
+     * The fetch joins multiply the rows by authors times genres of each book, which stays small per book.
+     *
+     * @param ids the ids of the books.
+     * @return the list of {@link Book} in no particular order.
+     */
+    @Query("select distinct b from Book b left join fetch b.listOfAuthors left join fetch b.listOfGenres "
+            + "where b.id in :ids")
+    List<Book> findAllWithAssociationsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Method to get the planner estimate of the number of books, read from the catalog in constant time.
+     *
+     * @return the {@link TableEstimateView}.
+     */
+    @Query(value = "select c.reltuples as rows, "
+            + "cast(current_setting('autovacuum_analyze_scale_factor') as float8) as scaleFactor, "
+            + "cast(current_setting('autovacuum_analyze_threshold') as bigint) as threshold "
+            + "from pg_class c where c.oid = cast('public.book' as regclass)", nativeQuery = true)
+    TableEstimateView estimateCount();
 }
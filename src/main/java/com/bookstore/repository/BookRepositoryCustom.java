@@ -0,0 +1,91 @@
+package com.bookstore.repository;
+
+import com.bookstore.repository.entity.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Custom queries for the {@link Book} entity which can not be expressed with derived or annotated queries.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Method to search the ids of the books matching the given filter. The criteria on the associations are
+     * EXISTS subqueries, so no join multiplies the rows and the page needs no deduplication.
+     *
+     * @param filter   the filter criteria.
+     * @param pageable the pageable object, only the properties of {@link BookSortKey} can be sorted by.
+     * @return the {@link Slice} of book ids in the requested order.
+     * @throws IllegalArgumentException if the sort is not supported.
+     */
+    Slice<Long> searchIds(BookFilter filter, Pageable pageable);
+
+    /**
+     * Method to count the books matching the given filter.
+     *
+     * @param filter the filter criteria.
+     * @return the count of books.
+     */
+    long countMatching(BookFilter filter);
+
+    /**
+     * Method to count the books matching the given filter per genre, with a single grouped query.
+     *
+     * @param filter the filter criteria.
+     * @return the counts by genre id, ordered by count descending, genres without matching books are left out.
+     */
+    Map<Long, Long> countPerGenre(BookFilter filter);
+
+    /**
+     * Method to count the books matching the given filter per author, with a single grouped query.
+     *
+     * @param filter the filter criteria.
+     * @param limit  the max number of authors to return.
+     * @return the counts by author id of the top authors, ordered by count descending.
+     */
+    Map<Long, Long> countPerAuthor(BookFilter filter, int limit);
+
+    /**
+     * Method to read all the books in id order through a database cursor, in chunks with their authors and genres
+     * loaded. The persistence context is cleared after every chunk, so the memory used does not grow with the
+     * number of books. Must run in a transaction, without which the driver reads the whole result at once.
+     *
+     * @param chunkSize the number of books per chunk, also the fetch size of the cursor.
+     * @param consumer  the consumer of the chunks, the books are detached once it returns.
+     */
+    void forEachChunk(int chunkSize, Consumer<List<Book>> consumer);
+
+    /**
+     * Method to rank the books matching the given filter and any of the given terms by full-text relevance, with
+     * {@code ts_rank} weighting the title above the description.
+     *
+     * @param terms  the lowercase terms, made of letters and digits only.
+     * @param filter the filter criteria.
+     * @param offset the number of books to skip.
+     * @param limit  the max number of books to return.
+     * @return the scores by book id, ordered by score descending and then by id.
+     */
+    Map<Long, Double> rankIds(List<String> terms, BookFilter filter, long offset, int limit);
+
+    /**
+     * Method to get the ids of the books which follow the given position in the requested order (keyset pagination).
+     * The books are ordered by the sort key and then by id in the same direction, so the position is
+     * identified by the sort key value and the id of the last book of the previous page.
+     *
+     * @param filter    the filter criteria.
+     * @param sortKey   the sort key.
+     * @param direction the sort direction.
+     * @param afterKey  the sort key value of the last seen book, null if the last seen book had no value.
+     * @param afterId   the id of the last seen book, null for the first page.
+     * @param limit     the max number of books to return.
+     * @return the list of book ids in the requested order.
+     */
+    List<Long> findIdsAfter(BookFilter filter, BookSortKey sortKey, Sort.Direction direction,
+                             @Nullable String afterKey, @Nullable Long afterId, int limit);
+}
@@ -0,0 +1,266 @@
+package com.bookstore.repository;
+
+import com.bookstore.repository.entity.Book;
+import com.bookstore.service.dto.TitleMatch;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link BookRepositoryCustom} with native PostgreSQL queries.
+ */
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Slice<Long> searchIds(BookFilter filter, Pageable pageable) {
+        final StringBuilder sql = new StringBuilder("select b.id from book b where true");
+        final Map<String, Object> params = new HashMap<>();
+        appendFilter(sql, params, filter);
+        appendOrder(sql, pageable.getSort());
+
+        final Query query = entityManager.createNativeQuery(sql.toString(), Long.class);
+        params.forEach(query::setParameter);
+        query.setFirstResult((int) pageable.getOffset());
+        // One extra row tells whether there is a next slice without counting.
+        query.setMaxResults(pageable.getPageSize() + 1);
+        final List<Long> ids = query.getResultList();
+        final boolean hasNext = ids.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? ids.subList(0, pageable.getPageSize()) : ids, pageable, hasNext);
+    }
+
+    @Override
+    public long countMatching(BookFilter filter) {
+        final StringBuilder sql = new StringBuilder("select count(*) from book b where true");
+        final Map<String, Object> params = new HashMap<>();
+        appendFilter(sql, params, filter);
+
+        final Query query = entityManager.createNativeQuery(sql.toString(), Long.class);
+        params.forEach(query::setParameter);
+        return (Long) query.getSingleResult();
+    }
+
+    @Override
+    public Map<Long, Long> countPerGenre(BookFilter filter) {
+        return countPerFacet("book_genre", "genre_id", filter, null);
+    }
+
+    @Override
+    public Map<Long, Long> countPerAuthor(BookFilter filter, int limit) {
+        return countPerFacet("book_author", "author_id", filter, limit);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> findIdsAfter(BookFilter filter, BookSortKey sortKey, Sort.Direction direction,
+                                   String afterKey, Long afterId, int limit) {
+        final StringBuilder sql = new StringBuilder("select b.id from book b where true");
+        final Map<String, Object> params = new HashMap<>();
+        appendFilter(sql, params, filter);
+        if (afterId != null) {
+            appendSeek(sql, params, sortKey, direction, afterKey, afterId);
+        }
+        appendOrder(sql, Sort.by(direction, sortKey.getProperty()));
+
+        final Query query = entityManager.createNativeQuery(sql.toString(), Long.class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    @Override
+    public void forEachChunk(int chunkSize, Consumer<List<Book>> consumer) {
+        try (Stream<Book> books = entityManager.createQuery("select b from Book b order by b.id", Book.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, chunkSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            final List<Book> chunk = new ArrayList<>(chunkSize);
+            books.forEachOrdered(book -> {
+                chunk.add(book);
+                if (chunk.size() == chunkSize) {
+                    acceptChunk(chunk, consumer);
+                }
+            });
+            if (!chunk.isEmpty()) {
+                acceptChunk(chunk, consumer);
+            }
+        }
+    }
+
+    private void acceptChunk(List<Book> chunk, Consumer<List<Book>> consumer) {
+        // One query initializes the authors and genres of the books of the chunk, instead of two per book.
+        entityManager.createQuery("select distinct b from Book b left join fetch b.listOfAuthors "
+                        + "left join fetch b.listOfGenres where b in :books", Book.class)
+                .setParameter("books", chunk)
+                .getResultList();
+        consumer.accept(List.copyOf(chunk));
+        chunk.clear();
+        entityManager.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Double> rankIds(List<String> terms, BookFilter filter, long offset, int limit) {
+        final String document = "setweight(to_tsvector('simple', b.title), 'A')"
+                + " || setweight(to_tsvector('simple', coalesce(b.description, '')), 'C')";
+        final StringBuilder sql = new StringBuilder("select b.id, ts_rank(").append(document)
+                .append(", q) from book b, to_tsquery('simple', :terms) q where ").append(document).append(" @@ q");
+        final Map<String, Object> params = new HashMap<>();
+        // Any of the terms matches, as in the in-memory ranking.
+        params.put("terms", String.join(" | ", terms));
+        appendFilter(sql, params, filter);
+        sql.append(" order by 2 desc, b.id");
+
+        final Query query = entityManager.createNativeQuery(sql.toString());
+        params.forEach(query::setParameter);
+        query.setFirstResult(Math.toIntExact(offset));
+        query.setMaxResults(limit);
+        final Map<Long, Double> scores = new LinkedHashMap<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            scores.put(((Number) row[0]).longValue(), ((Number) row[1]).doubleValue());
+        }
+        return scores;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Long> countPerFacet(String table, String column, BookFilter filter, Integer limit) {
+        final StringBuilder sql = new StringBuilder("select f.").append(column).append(", count(*) from ")
+                .append(table).append(" f join book b on b.id = f.book_id where true");
+        final Map<String, Object> params = new HashMap<>();
+        appendFilter(sql, params, filter);
+        sql.append(" group by f.").append(column).append(" order by count(*) desc, f.").append(column);
+
+        final Query query = entityManager.createNativeQuery(sql.toString());
+        params.forEach(query::setParameter);
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        final Map<Long, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private static void appendFilter(StringBuilder sql, Map<String, Object> params, BookFilter resolvedFilter) {
+        final BookFilter filter = resolvedFilter.forDatabase(BookFilter.MAX_DATABASE_IDS);
+        if (filter.hasTitle()) {
+            if (filter.getTitleMatch() == TitleMatch.WORDS) {
+                // Must match the expression of the idx_book_title_fts index.
+                sql.append(" and to_tsvector('simple', b.title) @@ plainto_tsquery('simple', :title)");
+                params.put("title", filter.getTitle());
+            } else if (filter.getTitleMatch() == TitleMatch.FUZZY) {
+                // The word similarity of the trigrams, served by the idx_book_title_trgm index too.
+                sql.append(" and lower(:title) <% lower(b.title)");
+                params.put("title", filter.getTitle());
+            } else {
+                // Must match the expression of the idx_book_title_trgm index.
+                sql.append(" and lower(b.title) like :title");
+                params.put("title", "%" + escapeLike(filter.getTitle().toLowerCase()) + "%");
+            }
+        }
+        if (filter.hasAuthorIds()) {
+            sql.append(" and exists (select 1 from book_author ba where ba.book_id = b.id and ba.author_id in (:authorIds))");
+            params.put("authorIds", filter.getAuthorIds());
+        }
+        if (filter.hasGenreIds()) {
+            sql.append(" and exists (select 1 from book_genre bg where bg.book_id = b.id and bg.genre_id in (:genreIds))");
+            params.put("genreIds", filter.getGenreIds());
+        }
+        // The bounds are range scans of the idx_book_price_id and idx_book_year_id indexes.
+        if (filter.getMinPrice() != null) {
+            sql.append(" and b.price >= :minPrice");
+            params.put("minPrice", filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            sql.append(" and b.price <= :maxPrice");
+            params.put("maxPrice", filter.getMaxPrice());
+        }
+        if (filter.getMinYear() != null) {
+            sql.append(" and b.year >= :minYear");
+            params.put("minYear", filter.getMinYear());
+        }
+        if (filter.getMaxYear() != null) {
+            sql.append(" and b.year <= :maxYear");
+            params.put("maxYear", filter.getMaxYear());
+        }
+        if (filter.hasIds()) {
+            // A single array parameter keeps the statement text (and its cached plan) the same for any id count.
+            sql.append(" and b.id = any(cast(:ids as bigint[]))");
+            params.put("ids", toArrayLiteral(filter.getIds()));
+        }
+    }
+
+    private static String toArrayLiteral(int[] ids) {
+        final StringBuilder literal = new StringBuilder(ids.length * 6 + 2).append('{');
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(ids[i]);
+        }
+        return literal.append('}').toString();
+    }
+
+    private static void appendOrder(StringBuilder sql, Sort sort) {
+        // PostgreSQL sorts nulls last in ascending and first in descending order, which is what a forward or
+        // backward scan of the (column, id) index returns. The id closes every order so it is deterministic.
+        sql.append(" order by ");
+        Sort.Direction last = Sort.Direction.ASC;
+        for (Sort.Order order : sort) {
+            final BookSortKey sortKey = BookSortKey.of(order.getProperty());
+            last = order.getDirection();
+            if (sortKey == BookSortKey.ID) {
+                sql.append("b.id").append(order.isAscending() ? " asc" : " desc");
+                return;
+            }
+            sql.append(sortKey.getColumn()).append(order.isAscending() ? " asc nulls last, " : " desc nulls first, ");
+        }
+        sql.append("b.id").append(last.isAscending() ? " asc" : " desc");
+    }
+
+    private static void appendSeek(StringBuilder sql, Map<String, Object> params, BookSortKey sortKey,
+                                   Sort.Direction direction, String afterKey, Long afterId) {
+        final String column = sortKey.getColumn();
+        final String comparison = direction.isAscending() ? " > " : " < ";
+        params.put("afterId", afterId);
+        if (sortKey == BookSortKey.ID) {
+            sql.append(" and b.id").append(comparison).append(":afterId");
+            return;
+        }
+        if (afterKey == null) {
+            if (!sortKey.isNullable()) {
+                throw new IllegalArgumentException("Missing " + sortKey.getProperty() + " value");
+            }
+            // The last seen book is in the null group: continue inside the group, then (descending only) with
+            // all the non-null values which come after it.
+            sql.append(" and ((").append(column).append(" is null and b.id").append(comparison).append(":afterId)");
+            sql.append(direction.isAscending() ? ")" : " or " + column + " is not null)");
+            return;
+        }
+        params.put("afterKey", sortKey.parse(afterKey));
+        sql.append(" and ((").append(column).append(", b.id)").append(comparison).append("(:afterKey, :afterId)");
+        // In ascending order the null group comes after every non-null value.
+        sql.append(sortKey.isNullable() && direction.isAscending() ? " or " + column + " is null)" : ")");
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
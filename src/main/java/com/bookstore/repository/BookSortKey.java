@@ -0,0 +1,100 @@
+package com.bookstore.repository;
+
+import com.bookstore.repository.entity.Book;
+import com.bookstore.service.dto.BookDTO;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Columns the books can be sorted by with keyset pagination. Each key is backed by a {@code (column, id)} index.
+ */
+public enum BookSortKey {
+    ID("id", "b.id", false, BookDTO::getId, Long::valueOf),
+    TITLE("title", "b.title", false, BookDTO::getTitle, key -> key),
+    PRICE("price", "b.price", true, BookDTO::getPrice, Double::valueOf),
+    YEAR("year", "b.year", true, BookDTO::getYear, Integer::valueOf),
+    CREATION_DATE("creationDate", "b.creation_date", false, BookDTO::getCreationDate, Instant::parse);
+
+    private final String property;
+    private final String column;
+    private final boolean nullable;
+    private final Function<BookDTO, Object> extractor;
+    private final Function<String, Object> parser;
+
+    BookSortKey(String property, String column, boolean nullable, Function<BookDTO, Object> extractor,
+                Function<String, Object> parser) {
+        this.property = property;
+        this.column = column;
+        this.nullable = nullable;
+        this.extractor = extractor;
+        this.parser = parser;
+    }
+
+    /**
+     * Method to get the sort key for the given {@link Book} property.
+     *
+     * @param property the entity property name.
+     * @return the {@link BookSortKey}.
+     * @throws IllegalArgumentException if the property is not sortable.
+     */
+    public static BookSortKey of(String property) {
+        for (BookSortKey key : values()) {
+            if (key.property.equals(property)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("Sorting by " + property + " is not supported");
+    }
+
+    /**
+     * Method to check that all the orders of the given sort are supported.
+     *
+     * @param sort the sort.
+     * @throws IllegalArgumentException if a property is not sortable.
+     */
+    public static void checkSupported(Sort sort) {
+        for (Sort.Order order : sort) {
+            of(order.getProperty());
+        }
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * Method to get the string form of the key value of the given book.
+     *
+     * @param book the book.
+     * @return the key value or null if the book has no value for this key.
+     */
+    public String keyOf(BookDTO book) {
+        final Object value = extractor.apply(book);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Method to convert the string form of a key value back to the column type.
+     *
+     * @param key the string form of the key value.
+     * @return the typed key value.
+     * @throws IllegalArgumentException if the value can not be parsed.
+     */
+    public Object parse(String key) {
+        try {
+            return parser.apply(key);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid " + property + " value: " + key, e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.bookstore.repository;
+
+import com.bookstore.repository.entity.Book;
+
+/**
+ * Projection of the {@link Book} entity with the id and the searchable text only.
+ */
+public interface BookTextView {
+    Long getId();
+
+    String getTitle();
+
+    String getDescription();
+}
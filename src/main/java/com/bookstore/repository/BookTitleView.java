@@ -0,0 +1,12 @@
+package com.bookstore.repository;
+
+import com.bookstore.repository.entity.Book;
+
+/**
+ * Projection of the {@link Book} entity with the id and the title only.
+ */
+public interface BookTitleView {
+    Long getId();
+
+    String getTitle();
+}
@@ -0,0 +1,338 @@
+package com.bookstore.repository;
+
+import com.bookstore.repository.entity.Author;
+import com.bookstore.repository.entity.Book;
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.AuthorPatchDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.BookPatchDTO;
+import com.bookstore.service.dto.GenreDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Repository writing the books and authors with plain JDBC, with no read before the write: an update is a single
+ * statement setting only the given columns, optionally checking the version of the row, and a delete is a single
+ * statement whose returned rows tell whether the row existed.
+ * <p>
+ * The links of a book to its authors and genres are changed as a diff against the links the update returned, so
+ * only the added links are inserted and only the removed ones deleted. The update also returns the linked authors
+ * and genres, so an update leaving the links as they are is the update statement alone.
+ * <p>
+ * The writes bypass the persistence context, so the entries they make stale are evicted from the second-level cache,
+ * once right away and once more after the commit: a read running while the transaction is open still sees the rows
+ * as they were and may put them back in the cache.
+ */
+@Repository
+public class DirectWriteRepository {
+    private static final String PREVIOUS_BOOK = "b.title, b.description, b.price, b.year, b.creation_date, b.version, "
+            + "array(select author_id from book_author where book_id = b.id) as author_ids, "
+            + "array(select genre_id from book_genre where book_id = b.id) as genre_ids";
+    // The details of the linked authors and genres, as arrays in id order, are kept when the links do not change.
+    private static final String LINKED = "array(select a.id from book_author ba join author a on a.id = ba.author_id "
+            + "where ba.book_id = b.id order by a.id) as linked_author_ids, "
+            + "array(select a.name from book_author ba join author a on a.id = ba.author_id "
+            + "where ba.book_id = b.id order by a.id) as linked_author_names, "
+            + "array(select a.surname from book_author ba join author a on a.id = ba.author_id "
+            + "where ba.book_id = b.id order by a.id) as linked_author_surnames, "
+            + "array(select a.version from book_author ba join author a on a.id = ba.author_id "
+            + "where ba.book_id = b.id order by a.id) as linked_author_versions, "
+            + "array(select g.id from book_genre bg join genre g on g.id = bg.genre_id "
+            + "where bg.book_id = b.id order by g.id) as linked_genre_ids, "
+            + "array(select g.name from book_genre bg join genre g on g.id = bg.genre_id "
+            + "where bg.book_id = b.id order by g.id) as linked_genre_names";
+    private static final String UPDATE_BOOK = "with previous as (select b.id, " + PREVIOUS_BOOK + ", " + LINKED
+            + " from book b where b.id = ?%s for update) "
+            + "update book b set %sversion = b.version + 1 from previous p where b.id = p.id "
+            + "returning p.title, p.description, p.price, p.year, p.creation_date, p.version, p.author_ids, "
+            + "p.genre_ids, p.linked_author_ids, p.linked_author_names, p.linked_author_surnames, "
+            + "p.linked_author_versions, p.linked_genre_ids, p.linked_genre_names, "
+            + "b.title as new_title, b.description as new_description, b.price as new_price, "
+            + "b.year as new_year";
+    // The foreign keys are checked at the end of the statement, once the links are deleted by the sub-statements.
+    private static final String DELETE_BOOK = "with removed_authors as ("
+            + "delete from book_author where book_id = ? returning author_id), "
+            + "removed_genres as (delete from book_genre where book_id = ? returning genre_id) "
+            + "delete from book b where b.id = ? "
+            + "returning b.title, b.description, b.price, b.year, b.creation_date, b.version, "
+            + "array(select author_id from removed_authors) as author_ids, "
+            + "array(select genre_id from removed_genres) as genre_ids";
+    private static final String CHANGE_AUTHORS = "with removed as ("
+            + "delete from book_author where book_id = ? and author_id = any(cast(? as bigint[]))), "
+            + "added as (insert into book_author (book_id, author_id) select ?, unnest(cast(? as bigint[]))) ";
+    private static final String SELECT_AUTHORS = "select a.id, a.name, a.surname, a.version from author a "
+            + "where a.id = any(cast(? as bigint[]))";
+    private static final String CHANGE_GENRES = "with removed as ("
+            + "delete from book_genre where book_id = ? and genre_id = any(cast(? as integer[]))), "
+            + "added as (insert into book_genre (book_id, genre_id) select ?, unnest(cast(? as integer[]))) ";
+    private static final String SELECT_GENRES = "select g.id, g.name from genre g where g.id = any(cast(? as integer[]))";
+    private static final Map<String, String> BOOK_COLUMNS = Map.of(BookPatchDTO.TITLE, "title",
+            BookPatchDTO.DESCRIPTION, "description", BookPatchDTO.PRICE, "price", BookPatchDTO.YEAR, "year");
+    private static final Map<String, String> AUTHOR_COLUMNS = Map.of(AuthorPatchDTO.NAME, "name",
+            AuthorPatchDTO.SURNAME, "surname");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final RowMapper<AuthorDTO> authorRowMapper = (resultSet, rowNum) -> {
+        final AuthorDTO author = new AuthorDTO();
+        author.setId(resultSet.getLong("id"));
+        author.setName(resultSet.getString("name"));
+        author.setSurname(resultSet.getString("surname"));
+        author.setVersion(resultSet.getLong("version"));
+        return author;
+    };
+    private final RowMapper<GenreDTO> genreRowMapper = (resultSet, rowNum) -> {
+        final GenreDTO genre = new GenreDTO();
+        genre.setId(resultSet.getInt("id"));
+        genre.setName(resultSet.getString("name"));
+        return genre;
+    };
+
+    public DirectWriteRepository(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * The book before and after an update.
+     *
+     * @param previous the book as it was, its authors and genres holding only their ids.
+     * @param book     the book as it is now.
+     */
+    public record BookUpdate(BookDTO previous, BookDTO book) {
+    }
+
+    /**
+     * Method to update the given details of a book, and its version. Must run in a transaction, the links being
+     * changed by separate statements.
+     *
+     * @param bookId  the id of the book.
+     * @param version the expected version, null to update any version.
+     * @param patch   the details to change.
+     * @return the {@link BookUpdate}, null if there is no book with this id and version.
+     * @throws IllegalArgumentException if the patch has an unknown property.
+     */
+    @Nullable
+    public BookUpdate patchBook(Long bookId, @Nullable Long version, BookPatchDTO patch) {
+        final List<Object> args = new ArrayList<>();
+        args.add(bookId);
+        if (version != null) {
+            args.add(version);
+        }
+        final String sets = assignments(patch.fields(), BOOK_COLUMNS, args);
+        final List<BookUpdate> updates = jdbcTemplate.query(
+                UPDATE_BOOK.formatted(version == null ? "" : " and b.version = ?", sets), (resultSet, rowNum) -> {
+                    final BookDTO previous = previousBook(bookId, resultSet);
+                    final BookDTO book = new BookDTO();
+                    book.setId(bookId);
+                    book.setTitle(resultSet.getString("new_title"));
+                    book.setDescription(resultSet.getString("new_description"));
+                    book.setPrice(resultSet.getObject("new_price", Double.class));
+                    book.setYear(resultSet.getObject("new_year", Integer.class));
+                    book.setCreationDate(previous.getCreationDate());
+                    book.setVersion(previous.getVersion() + 1);
+                    book.setListOfAuthors(linkedAuthors(resultSet));
+                    book.setListOfGenres(linkedGenres(resultSet));
+                    return new BookUpdate(previous, book);
+                }, args.toArray());
+        if (updates.isEmpty()) {
+            return null;
+        }
+        final BookUpdate update = updates.get(0);
+        final Set<Long> previousAuthorIds = update.previous().getListOfAuthors().stream().map(AuthorDTO::getId)
+                .collect(Collectors.toSet());
+        final Set<Long> authorIds = patch.authorIds() == null ? previousAuthorIds : patch.authorIds();
+        if (!authorIds.equals(previousAuthorIds)) {
+            update.book().setListOfAuthors(new HashSet<>(changeLinks(bookId, previousAuthorIds, authorIds,
+                    CHANGE_AUTHORS, SELECT_AUTHORS, authorRowMapper)));
+            evict(cache -> cache.evictCollectionData(Book.class.getName() + ".listOfAuthors", bookId));
+        }
+        final Set<Integer> previousGenreIds = update.previous().getListOfGenres().stream().map(GenreDTO::getId)
+                .collect(Collectors.toSet());
+        final Set<Integer> genreIds = patch.genreIds() == null ? previousGenreIds : patch.genreIds();
+        if (!genreIds.equals(previousGenreIds)) {
+            update.book().setListOfGenres(new HashSet<>(changeLinks(bookId, previousGenreIds, genreIds,
+                    CHANGE_GENRES, SELECT_GENRES, genreRowMapper)));
+            evict(cache -> cache.evictCollectionData(Book.class.getName() + ".listOfGenres", bookId));
+        }
+        return update;
+    }
+
+    /**
+     * Method to delete a book with its links to its authors and genres.
+     *
+     * @param bookId the id of the book.
+     * @return the deleted book, its authors and genres holding only their ids, null if there is no such book.
+     */
+    @Nullable
+    public BookDTO deleteBook(Long bookId) {
+        final List<BookDTO> deleted = jdbcTemplate.query(DELETE_BOOK,
+                (resultSet, rowNum) -> previousBook(bookId, resultSet), bookId, bookId, bookId);
+        if (deleted.isEmpty()) {
+            return null;
+        }
+        evict(cache -> {
+            cache.evictCollectionData(Book.class.getName() + ".listOfAuthors", bookId);
+            cache.evictCollectionData(Book.class.getName() + ".listOfGenres", bookId);
+        });
+        return deleted.get(0);
+    }
+
+    /**
+     * Method to update the given details of an author, and its version.
+     *
+     * @param authorId the id of the author.
+     * @param version  the expected version, null to update any version.
+     * @param patch    the details to change.
+     * @return the author as it is now, null if there is no author with this id and version.
+     * @throws IllegalArgumentException if the patch has an unknown property.
+     */
+    @Nullable
+    public AuthorDTO patchAuthor(Long authorId, @Nullable Long version, AuthorPatchDTO patch) {
+        final List<Object> args = new ArrayList<>();
+        final String sets = assignments(patch.fields(), AUTHOR_COLUMNS, args);
+        args.add(authorId);
+        if (version != null) {
+            args.add(version);
+        }
+        final List<AuthorDTO> authors = jdbcTemplate.query("update author set " + sets
+                + "version = version + 1 where id = ?" + (version == null ? "" : " and version = ?")
+                + " returning id, name, surname, version", authorRowMapper, args.toArray());
+        if (authors.isEmpty()) {
+            return null;
+        }
+        evict(cache -> cache.evict(Author.class, authorId));
+        return authors.get(0);
+    }
+
+    /**
+     * Method to delete an author.
+     *
+     * @param authorId the id of the author.
+     * @return the number of deleted rows, 0 if there is no such author.
+     */
+    public int deleteAuthor(Long authorId) {
+        final int count = jdbcTemplate.update("delete from author where id = ?", authorId);
+        if (count > 0) {
+            evict(cache -> cache.evict(Author.class, authorId));
+        }
+        return count;
+    }
+
+    private void evict(Consumer<Cache> eviction) {
+        final Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        eviction.accept(cache);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.accept(cache);
+                }
+            });
+        }
+    }
+
+    private <T, D> List<D> changeLinks(Long bookId, Set<T> previousIds, Set<T> ids, String change, String select,
+                                       RowMapper<D> rowMapper) {
+        final Set<T> removed = new HashSet<>(previousIds);
+        removed.removeAll(ids);
+        final Set<T> added = new HashSet<>(ids);
+        added.removeAll(previousIds);
+        return jdbcTemplate.query(change + select, rowMapper, bookId, toArrayLiteral(removed), bookId,
+                toArrayLiteral(added), toArrayLiteral(ids));
+    }
+
+    private static String assignments(Map<String, Object> fields, Map<String, String> columns, List<Object> args) {
+        final StringBuilder sets = new StringBuilder();
+        fields.forEach((name, value) -> {
+            final String column = columns.get(name);
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown property " + name);
+            }
+            sets.append(column).append(" = ?, ");
+            args.add(value);
+        });
+        return sets.toString();
+    }
+
+    private static BookDTO previousBook(Long bookId, ResultSet resultSet) throws SQLException {
+        final BookDTO book = new BookDTO();
+        book.setId(bookId);
+        book.setTitle(resultSet.getString("title"));
+        book.setDescription(resultSet.getString("description"));
+        book.setPrice(resultSet.getObject("price", Double.class));
+        book.setYear(resultSet.getObject("year", Integer.class));
+        book.setCreationDate(resultSet.getTimestamp("creation_date").toInstant());
+        book.setVersion(resultSet.getLong("version"));
+        book.setListOfAuthors(valuesOf(resultSet, "author_ids", Long.class).stream()
+                .map(id -> {
+                    final AuthorDTO author = new AuthorDTO();
+                    author.setId(id);
+                    return author;
+                }).collect(Collectors.toSet()));
+        book.setListOfGenres(valuesOf(resultSet, "genre_ids", Integer.class).stream()
+                .map(id -> {
+                    final GenreDTO genre = new GenreDTO();
+                    genre.setId(id);
+                    return genre;
+                }).collect(Collectors.toSet()));
+        return book;
+    }
+
+    private static Set<AuthorDTO> linkedAuthors(ResultSet resultSet) throws SQLException {
+        final List<Long> ids = valuesOf(resultSet, "linked_author_ids", Long.class);
+        final List<String> names = valuesOf(resultSet, "linked_author_names", String.class);
+        final List<String> surnames = valuesOf(resultSet, "linked_author_surnames", String.class);
+        final List<Long> versions = valuesOf(resultSet, "linked_author_versions", Long.class);
+        final Set<AuthorDTO> authors = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            final AuthorDTO author = new AuthorDTO();
+            author.setId(ids.get(i));
+            author.setName(names.get(i));
+            author.setSurname(surnames.get(i));
+            author.setVersion(versions.get(i));
+            authors.add(author);
+        }
+        return authors;
+    }
+
+    private static Set<GenreDTO> linkedGenres(ResultSet resultSet) throws SQLException {
+        final List<Integer> ids = valuesOf(resultSet, "linked_genre_ids", Integer.class);
+        final List<String> names = valuesOf(resultSet, "linked_genre_names", String.class);
+        final Set<GenreDTO> genres = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            final GenreDTO genre = new GenreDTO();
+            genre.setId(ids.get(i));
+            genre.setName(names.get(i));
+            genres.add(genre);
+        }
+        return genres;
+    }
+
+    private static <T> List<T> valuesOf(ResultSet resultSet, String column, Class<T> type) throws SQLException {
+        final Array array = resultSet.getArray(column);
+        final List<T> ids = new ArrayList<>();
+        for (Object id : (Object[]) array.getArray()) {
+            ids.add(type.cast(id));
+        }
+        return ids;
+    }
+
+    private static String toArrayLiteral(Collection<?> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+}
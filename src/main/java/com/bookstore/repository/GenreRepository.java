@@ -1,10 +1,43 @@
 package com.bookstore.repository;
 
 import com.bookstore.repository.entity.Genre;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
+
 /**
  * Repository for the {@link Genre} entity.
  */
 public interface GenreRepository extends CrudRepository<Genre, Integer> {
+
+    /**
+     * Method to get all the genres, served from the query cache until the genre table is written.
+     *
+     * @return the genres.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Iterable<Genre> findAll();
+
+    /**
+     * Method to read all the genres from the database, bypassing the query cache and the genre region, which never
+     * see a change made directly in the database.
+     *
+     * @return the genres, ordered by id.
+     */
+    @Query(value = "select id, name from genre order by id", nativeQuery = true)
+    List<GenreRow> findAllRows();
+
+    /**
+     * The columns of a genre, read without loading the entity.
+     */
+    interface GenreRow {
+        Integer getId();
+
+        String getName();
+    }
 }
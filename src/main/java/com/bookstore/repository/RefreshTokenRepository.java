@@ -0,0 +1,89 @@
+package com.bookstore.repository;
+
+import com.bookstore.service.dto.UserRole;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository of the {@code refresh_token} table, holding the SHA-256 hashes of the refresh tokens. The tokens
+ * issued by rotating one another share a family, so a token used twice revokes the whole family.
+ */
+@Repository
+public class RefreshTokenRepository {
+    private static final String USE = "with used as (update refresh_token set used_at = now() "
+            + "where token_hash = ? and used_at is null and expires_at > now() returning user_id, family_id) "
+            + "select u.id, u.username, u.role, used.family_id from used join users u on u.id = used.user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RefreshTokenRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The owner of a refresh token which has just been used.
+     *
+     * @param userId   the id of the user.
+     * @param username the username.
+     * @param role     the current role of the user.
+     * @param familyId the family of the token.
+     */
+    public record RefreshTokenOwner(Integer userId, String username, UserRole role, UUID familyId) {
+    }
+
+    /**
+     * Method to store a refresh token.
+     *
+     * @param tokenHash the SHA-256 hash of the token.
+     * @param familyId  the family of the token.
+     * @param userId    the id of the user.
+     * @param expiresAt the expiration of the token.
+     */
+    public void insert(byte[] tokenHash, UUID familyId, Integer userId, Instant expiresAt) {
+        jdbcTemplate.update("insert into refresh_token (token_hash, family_id, user_id, expires_at) "
+                + "values (?, ?, ?, ?)", tokenHash, familyId, userId, Timestamp.from(expiresAt));
+    }
+
+    /**
+     * Method to mark a refresh token as used, with a single statement, if it is neither used nor expired. Of two
+     * concurrent uses of the same token, only one succeeds.
+     *
+     * @param tokenHash the SHA-256 hash of the token.
+     * @return the {@link RefreshTokenOwner}, null if the token is unknown, used or expired.
+     */
+    @Nullable
+    public RefreshTokenOwner use(byte[] tokenHash) {
+        final List<RefreshTokenOwner> owners = jdbcTemplate.query(USE, (resultSet, rowNum) -> new RefreshTokenOwner(
+                resultSet.getInt("id"), resultSet.getString("username"),
+                UserRole.valueOf(resultSet.getString("role")), resultSet.getObject("family_id", UUID.class)),
+                tokenHash);
+        return owners.isEmpty() ? null : owners.get(0);
+    }
+
+    /**
+     * Method to delete the tokens of the family of the given token.
+     *
+     * @param tokenHash the SHA-256 hash of a token of the family.
+     * @return the number of deleted tokens, 0 if the token is unknown.
+     */
+    public int deleteFamily(byte[] tokenHash) {
+        return jdbcTemplate.update("delete from refresh_token where family_id = "
+                + "(select family_id from refresh_token where token_hash = ?)", tokenHash);
+    }
+
+    /**
+     * Method to delete the expired tokens of a user.
+     *
+     * @param userId the id of the user.
+     * @return the number of deleted tokens.
+     */
+    public int deleteExpired(Integer userId) {
+        return jdbcTemplate.update("delete from refresh_token where user_id = ? and expires_at <= now()", userId);
+    }
+}
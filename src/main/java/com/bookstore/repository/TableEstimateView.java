@@ -0,0 +1,13 @@
+package com.bookstore.repository;
+
+/**
+ * Projection of the planner statistics of a table: the estimated number of rows, refreshed by every (auto)analyze,
+ * and the autovacuum settings which bound how many rows can change before the next automatic analyze.
+ */
+public interface TableEstimateView {
+    Double getRows();
+
+    Double getScaleFactor();
+
+    Long getThreshold();
+}
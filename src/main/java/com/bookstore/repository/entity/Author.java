@@ -1,13 +1,17 @@
 package com.bookstore.repository.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Objects;
 
 /**
- * Entity class representing Author table.
+ * Entity class representing Author table. The authors change rarely, so they are kept in the second-level cache,
+ * which drops an author when it is written.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "author")
 @Table(name = "author")
 public class Author {
     @Id
@@ -19,6 +23,9 @@ public class Author {
     private String name;
     @Column(name = "surname")
     private String surname;
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 
     public Long getId() {
         return id;
@@ -44,6 +51,14 @@ public class Author {
         this.surname = surname;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,13 +1,16 @@
 package com.bookstore.repository.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.Instant;
 import java.util.Objects;
 import java.util.Set;
 
 /**
- * Entity class representing Book table.
+ * Entity class representing Book table. The books themselves are not cached, only the ids of their authors and
+ * genres, whose entities come from the second-level cache.
  */
 @Entity
 @Table(name = "book")
@@ -27,13 +30,18 @@ public class Book {
     private Integer year;
     @Column(name = "creation_date", nullable = false)
     private Instant creationDate;
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "book-genres")
     @JoinTable(name = "book_genre", joinColumns = @JoinColumn(name = "book_id"),
             inverseJoinColumns = @JoinColumn(name = "genre_id"))
     private Set<Genre> listOfGenres;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "book-authors")
     @JoinTable(name = "book_author", joinColumns = @JoinColumn(name = "book_id"),
             inverseJoinColumns = @JoinColumn(name = "author_id"))
     private Set<Author> listOfAuthors;
@@ -86,6 +94,14 @@ public class Book {
         this.creationDate = creationDate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Set<Genre> getListOfGenres() {
         return listOfGenres;
     }
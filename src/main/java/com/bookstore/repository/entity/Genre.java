@@ -4,13 +4,19 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 
 import java.util.Objects;
 
 /**
- * Entity class representing a Genre table.
+ * Entity class representing a Genre table. The genres are reference data which the application never writes, so
+ * they are cached read-only in the second-level cache.
  */
 @Entity
+@Immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "genre")
 @Table(name = "genre")
 public class Genre {
     @Id
@@ -2,25 +2,84 @@ package com.bookstore.service;
 
 import com.bookstore.repository.UserRepository;
 import com.bookstore.repository.entity.Users;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
 
 /**
  * Service layer for the {@link Users} entity.
+ * <p>
+ * The users needed to authenticate a request are kept in a small cache, bounded in size and expiring shortly after
+ * being loaded so a role change is seen within the time to live. The sign in always loads the user, so it checks
+ * the current password. Hits, misses and evictions are published as the {@code cache.*} metrics with the tag
+ * {@code cache=users}.
+ * <p>
+ * After a successful sign in, a password hashed with another work factor than the configured one is hashed again
+ * with it, so the work factor can be changed without resetting the passwords.
  */
 @Service
-public class AuthService implements UserDetailsService {
+public class AuthService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository repository;
+    private final Cache<String, UserDetails> users;
 
-    public AuthService(UserRepository repository) {
+    public AuthService(UserRepository repository,
+                       @Value("${security.user-cache.max-size:10000}") long maxSize,
+                       @Value("${security.user-cache.ttl:PT1M}") Duration ttl,
+                       MeterRegistry meterRegistry) {
         this.repository = repository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
     }
 
     @Override
     public UserDetails loadUserByUsername(@NonNull final String username) {
         return repository.findByUsername(username);
     }
+
+    /**
+     * Method to get the user with the given username from the cache, loading it on a miss. A missing user is not
+     * cached.
+     *
+     * @param username the username.
+     * @return the {@link UserDetails}, null if there is no such user.
+     */
+    @Nullable
+    public UserDetails getCachedUser(@NonNull final String username) {
+        return users.get(username, repository::findByUsername);
+    }
+
+    /**
+     * Method to replace the password hash of a user, the password having just been checked against the old one.
+     *
+     * @param user        the signed in user.
+     * @param newPassword the new hash of the password.
+     * @return the user with the new hash.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(@NonNull final UserDetails user, @NonNull final String newPassword) {
+        repository.updatePassword(user.getUsername(), newPassword);
+        users.invalidate(user.getUsername());
+        if (user instanceof Users entity) {
+            entity.setPassword(newPassword);
+            return entity;
+        }
+        return repository.findByUsername(user.getUsername());
+    }
 }
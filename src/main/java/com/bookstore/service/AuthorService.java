@@ -2,26 +2,43 @@ package com.bookstore.service;
 
 import com.bookstore.exception.NotFoundException;
 import com.bookstore.repository.AuthorRepository;
+import com.bookstore.repository.DirectWriteRepository;
 import com.bookstore.repository.entity.Author;
 import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.AuthorPatchDTO;
+import com.bookstore.service.dto.BatchOperationDTO;
+import com.bookstore.service.dto.BatchResultDTO;
+import com.bookstore.service.dto.CountDTO;
+import com.bookstore.service.event.AfterCommit;
+import com.bookstore.service.event.AuthorChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * Service layer for the {@link Author}
  */
 @Service
 public class AuthorService {
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_NAME_LENGTH = 256;
 
     private final AuthorRepository authorRepository;
+    private final DirectWriteRepository directWriteRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AuthorService(final AuthorRepository authorRepository) {
+    public AuthorService(final AuthorRepository authorRepository,
+                         final DirectWriteRepository directWriteRepository,
+                         final ApplicationEventPublisher eventPublisher) {
         this.authorRepository = authorRepository;
+        this.directWriteRepository = directWriteRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -43,6 +60,17 @@ public class AuthorService {
         return authorRepository.count();
     }
 
+    /**
+     * Method to get the approximate authors count, the planner estimate of the table size read in constant time.
+     * Falls back to the exact count if the table has never been analyzed.
+     *
+     * @return the {@link CountDTO}.
+     */
+    public CountDTO getAuthorsCountEstimate() {
+        final CountDTO estimate = CountDTO.mapEstimateToDTO(authorRepository.estimateCount());
+        return estimate != null ? estimate : CountDTO.exact(authorRepository.count());
+    }
+
     /**
      * Method to get the author by the given Id.
      *
@@ -67,7 +95,9 @@ public class AuthorService {
         if (author == null) {
             return null;
         }
-        return AuthorDTO.mapEntityToDTO(authorRepository.save(author));
+        final AuthorDTO savedAuthor = AuthorDTO.mapEntityToDTO(authorRepository.save(author));
+        eventPublisher.publishEvent(new AuthorChangedEvent(savedAuthor.getId(), savedAuthor));
+        return savedAuthor;
     }
 
     /**
@@ -77,30 +107,164 @@ public class AuthorService {
      * @param authorRequestDTO the request dto.
      * @return the saved author {@link AuthorDTO}.
      */
+    @Nullable
     public AuthorDTO updateAuthor(Long authorId, AuthorDTO authorRequestDTO) {
-        final Optional<Author> oAuthor = authorRepository.findById(authorId);
-        if (oAuthor.isEmpty()) {
-            return null;
-        }
+        return patchAuthor(authorId, null, AuthorPatchDTO.mapDTOToPatch(authorRequestDTO));
+    }
 
-        Author existingAuthor = oAuthor.get();
-        existingAuthor.setName(authorRequestDTO.getName());
-        existingAuthor.setSurname(authorRequestDTO.getSurname());
+    /**
+     * Method to update the existing author with the given details if it still has the given version.
+     *
+     * @param authorId         the id of the author that needs to be updated.
+     * @param expectedVersion  the version the client has read.
+     * @param authorRequestDTO the request dto.
+     * @return the saved author {@link AuthorDTO}, null if there is no such author.
+     * @throws OptimisticLockingFailureException if the author has another version.
+     */
+    @Nullable
+    public AuthorDTO updateAuthor(Long authorId, long expectedVersion, AuthorDTO authorRequestDTO) {
+        return patchAuthor(authorId, expectedVersion, AuthorPatchDTO.mapDTOToPatch(authorRequestDTO));
+    }
 
-        existingAuthor = authorRepository.save(existingAuthor);
-        return AuthorDTO.mapEntityToDTO(existingAuthor);
+    /**
+     * Method to update the given details of the existing author, if it still has the given version when there is
+     * one. The author is updated by a single statement setting only the given columns, without loading it first.
+     *
+     * @param authorId        the id of the author that needs to be updated.
+     * @param expectedVersion the version the client has read, null for any version.
+     * @param patch           the details to change.
+     * @return the saved author {@link AuthorDTO}, null if there is no such author.
+     * @throws IllegalArgumentException          if the patch is empty or sets an invalid name.
+     * @throws OptimisticLockingFailureException if the author has another version.
+     */
+    @Nullable
+    public AuthorDTO patchAuthor(Long authorId, @Nullable Long expectedVersion, @NonNull AuthorPatchDTO patch) {
+        if (patch.fields().isEmpty()) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        if (patch.fields().containsKey(AuthorPatchDTO.NAME)) {
+            final Object name = patch.fields().get(AuthorPatchDTO.NAME);
+            if (name == null || name.toString().isBlank()) {
+                throw new IllegalArgumentException("The name is required");
+            }
+            if (name.toString().length() > MAX_NAME_LENGTH) {
+                throw new IllegalArgumentException("The name is longer than " + MAX_NAME_LENGTH + " characters");
+            }
+        }
+        final Object surname = patch.fields().get(AuthorPatchDTO.SURNAME);
+        if (surname != null && surname.toString().length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("The surname is longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        final AuthorDTO updatedAuthor = directWriteRepository.patchAuthor(authorId, expectedVersion, patch);
+        if (updatedAuthor == null) {
+            if (expectedVersion == null || !authorRepository.existsById(authorId)) {
+                return null;
+            }
+            throw new OptimisticLockingFailureException("Author with id " + authorId + " has been modified");
+        }
+        eventPublisher.publishEvent(new AuthorChangedEvent(authorId, updatedAuthor));
+        return updatedAuthor;
     }
 
     /**
-     * Method to delete author by the given id.
+     * Method to delete author by the given id, with a single statement.
      *
      * @param authorId the id of the author which needs to be deleted.
      */
     public void deleteAuthor(Long authorId) {
-        final Optional<Author> oAuthor = authorRepository.findById(authorId);
-        if (oAuthor.isEmpty()) {
+        if (directWriteRepository.deleteAuthor(authorId) == 0) {
             throw new NotFoundException("Author with id " + authorId + " does not exist");
         }
-        authorRepository.deleteById(authorId);
+        eventPublisher.publishEvent(new AuthorChangedEvent(authorId, null));
+    }
+
+    /**
+     * Method to create, update and delete authors in one transaction, the writes being sent as JDBC batches when
+     * the transaction commits. An operation on a missing author or with invalid details fails on its own and the
+     * other ones are applied; a failure of the database, such as deleting an author who still has books, rolls
+     * back the whole batch.
+     *
+     * @param operations the operations, applied in order.
+     * @return the result of every operation, in the same order.
+     * @throws IllegalArgumentException if the batch is empty or has more than {@value #MAX_BATCH_SIZE} operations.
+     */
+    @NonNull
+    @Transactional
+    public List<BatchResultDTO> applyBatch(@NonNull List<BatchOperationDTO<AuthorDTO>> operations) {
+        if (operations.isEmpty() || operations.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch must have between 1 and " + MAX_BATCH_SIZE + " operations");
+        }
+        final Set<Long> ids = new HashSet<>();
+        for (BatchOperationDTO<AuthorDTO> operation : operations) {
+            if (operation.operation() != BatchOperationDTO.Operation.CREATE && operation.id() != null) {
+                ids.add(operation.id());
+            }
+        }
+        final Map<Long, Author> authors = new HashMap<>();
+        authorRepository.findAllById(ids).forEach(author -> authors.put(author.getId(), author));
+        final BatchResultDTO[] results = new BatchResultDTO[operations.size()];
+        final List<AuthorChangedEvent> events = new ArrayList<>();
+        final Map<Integer, Author> created = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            final BatchOperationDTO<AuthorDTO> operation = operations.get(i);
+            final String error = validate(operation);
+            if (error != null) {
+                results[i] = BatchResultDTO.failure(i, operation.id(), 400, error);
+                continue;
+            }
+            if (operation.operation() == BatchOperationDTO.Operation.CREATE) {
+                final Author author = AuthorDTO.mapDTOToEntity(operation.item());
+                author.setId(null);
+                created.put(i, author);
+                continue;
+            }
+            final Author existingAuthor = authors.get(operation.id());
+            if (existingAuthor == null) {
+                results[i] = BatchResultDTO.failure(i, operation.id(), 404,
+                        "Author with id " + operation.id() + " does not exist");
+                continue;
+            }
+            if (operation.operation() == BatchOperationDTO.Operation.DELETE) {
+                authorRepository.delete(existingAuthor);
+                authors.remove(operation.id());
+                events.add(new AuthorChangedEvent(operation.id(), null));
+            } else {
+                existingAuthor.setName(operation.item().getName());
+                existingAuthor.setSurname(operation.item().getSurname());
+                events.add(new AuthorChangedEvent(operation.id(), AuthorDTO.mapEntityToDTO(existingAuthor)));
+            }
+            results[i] = BatchResultDTO.success(i, operation.id(), 200);
+        }
+        // The ids are assigned on save, the inserts are sent in one batch at the commit.
+        authorRepository.saveAll(created.values());
+        created.forEach((index, author) -> {
+            results[index] = BatchResultDTO.success(index, author.getId(), 201);
+            events.add(new AuthorChangedEvent(author.getId(), AuthorDTO.mapEntityToDTO(author)));
+        });
+        AfterCommit.publish(eventPublisher, events);
+        return Arrays.asList(results);
+    }
+
+    @Nullable
+    private static String validate(BatchOperationDTO<AuthorDTO> operation) {
+        if (operation.operation() == null) {
+            return "The operation is required";
+        }
+        if (operation.operation() != BatchOperationDTO.Operation.CREATE && operation.id() == null) {
+            return "The id is required";
+        }
+        if (operation.operation() == BatchOperationDTO.Operation.DELETE) {
+            return null;
+        }
+        if (operation.item() == null || operation.item().getName() == null || operation.item().getName().isBlank()) {
+            return "The name is required";
+        }
+        if (operation.item().getName().length() > MAX_NAME_LENGTH) {
+            return "The name is longer than " + MAX_NAME_LENGTH + " characters";
+        }
+        if (operation.item().getSurname() != null && operation.item().getSurname().length() > MAX_NAME_LENGTH) {
+            return "The surname is longer than " + MAX_NAME_LENGTH + " characters";
+        }
+        return null;
     }
 }
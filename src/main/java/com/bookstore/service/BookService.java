@@ -1,65 +1,320 @@
 package com.bookstore.service;
 
 import com.bookstore.exception.NotFoundException;
+import com.bookstore.repository.AuthorRepository;
+import com.bookstore.repository.BookFilter;
 import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.BookSortKey;
+import com.bookstore.repository.DirectWriteRepository;
+import com.bookstore.repository.entity.Author;
 import com.bookstore.repository.entity.Book;
-import com.bookstore.service.dto.AuthorDTO;
-import com.bookstore.service.dto.BookDTO;
-import com.bookstore.service.dto.BookSearchDTO;
-import com.bookstore.service.dto.GenreDTO;
+import com.bookstore.service.dto.*;
+import com.bookstore.service.event.AfterCommit;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.read.BookReadModel;
+import com.bookstore.service.search.BookSearchCache;
+import com.bookstore.service.search.BookSearchKey;
+import com.bookstore.service.search.CatalogIndex;
+import com.bookstore.service.search.FacetIndex;
+import com.bookstore.service.search.RelevanceIndex;
+import com.bookstore.service.search.SuggestIndex;
+import com.bookstore.service.search.TitleIndex;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Service layer for the {@link Book}
  */
 @Service
 public class BookService {
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_TITLE_LENGTH = 256;
+
     private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final DirectWriteRepository directWriteRepository;
+    private final TitleIndex titleIndex;
+    private final FacetIndex facetIndex;
+    private final BookSearchCache searchCache;
+    private final SuggestIndex suggestIndex;
+    private final CatalogIndex catalogIndex;
+    private final RelevanceIndex relevanceIndex;
+    private final BookReadModel readModel;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, AuthorRepository authorRepository,
+                       DirectWriteRepository directWriteRepository, TitleIndex titleIndex,
+                       FacetIndex facetIndex, BookSearchCache searchCache, SuggestIndex suggestIndex, CatalogIndex catalogIndex,
+                       RelevanceIndex relevanceIndex, BookReadModel readModel,
+                       ApplicationEventPublisher eventPublisher) {
         this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.directWriteRepository = directWriteRepository;
+        this.titleIndex = titleIndex;
+        this.facetIndex = facetIndex;
+        this.catalogIndex = catalogIndex;
+        this.relevanceIndex = relevanceIndex;
+        this.readModel = readModel;
+        this.searchCache = searchCache;
+        this.suggestIndex = suggestIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Method to get the book by the given Id.
+     * Method to get the book by the given Id, from the {@link BookReadModel} when it is enabled.
      *
      * @param bookId the id of the book to get.
      * @return {@link BookDTO}.
      */
     public BookDTO getBookById(@NonNull final Long bookId) {
+        if (readModel.isReady()) {
+            return readModel.findById(bookId);
+        }
         final Optional<Book> book = bookRepository.findById(bookId);
         return book.map(BookDTO::mapEntityToDTO).orElse(null);
     }
 
     /**
-     * Method to get all the books.
+     * Method to get all the books, cached in the {@link BookSearchCache}.
      *
      * @param pageable the pageable object.
      * @return the list of {@link BookDTO}.
+     * @throws IllegalArgumentException if the sort is not supported.
      */
     public List<BookDTO> getAllBooks(@NonNull final BookSearchDTO bookSearchDTO, @NonNull final Pageable pageable) {
-        final String title = bookSearchDTO.getTitle() == null ? "" : bookSearchDTO.getTitle();
-        return BookDTO.mapEntitiesToDTOs(bookRepository.findAll(title, bookSearchDTO.getAuthorIds(),
-                bookSearchDTO.getGenreIds(), pageable).getContent());
+        BookSortKey.checkSupported(pageable.getSort());
+        final BookFilter filter = BookSearchDTO.mapDTOToFilter(bookSearchDTO);
+        return searchCache.get(BookSearchKey.of("books", filter, pageable), () -> {
+            if (!resolveIndexes(filter)) {
+                return List.of();
+            }
+            return hydrate(searchIds(filter, pageable).getContent());
+        });
+    }
+
+    /**
+     * Method to search the books and get the page together with the paging metadata. The total is counted at most
+     * once: when the page is the last one it is derived from the page offset, otherwise a single count query runs.
+     * The result is cached in the {@link BookSearchCache}. A fuzzy search also gets the corrected title when the
+     * {@link TitleIndex} is enabled.
+     *
+     * @param bookSearchDTO dto object for search.
+     * @param pageable      the pageable object.
+     * @param withTotal     whether the total should be computed, if false the result is a slice without total.
+     * @return the {@link BookPageDTO}.
+     * @throws IllegalArgumentException if the sort is not supported.
+     */
+    public BookPageDTO searchBooks(@NonNull final BookSearchDTO bookSearchDTO, @NonNull final Pageable pageable,
+                                   final boolean withTotal) {
+        BookSortKey.checkSupported(pageable.getSort());
+        final BookFilter filter = BookSearchDTO.mapDTOToFilter(bookSearchDTO);
+        return searchCache.get(BookSearchKey.of(withTotal ? "page" : "slice", filter, pageable),
+                () -> loadPage(filter, pageable, withTotal));
+    }
+
+    private BookPageDTO loadPage(final BookFilter filter, final Pageable pageable, final boolean withTotal) {
+        final String didYouMean = filter.hasTitle() && filter.getTitleMatch() == TitleMatch.FUZZY
+                && titleIndex.isReady() ? titleIndex.correct(filter.getTitle()) : null;
+        if (!resolveIndexes(filter)) {
+            return new BookPageDTO(List.of(), withTotal ? 0L : null, pageable.getPageNumber(),
+                    pageable.getPageSize(), false, didYouMean);
+        }
+        final Slice<Long> slice = searchIds(filter, pageable);
+        Long total = null;
+        if (withTotal) {
+            // A page past the end is empty without telling where the end is, so it still needs the count.
+            if (!slice.hasNext() && (slice.hasContent() || pageable.getPageNumber() == 0)) {
+                total = pageable.getOffset() + slice.getNumberOfElements();
+            } else {
+                total = count(filter);
+            }
+        }
+        return new BookPageDTO(hydrate(slice.getContent()), total, pageable.getPageNumber(),
+                pageable.getPageSize(), slice.hasNext(), didYouMean);
+    }
+
+    /**
+     * Method to search the books by relevance: the books matching the criteria and any word of the query, the best
+     * BM25 matches of the title and the description first. With the {@link RelevanceIndex} the page is cut from the
+     * top hits up to the end of the page, without sorting all the matches; without it the database ranks the books.
+     *
+     * @param query         the words to search for.
+     * @param bookSearchDTO dto object for search.
+     * @param pageable      the pageable object, the sort is ignored.
+     * @return the {@link RankedBookPageDTO}.
+     * @throws IllegalArgumentException if the query has no word or the page is out of range.
+     */
+    public RankedBookPageDTO searchBooksByRelevance(@NonNull final String query,
+                                                    @NonNull final BookSearchDTO bookSearchDTO,
+                                                    @NonNull final Pageable pageable) {
+        final List<String> terms = RelevanceIndex.terms(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("The query must have a word");
+        }
+        final long end = pageable.getOffset() + pageable.getPageSize() + 1;
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The page is out of range");
+        }
+        final BookFilter filter = BookSearchDTO.mapDTOToFilter(bookSearchDTO);
+        if (!resolveIndexes(filter)) {
+            return new RankedBookPageDTO(List.of(), pageable.getPageNumber(), pageable.getPageSize(), false);
+        }
+        final Map<Long, Double> scores;
+        if (relevanceIndex.isReady() && !filter.hasCriteriaBesidesIds()) {
+            scores = new LinkedHashMap<>();
+            relevanceIndex.search(terms, filter.getIds(), (int) end).stream()
+                    .skip(pageable.getOffset())
+                    .forEach(hit -> scores.put((long) hit.id(), hit.score()));
+        } else {
+            scores = bookRepository.rankIds(terms, filter, pageable.getOffset(), pageable.getPageSize() + 1);
+        }
+        final List<Long> ids = scores.keySet().stream().limit(pageable.getPageSize()).toList();
+        final List<RankedBookDTO> items = hydrate(ids).stream()
+                .map(book -> new RankedBookDTO(book, scores.get(book.getId())))
+                .toList();
+        return new RankedBookPageDTO(items, pageable.getPageNumber(), pageable.getPageSize(),
+                scores.size() > pageable.getPageSize());
     }
 
     /**
-     * Method to get the books count.
+     * Method to get a page of books with keyset pagination. Instead of skipping the rows of the previous pages
+     * the query seeks to the position stored in the cursor, so every page costs the same.
+     *
+     * @param bookSearchDTO dto object for search.
+     * @param order         the sort order, ignored when a cursor is given since the cursor carries its own order.
+     * @param cursor        the cursor returned with the previous page, null for the first page.
+     * @param size          the page size.
+     * @return the {@link BookCursorPageDTO}.
+     * @throws IllegalArgumentException if the cursor or the sort order is not valid.
+     */
+    public BookCursorPageDTO scrollBooks(@NonNull final BookSearchDTO bookSearchDTO, @NonNull final Sort.Order order,
+                                         @Nullable final String cursor, final int size) {
+        final BookCursor after = cursor == null ? null : BookCursor.decode(cursor);
+        final BookSortKey sortKey = BookSortKey.of(after == null ? order.getProperty() : after.property());
+        final Sort.Direction direction = after == null ? order.getDirection() : after.direction();
+
+        final BookFilter filter = BookSearchDTO.mapDTOToFilter(bookSearchDTO);
+        if (!resolveIndexes(filter)) {
+            return new BookCursorPageDTO(List.of(), null);
+        }
+        final List<Long> ids = bookRepository.findIdsAfter(filter, sortKey, direction,
+                after == null ? null : after.key(), after == null ? null : after.id(), size + 1);
+        if (ids.size() <= size) {
+            return new BookCursorPageDTO(hydrate(ids), null);
+        }
+        final List<BookDTO> page = hydrate(ids.subList(0, size));
+        if (page.isEmpty()) {
+            return new BookCursorPageDTO(List.of(), null);
+        }
+        final BookDTO last = page.get(page.size() - 1);
+        final BookCursor next = new BookCursor(sortKey.getProperty(), direction, sortKey.keyOf(last), last.getId());
+        return new BookCursorPageDTO(page, next.encode());
+    }
+
+    /**
+     * Method to get the books count, cached in the {@link BookSearchCache}.
      *
      * @param bookSearchDTO dto object for search.
      * @return the books count.
      */
     public Long getBooksCount(@NonNull final BookSearchDTO bookSearchDTO) {
-        final String title = bookSearchDTO.getTitle() == null ? "" : bookSearchDTO.getTitle();
-        return bookRepository.count(title, bookSearchDTO.getAuthorIds(),
-                bookSearchDTO.getGenreIds());
+        final BookFilter filter = BookSearchDTO.mapDTOToFilter(bookSearchDTO);
+        return searchCache.get(BookSearchKey.of("count", filter, null),
+                () -> resolveIndexes(filter) ? count(filter) : 0L);
+    }
+
+    /**
+     * Method to get the books count, approximate when it can not be cheaply exact. Without criteria it is the
+     * planner estimate of the table size, read in constant time; with criteria it is exact, from the in-memory
+     * indexes when they cover the criteria or else from a count query.
+     *
+     * @param bookSearchDTO dto object for search.
+     * @return the {@link CountDTO}.
+     */
+    public CountDTO getBooksCountEstimate(@NonNull final BookSearchDTO bookSearchDTO) {
+        final BookFilter filter = BookSearchDTO.mapDTOToFilter(bookSearchDTO);
+        if (!filter.hasCriteriaBesidesIds()) {
+            final CountDTO estimate = CountDTO.mapEstimateToDTO(bookRepository.estimateCount());
+            if (estimate != null) {
+                return estimate;
+            }
+        }
+        return CountDTO.exact(resolveIndexes(filter) ? count(filter) : 0L);
+    }
+
+    /**
+     * Method to count the matching books per genre and per author in one pass. The counts of a facet ignore the
+     * criteria on that same facet, so the selected genres (authors) do not hide the other genres (authors) which
+     * could be added to the selection.
+     *
+     * @param bookSearchDTO dto object for search.
+     * @param limit         the max number of authors to return.
+     * @return the {@link BookFacetsDTO}.
+     * @throws IllegalArgumentException if the limit is not positive.
+     */
+    public BookFacetsDTO getBookFacets(@NonNull final BookSearchDTO bookSearchDTO, final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be positive");
+        }
+        final BookFilter genreFilter = BookSearchDTO.mapDTOToFilter(bookSearchDTO);
+        genreFilter.setGenreIds(null);
+        final BookFilter authorFilter = BookSearchDTO.mapDTOToFilter(bookSearchDTO);
+        authorFilter.setAuthorIds(null);
+        return new BookFacetsDTO(toFacetCounts(countPerGenre(genreFilter)),
+                toFacetCounts(countPerAuthor(authorFilter, limit)));
+    }
+
+    /**
+     * Method to get the top completions of the text typed in the search box, among the book titles and the author
+     * names. Without the {@link SuggestIndex} only the titles starting with the text are completed, from the
+     * database.
+     *
+     * @param text  the typed text.
+     * @param limit the max number of completions.
+     * @return the list of {@link SuggestionDTO}.
+     * @throws IllegalArgumentException if the limit is not between 1 and {@value #MAX_SUGGESTIONS}.
+     */
+    public List<SuggestionDTO> suggest(@NonNull final String text, final int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("The limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        if (text.isBlank()) {
+            return List.of();
+        }
+        if (suggestIndex.isReady()) {
+            return suggestIndex.suggest(text, limit);
+        }
+        return bookRepository.findByTitleStartingWithIgnoreCaseOrderByTitle(text.trim(), PageRequest.of(0, limit))
+                .stream()
+                .map(title -> new SuggestionDTO(SuggestionDTO.Type.BOOK, title.getId(), title.getTitle(), 1))
+                .toList();
+    }
+
+    /**
+     * Method to export all the books with their authors and genres, in id order. The books are read through a
+     * database cursor and handed over chunk by chunk, so the memory used stays the same whatever the catalog size.
+     *
+     * @param consumer the consumer of the chunks of {@link BookDTO}.
+     */
+    @Transactional(readOnly = true)
+    public void exportBooks(@NonNull final Consumer<List<BookDTO>> consumer) {
+        bookRepository.forEachChunk(EXPORT_CHUNK_SIZE, books -> consumer.accept(BookDTO.mapEntitiesToDTOs(books)));
     }
 
     /**
@@ -73,8 +328,11 @@ public class BookService {
         if (book == null) {
             return null;
         }
+        book.setListOfAuthors(authorReferences(bookRequestDTO.getListOfAuthors()));
         book.setCreationDate(Instant.now());
-        return BookDTO.mapEntityToDTO(bookRepository.save(book));
+        final BookDTO savedBook = BookDTO.mapEntityToDTO(bookRepository.save(book));
+        eventPublisher.publishEvent(new BookChangedEvent(savedBook.getId(), null, savedBook));
+        return savedBook;
     }
 
     /**
@@ -84,34 +342,317 @@ public class BookService {
      * @param bookRequestDTO the request dto.
      * @return the saved author {@link BookDTO}.
      */
+    @Nullable
+    @Transactional
     public BookDTO updateBook(Long bookId, BookDTO bookRequestDTO) {
-        final Optional<Book> oBook = bookRepository.findById(bookId);
-        if (oBook.isEmpty()) {
-            return null;
-        }
+        return patchBook(bookId, null, BookPatchDTO.mapDTOToPatch(bookRequestDTO));
+    }
 
-        Book existingBook = oBook.get();
-        existingBook.setTitle(bookRequestDTO.getTitle());
-        existingBook.setDescription(bookRequestDTO.getDescription());
-        existingBook.setPrice(bookRequestDTO.getPrice());
-        existingBook.setYear(bookRequestDTO.getYear());
-        existingBook.setListOfAuthors(new HashSet<>(AuthorDTO.mapDTOsToEntities(bookRequestDTO.getListOfAuthors())));
-        existingBook.setListOfGenres(new HashSet<>(GenreDTO.mapDTOsToEntities(bookRequestDTO.getListOfGenres())));
-        existingBook = bookRepository.save(existingBook);
+    /**
+     * Method to update the existing book with the given details if it still has the given version.
+     *
+     * @param bookId          the id of the book that needs to be updated.
+     * @param expectedVersion the version the client has read.
+     * @param bookRequestDTO  the request dto.
+     * @return the saved book {@link BookDTO}, null if there is no such book.
+     * @throws OptimisticLockingFailureException if the book has another version.
+     */
+    @Nullable
+    @Transactional
+    public BookDTO updateBook(final Long bookId, final long expectedVersion, final BookDTO bookRequestDTO) {
+        return patchBook(bookId, expectedVersion, BookPatchDTO.mapDTOToPatch(bookRequestDTO));
+    }
 
-        return BookDTO.mapEntityToDTO(existingBook);
+    /**
+     * Method to update the given details of the existing book, if it still has the given version when there is one.
+     * The book is updated by a single statement setting only the given columns, without loading it first, and only
+     * the links to the added and removed authors and genres are written.
+     *
+     * @param bookId          the id of the book that needs to be updated.
+     * @param expectedVersion the version the client has read, null for any version.
+     * @param patch           the details to change.
+     * @return the saved book {@link BookDTO}, null if there is no such book.
+     * @throws IllegalArgumentException          if the patch is empty or sets an invalid title.
+     * @throws OptimisticLockingFailureException if the book has another version.
+     */
+    @Nullable
+    @Transactional
+    public BookDTO patchBook(final Long bookId, @Nullable final Long expectedVersion,
+                             @NonNull final BookPatchDTO patch) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        if (patch.fields().containsKey(BookPatchDTO.TITLE)) {
+            final Object title = patch.fields().get(BookPatchDTO.TITLE);
+            if (title == null || title.toString().isBlank()) {
+                throw new IllegalArgumentException("The title is required");
+            }
+            if (title.toString().length() > MAX_TITLE_LENGTH) {
+                throw new IllegalArgumentException("The title is longer than " + MAX_TITLE_LENGTH + " characters");
+            }
+        }
+        final DirectWriteRepository.BookUpdate update =
+                directWriteRepository.patchBook(bookId, expectedVersion, patch);
+        if (update == null) {
+            if (expectedVersion == null || !bookRepository.existsById(bookId)) {
+                return null;
+            }
+            throw new OptimisticLockingFailureException("Book with id " + bookId + " has been modified");
+        }
+        AfterCommit.publish(eventPublisher, List.of(new BookChangedEvent(bookId, update.previous(), update.book())));
+        return update.book();
     }
 
     /**
-     * Method to delete book by the given id.
+     * Method to delete book by the given id, with a single statement.
      *
      * @param bookId the id of the book which needs to be deleted.
      */
+    @Transactional
     public void deleteBook(Long bookId) {
-        final Optional<Book> oBook = bookRepository.findById(bookId);
-        if (oBook.isEmpty()) {
+        final BookDTO previousBook = directWriteRepository.deleteBook(bookId);
+        if (previousBook == null) {
             throw new NotFoundException("Book with id " + bookId + " does not exist");
         }
-        bookRepository.deleteById(bookId);
+        AfterCommit.publish(eventPublisher, List.of(new BookChangedEvent(bookId, previousBook, null)));
+    }
+
+    /**
+     * Method to create, update and delete books in one transaction. The books to update or delete are loaded with
+     * their authors and genres in one query and the writes are sent as JDBC batches when the transaction commits.
+     * An operation on a missing book or with invalid details fails on its own and the other ones are applied; a
+     * failure of the database, such as an unknown author or genre, rolls back the whole batch.
+     *
+     * @param operations the operations, applied in order.
+     * @return the result of every operation, in the same order.
+     * @throws IllegalArgumentException if the batch is empty or has more than {@value #MAX_BATCH_SIZE} operations.
+     */
+    @NonNull
+    @Transactional
+    public List<BatchResultDTO> applyBatch(@NonNull final List<BatchOperationDTO<BookDTO>> operations) {
+        if (operations.isEmpty() || operations.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch must have between 1 and " + MAX_BATCH_SIZE + " operations");
+        }
+        final Set<Long> ids = new HashSet<>();
+        for (BatchOperationDTO<BookDTO> operation : operations) {
+            if (operation.operation() != BatchOperationDTO.Operation.CREATE && operation.id() != null) {
+                ids.add(operation.id());
+            }
+        }
+        final Map<Long, Book> books = new HashMap<>();
+        if (!ids.isEmpty()) {
+            bookRepository.findAllWithAssociationsByIdIn(ids).forEach(book -> books.put(book.getId(), book));
+        }
+        final BatchResultDTO[] results = new BatchResultDTO[operations.size()];
+        final List<BookChangedEvent> events = new ArrayList<>();
+        final Map<Integer, Book> created = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            final BatchOperationDTO<BookDTO> operation = operations.get(i);
+            final String error = validate(operation);
+            if (error != null) {
+                results[i] = BatchResultDTO.failure(i, operation.id(), 400, error);
+                continue;
+            }
+            if (operation.operation() == BatchOperationDTO.Operation.CREATE) {
+                final Book book = BookDTO.mapDTOToEntity(operation.item());
+                book.setId(null);
+                book.setListOfAuthors(authorReferences(operation.item().getListOfAuthors()));
+                book.setCreationDate(Instant.now());
+                created.put(i, book);
+                continue;
+            }
+            final Book existingBook = books.get(operation.id());
+            if (existingBook == null) {
+                results[i] = BatchResultDTO.failure(i, operation.id(), 404,
+                        "Book with id " + operation.id() + " does not exist");
+                continue;
+            }
+            final BookDTO previousBook = BookDTO.mapEntityToDTO(existingBook);
+            if (operation.operation() == BatchOperationDTO.Operation.DELETE) {
+                bookRepository.delete(existingBook);
+                books.remove(operation.id());
+                events.add(new BookChangedEvent(operation.id(), previousBook, null));
+            } else {
+                copyDetails(operation.item(), existingBook);
+                events.add(new BookChangedEvent(operation.id(), previousBook, BookDTO.mapEntityToDTO(existingBook)));
+            }
+            results[i] = BatchResultDTO.success(i, operation.id(), 200);
+        }
+        // The ids are assigned on save, the inserts are sent in one batch at the commit.
+        bookRepository.saveAll(created.values());
+        created.forEach((index, book) -> {
+            results[index] = BatchResultDTO.success(index, book.getId(), 201);
+            events.add(new BookChangedEvent(book.getId(), null, BookDTO.mapEntityToDTO(book)));
+        });
+        AfterCommit.publish(eventPublisher, events);
+        return Arrays.asList(results);
+    }
+
+    private void copyDetails(final BookDTO bookRequestDTO, final Book book) {
+        book.setTitle(bookRequestDTO.getTitle());
+        book.setDescription(bookRequestDTO.getDescription());
+        book.setPrice(bookRequestDTO.getPrice());
+        book.setYear(bookRequestDTO.getYear());
+        book.setListOfAuthors(authorReferences(bookRequestDTO.getListOfAuthors()));
+        book.setListOfGenres(new HashSet<>(GenreDTO.mapDTOsToEntities(bookRequestDTO.getListOfGenres())));
+    }
+
+    /**
+     * Method to get references to the given authors. The authors are versioned, so a detached author would be taken
+     * for a new one.
+     */
+    private Set<Author> authorReferences(@Nullable final Set<AuthorDTO> authors) {
+        final Set<Author> references = new HashSet<>();
+        if (authors != null) {
+            for (AuthorDTO author : authors) {
+                references.add(authorRepository.getReferenceById(author.getId()));
+            }
+        }
+        return references;
+    }
+
+    @Nullable
+    private static String validate(final BatchOperationDTO<BookDTO> operation) {
+        if (operation.operation() == null) {
+            return "The operation is required";
+        }
+        if (operation.operation() != BatchOperationDTO.Operation.CREATE && operation.id() == null) {
+            return "The id is required";
+        }
+        if (operation.operation() == BatchOperationDTO.Operation.DELETE) {
+            return null;
+        }
+        if (operation.item() == null || operation.item().getTitle() == null || operation.item().getTitle().isBlank()) {
+            return "The title is required";
+        }
+        if (operation.item().getTitle().length() > MAX_TITLE_LENGTH) {
+            return "The title is longer than " + MAX_TITLE_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    /**
+     * Method to resolve the criteria the in-memory indexes can answer to the ids of the matching books, so the
+     * database does not evaluate them at all: the substring title with the {@link TitleIndex}, the authors and
+     * genres with the {@link FacetIndex}. Criteria of an index which is not ready are left to the database. The
+     * filter keeps its criteria as they were, which the database evaluates instead of too many ids.
+     *
+     * @param filter the filter to resolve.
+     * @return false if no book can match the filter.
+     */
+    private boolean resolveIndexes(final BookFilter filter) {
+        if (filter.getUnresolved() == null) {
+            filter.setUnresolved(filter.copy());
+        }
+        if (filter.hasTitle() && filter.getTitleMatch() != TitleMatch.WORDS && titleIndex.isReady()) {
+            filter.setIds(filter.getTitleMatch() == TitleMatch.FUZZY
+                    ? titleIndex.searchFuzzy(filter.getTitle()) : titleIndex.search(filter.getTitle()));
+            filter.setTitle(null);
+        }
+        if ((filter.hasAuthorIds() || filter.hasGenreIds()) && facetIndex.isReady()) {
+            final RoaringBitmap ids = facetIndex.search(filter.getAuthorIds(), filter.getGenreIds());
+            if (filter.hasIds()) {
+                ids.and(RoaringBitmap.bitmapOf(filter.getIds()));
+            }
+            filter.setIds(ids.toArray());
+            filter.setAuthorIds(null);
+            filter.setGenreIds(null);
+        }
+        // Last, so the ranges are only checked for the books the other criteria left.
+        if ((filter.hasPriceRange() || filter.hasYearRange()) && catalogIndex.isReady()) {
+            filter.setIds(catalogIndex.search(filter.getMinPrice(), filter.getMaxPrice(), filter.getMinYear(),
+                    filter.getMaxYear(), filter.hasIds() ? filter.getIds() : null));
+            filter.setMinPrice(null);
+            filter.setMaxPrice(null);
+            filter.setMinYear(null);
+            filter.setMaxYear(null);
+        }
+        return !filter.hasIds() || filter.getIds().length > 0;
+    }
+
+    private long count(final BookFilter filter) {
+        if (filter.hasIds() && !filter.hasCriteriaBesidesIds()) {
+            return filter.getIds().length;
+        }
+        return bookRepository.countMatching(filter);
+    }
+
+    /**
+     * Method to get the page of ids of the books matching the filter, the first of the two search phases.
+     */
+    private Slice<Long> searchIds(final BookFilter filter, final Pageable pageable) {
+        if (!filter.hasCriteriaBesidesIds() && catalogIndex.isReady() && CatalogIndex.canSort(pageable.getSort())) {
+            // One extra row tells whether there is a next slice, as in the database query.
+            final int[] ids = catalogIndex.page(pageable.getSort(), filter.getIds(), pageable.getOffset(),
+                    pageable.getPageSize() + 1);
+            final boolean hasNext = ids.length > pageable.getPageSize();
+            final List<Long> pageIds = Arrays.stream(ids).limit(pageable.getPageSize()).asLongStream().boxed().toList();
+            return new SliceImpl<>(pageIds, pageable, hasNext);
+        }
+        if (!filter.hasIds() || filter.hasCriteriaBesidesIds() || !isSortedByIdOnly(pageable.getSort())) {
+            return bookRepository.searchIds(filter, pageable);
+        }
+        // The ids of the index are sorted, so the page is cut in memory.
+        final int[] ids = filter.getIds();
+        final boolean ascending = pageable.getSort().isUnsorted()
+                || pageable.getSort().iterator().next().isAscending();
+        final List<Long> pageIds = new ArrayList<>(pageable.getPageSize());
+        final long offset = pageable.getOffset();
+        for (long i = offset; i < ids.length && i < offset + pageable.getPageSize(); i++) {
+            pageIds.add((long) ids[ascending ? (int) i : ids.length - 1 - (int) i]);
+        }
+        return new SliceImpl<>(pageIds, pageable, offset + pageable.getPageSize() < ids.length);
+    }
+
+    /**
+     * Method to load the books of a page with their authors and genres, the second of the two search phases.
+     * It costs one query whatever the page size: a primary key lookup in the {@link BookReadModel} when it is
+     * enabled, a fetch join otherwise, so mapping the books to DTOs triggers no lazy loading.
+     *
+     * @param ids the ids of the books in the page order.
+     * @return the list of {@link BookDTO} in the order of the ids.
+     */
+    private List<BookDTO> hydrate(final List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        if (readModel.isReady()) {
+            return readModel.findAllByIdIn(ids);
+        }
+        final Map<Long, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findAllWithAssociationsByIdIn(ids)) {
+            books.put(book.getId(), book);
+        }
+        // A book deleted between the two phases is skipped.
+        return ids.stream().map(books::get).filter(Objects::nonNull).map(BookDTO::mapEntityToDTO).toList();
+    }
+
+    private Map<Long, Long> countPerGenre(final BookFilter filter) {
+        if (!resolveIndexes(filter)) {
+            return Map.of();
+        }
+        if (facetIndex.isReady() && !filter.hasCriteriaBesidesIds()) {
+            return facetIndex.countPerGenre(filter.hasIds() ? RoaringBitmap.bitmapOf(filter.getIds()) : null);
+        }
+        return bookRepository.countPerGenre(filter);
+    }
+
+    private Map<Long, Long> countPerAuthor(final BookFilter filter, final int limit) {
+        if (!resolveIndexes(filter)) {
+            return Map.of();
+        }
+        if (facetIndex.isReady() && !filter.hasCriteriaBesidesIds()) {
+            return facetIndex.countPerAuthor(filter.hasIds() ? RoaringBitmap.bitmapOf(filter.getIds()) : null, limit);
+        }
+        return bookRepository.countPerAuthor(filter, limit);
+    }
+
+    private static List<FacetCountDTO> toFacetCounts(final Map<Long, Long> counts) {
+        return counts.entrySet().stream().map(entry -> new FacetCountDTO(entry.getKey(), entry.getValue())).toList();
+    }
+
+    private static boolean isSortedByIdOnly(final Sort sort) {
+        return sort.isUnsorted()
+                || sort.stream().count() == 1 && BookSortKey.of(sort.iterator().next().getProperty()) == BookSortKey.ID;
     }
 }
@@ -0,0 +1,111 @@
+package com.bookstore.service;
+
+import com.bookstore.repository.RefreshTokenRepository;
+import com.bookstore.repository.entity.Users;
+import com.bookstore.service.dto.JwtDTO;
+import com.bookstore.service.dto.UserRole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Service layer for the refresh tokens, which get new tokens with a lookup instead of checking the password again.
+ * <p>
+ * A refresh token is 256 random bits, so it is stored as its SHA-256 hash, a slow password hash adding nothing.
+ * It can be used once: the refresh rotates it, issuing a new refresh token of the same family. A token used a
+ * second time has been stolen or replayed, so the whole family is revoked and its user must sign in again. The new
+ * access token carries the current role of the user.
+ */
+@Service
+public class RefreshTokenService {
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TokenService tokenService;
+    private final Duration refreshTokenTtl;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, TokenService tokenService,
+                               @Value("${security.jwt.refresh-token.ttl:P14D}") Duration refreshTokenTtl) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.tokenService = tokenService;
+        this.refreshTokenTtl = refreshTokenTtl;
+    }
+
+    /**
+     * Method to issue the tokens of a user who has just signed in, starting a new family of refresh tokens.
+     *
+     * @param user the authenticated user.
+     * @return the {@link JwtDTO}.
+     */
+    @NonNull
+    @Transactional
+    public JwtDTO signIn(@NonNull final Users user) {
+        refreshTokenRepository.deleteExpired(user.getId());
+        return new JwtDTO(tokenService.generateAccessToken(user), issue(user.getId(), UUID.randomUUID()));
+    }
+
+    /**
+     * Method to exchange a refresh token for new tokens. A refresh token which has already been used revokes its
+     * family.
+     *
+     * @param refreshToken the refresh token.
+     * @return the {@link JwtDTO}, null if the token is unknown, used, expired or revoked.
+     */
+    @Nullable
+    @Transactional
+    public JwtDTO refresh(@Nullable final String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return null;
+        }
+        final byte[] tokenHash = hash(refreshToken);
+        final RefreshTokenRepository.RefreshTokenOwner owner = refreshTokenRepository.use(tokenHash);
+        if (owner == null) {
+            refreshTokenRepository.deleteFamily(tokenHash);
+            return null;
+        }
+        final UserRole role = owner.role() == UserRole.ADMIN ? UserRole.ADMIN : UserRole.USER;
+        return new JwtDTO(tokenService.generateAccessToken(owner.username(), role),
+                issue(owner.userId(), owner.familyId()));
+    }
+
+    /**
+     * Method to revoke a refresh token and the other tokens of its family, to sign out.
+     *
+     * @param refreshToken the refresh token.
+     * @return true if the token was known.
+     */
+    public boolean revoke(@Nullable final String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return false;
+        }
+        return refreshTokenRepository.deleteFamily(hash(refreshToken)) > 0;
+    }
+
+    private String issue(final Integer userId, final UUID familyId) {
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        final String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.insert(hash(refreshToken), familyId, userId, Instant.now().plus(refreshTokenTtl));
+        return refreshToken;
+    }
+
+    private static byte[] hash(final String refreshToken) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -1,21 +1,52 @@
 package com.bookstore.service;
 
 import com.bookstore.repository.GenreRepository;
+import com.bookstore.service.dto.GenreCatalogDTO;
 import com.bookstore.service.dto.GenreDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Service layer for the static resources.
+ * <p>
+ * The genres change a few times a year and are read on every page load, so they are served from a
+ * {@link GenreCatalogDTO} snapshot holding the response body already serialized and compressed. The snapshot is
+ * rebuilt once it is older than the max age, and replaced in one write, so a reader sees either the old or the new
+ * snapshot as a whole. The entity tag is a hash of the content, so a rebuild which finds the same genres keeps it.
+ * <p>
+ * The genres are only changed in the database, so the rebuild reads them with an uncached query: the Hibernate
+ * caches of the genres would keep serving the genres they loaded first.
  */
 @Service
 public class ResourceService {
 
     private final GenreRepository genreRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration maxAge;
+    private volatile Snapshot snapshot;
 
-    public ResourceService(final GenreRepository genreRepository) {
+    public ResourceService(final GenreRepository genreRepository, final ObjectMapper objectMapper,
+                           @Value("${bookstore.resources.genre.max-age:PT1H}") final Duration maxAge) {
         this.genreRepository = genreRepository;
+        this.objectMapper = objectMapper;
+        this.maxAge = maxAge;
+    }
+
+    private record Snapshot(GenreCatalogDTO catalog, long builtAt) {
     }
 
     /**
@@ -26,4 +57,82 @@ public class ResourceService {
     public List<GenreDTO> getAllGenres() {
         return GenreDTO.mapEntitiesToDTOs(genreRepository.findAll());
     }
+
+    /**
+     * Method to get the max age of the genre snapshot, which is also how long a client may keep it.
+     *
+     * @return the max age.
+     */
+    @NonNull
+    public Duration getGenreMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Method to get the snapshot of all the genres, rebuilding it if it is older than the max age.
+     *
+     * @return the {@link GenreCatalogDTO}.
+     */
+    @NonNull
+    public GenreCatalogDTO getGenreCatalog() {
+        final Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.builtAt() < maxAge.toNanos()) {
+            return current.catalog();
+        }
+        return refreshGenreCatalog();
+    }
+
+    /**
+     * Method to rebuild the snapshot of all the genres from the database.
+     *
+     * @return the new {@link GenreCatalogDTO}, the previous instance if the genres did not change.
+     */
+    @NonNull
+    public synchronized GenreCatalogDTO refreshGenreCatalog() {
+        final Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.builtAt() < maxAge.toNanos()) {
+            // Another request rebuilt it while this one waited.
+            return current.catalog();
+        }
+        final List<GenreDTO> genres = genreRepository.findAllRows().stream().map(row -> {
+            final GenreDTO genre = new GenreDTO();
+            genre.setId(row.getId());
+            genre.setName(row.getName());
+            return genre;
+        }).toList();
+        final byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(genres);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Genres can not be serialized", e);
+        }
+        final GenreCatalogDTO catalog = current != null && Arrays.equals(current.catalog().json(), json)
+                ? current.catalog() : newCatalog(genres, json);
+        snapshot = new Snapshot(catalog, System.nanoTime());
+        return catalog;
+    }
+
+    private static GenreCatalogDTO newCatalog(List<GenreDTO> genres, byte[] json) {
+        final String hash = hash(json);
+        return new GenreCatalogDTO(genres, json, gzip(json), "\"" + hash + "\"", "\"" + hash + "-gz\"");
+    }
+
+    private static byte[] gzip(byte[] content) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(content.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -1,6 +1,6 @@
 package com.bookstore.service;
 
-import com.bookstore.repository.UserRepository;
+import com.bookstore.service.dto.TokenClaimsDTO;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,14 +13,18 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Filter authenticating the requests from their access token alone, the token carrying the role of the user. Only
+ * a token issued without the role looks the user up, through the cache of the {@link AuthService}.
+ */
 @Service
 public class SecurityFilter extends OncePerRequestFilter {
     private final TokenService tokenService;
-    private final UserRepository userRepository;
+    private final AuthService authService;
 
-    public SecurityFilter(TokenService tokenService, UserRepository userRepository) {
+    public SecurityFilter(TokenService tokenService, AuthService authService) {
         this.tokenService = tokenService;
-        this.userRepository = userRepository;
+        this.authService = authService;
     }
 
     @Override
@@ -28,11 +32,19 @@ public class SecurityFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         final String token = this.recoverToken(request);
         if (token != null) {
-            final String username = tokenService.validateToken(token);
-            final UserDetails user = userRepository.findByUsername(username);
-
-            final UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+            final TokenClaimsDTO claims = tokenService.verifyAccessToken(token);
+            final UsernamePasswordAuthenticationToken authentication;
+            if (claims.role() != null) {
+                authentication = new UsernamePasswordAuthenticationToken(claims.username(), null,
+                        claims.role().getAuthorities());
+            } else {
+                final UserDetails user = authService.getCachedUser(claims.username());
+                authentication = user == null ? null
+                        : new UsernamePasswordAuthenticationToken(user.getUsername(), null, user.getAuthorities());
+            }
+            if (authentication != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
         }
         filterChain.doFilter(request, response);
     }
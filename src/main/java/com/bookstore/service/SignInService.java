@@ -0,0 +1,87 @@
+package com.bookstore.service;
+
+import com.bookstore.repository.entity.Users;
+import com.bookstore.service.dto.JwtDTO;
+import com.bookstore.service.dto.SignInRequestDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+
+/**
+ * Service layer for the sign in, checking the passwords on a dedicated pool so a burst of sign ins can not take
+ * the request threads the catalog reads need.
+ * <p>
+ * A BCrypt check costs tens of milliseconds of CPU by design, so the pool has a few threads and a bounded queue:
+ * a sign in arriving when the queue is full is rejected at once instead of waiting. The queue is published as the
+ * {@code executor.*} metrics with the tag {@code name=signin}, the duration of the checks as the
+ * {@code auth.password.check} timer and the rejections as the {@code auth.signin.rejected} counter.
+ */
+@Service
+public class SignInService {
+    private final AuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
+    private final ThreadPoolExecutor executor;
+    private final Timer passwordCheckTimer;
+    private final Counter rejectedCounter;
+
+    public SignInService(AuthenticationManager authenticationManager, RefreshTokenService refreshTokenService,
+                         @Value("${security.signin.threads:2}") int threads,
+                         @Value("${security.signin.queue-capacity:64}") int queueCapacity,
+                         MeterRegistry meterRegistry) {
+        this.authenticationManager = authenticationManager;
+        this.refreshTokenService = refreshTokenService;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            final Thread thread = new Thread(runnable, "signin");
+            thread.setDaemon(true);
+            return thread;
+        });
+        new ExecutorServiceMetrics(executor, "signin", Tags.empty()).bindTo(meterRegistry);
+        this.passwordCheckTimer = Timer.builder("auth.password.check")
+                .description("Duration of the password checks of the sign ins")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.signin.rejected")
+                .description("Sign ins rejected because the password check queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Method to queue the check of the credentials of a user, who gets new tokens if they are valid.
+     *
+     * @param signInRequestDTO the credentials.
+     * @return the future {@link JwtDTO}, failing with an
+     * {@link org.springframework.security.core.AuthenticationException} if the credentials are invalid.
+     * @throws IllegalStateException if the queue of the password checks is full.
+     */
+    @NonNull
+    public CompletableFuture<JwtDTO> signIn(@NonNull final SignInRequestDTO signInRequestDTO) {
+        final UsernamePasswordAuthenticationToken usernamePassword =
+                new UsernamePasswordAuthenticationToken(signInRequestDTO.username(), signInRequestDTO.password());
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                final Authentication authUser = passwordCheckTimer.record(
+                        () -> authenticationManager.authenticate(usernamePassword));
+                return refreshTokenService.signIn((Users) authUser.getPrincipal());
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new IllegalStateException("Too many sign ins in progress", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
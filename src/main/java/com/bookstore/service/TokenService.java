@@ -1,43 +1,172 @@
 package com.bookstore.service;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.bookstore.repository.entity.Users;
+import com.bookstore.service.dto.TokenClaimsDTO;
+import com.bookstore.service.dto.UserRole;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 
 /**
  * Service layer for managing the tokens.
+ * <p>
+ * The access tokens carry the role of the user, so a request is authenticated from its token alone. A role change
+ * therefore applies to the tokens issued after it, the older ones keeping their role until they expire: the
+ * lifetime of the access tokens bounds how long a revoked role is still granted.
+ * <p>
+ * A client sends the same token until it expires, so the claims of the verified tokens are cached by the SHA-256
+ * hash of the token, each entry expiring with its token: a repeated token skips the signature check and the
+ * parsing. The cache is bounded in size and its hits, misses and evictions are published as the {@code cache.*}
+ * metrics with the tag {@code cache=access.tokens}.
  */
 @Service
 public class TokenService {
-    @Value("${security.jwt.token.secret-key}")
-    private String JWT_SECRET;
+    static final String ROLE_CLAIM = "role";
+
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+    private final Duration accessTokenTtl;
+    private final Cache<ByteBuffer, VerifiedToken> verifiedTokens;
+
+    public TokenService(@Value("${security.jwt.token.secret-key}") String jwtSecret,
+                        @Value("${security.jwt.token.access-ttl:PT15M}") Duration accessTokenTtl,
+                        @Value("${security.jwt.token.cache-size:10000}") long cacheSize,
+                        MeterRegistry meterRegistry) {
+        this.algorithm = Algorithm.HMAC256(jwtSecret);
+        this.verifier = JWT.require(algorithm).build();
+        this.accessTokenTtl = accessTokenTtl;
+        if (cacheSize <= 0) {
+            verifiedTokens = null;
+            return;
+        }
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<ByteBuffer, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer key, VerifiedToken value, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer key, VerifiedToken value, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer key, VerifiedToken value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "access.tokens");
+    }
+
+    /**
+     * The claims of a verified token and its expiration, null if it does not expire.
+     */
+    private record VerifiedToken(TokenClaimsDTO claims, @Nullable Instant expiresAt) {
+    }
 
     public String generateAccessToken(Users user) {
+        final UserRole role = user.getRole() == UserRole.ADMIN ? UserRole.ADMIN : UserRole.USER;
+        return generateAccessToken(user.getUsername(), role);
+    }
+
+    /**
+     * Method to generate an access token.
+     *
+     * @param username the username.
+     * @param role     the role of the user.
+     * @return the signed access token.
+     */
+    public String generateAccessToken(String username, UserRole role) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(JWT_SECRET);
-            return JWT.create().withSubject(user.getUsername()).withClaim("username", user.getUsername()).withExpiresAt(genAccessExpirationDate()).sign(algorithm);
+            return JWT.create().withSubject(username).withClaim("username", username)
+                    .withClaim(ROLE_CLAIM, role.name()).withExpiresAt(genAccessExpirationDate()).sign(algorithm);
         } catch (JWTCreationException exception) {
             throw new JWTCreationException("Error while generating token", exception);
         }
     }
 
     public String validateToken(String token) {
+        return verifyAccessToken(token).username();
+    }
+
+    /**
+     * Method to verify an access token and read its claims, from the cache if the token has already been verified.
+     *
+     * @param token the access token.
+     * @return the {@link TokenClaimsDTO}.
+     * @throws JWTVerificationException if the token is invalid or expired.
+     */
+    public TokenClaimsDTO verifyAccessToken(String token) {
+        if (verifiedTokens == null) {
+            return verify(token).claims();
+        }
+        final ByteBuffer key = hash(token);
+        final VerifiedToken cached = verifiedTokens.getIfPresent(key);
+        // The entry may outlive its token until the cache cleans it up.
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached.claims();
+        }
+        final VerifiedToken verified = verify(token);
+        // A token without expiration is verified every time.
+        if (verified.expiresAt() != null) {
+            verifiedTokens.put(key, verified);
+        }
+        return verified.claims();
+    }
+
+    private VerifiedToken verify(String token) {
+        final DecodedJWT jwt;
         try {
-            Algorithm algorithm = Algorithm.HMAC256(JWT_SECRET);
-            return JWT.require(algorithm).build().verify(token).getSubject();
+            jwt = verifier.verify(token);
         } catch (JWTVerificationException exception) {
             throw new JWTVerificationException("Error while validating token", exception);
         }
+        final String role = jwt.getClaim(ROLE_CLAIM).asString();
+        UserRole userRole = null;
+        if (role != null) {
+            try {
+                userRole = UserRole.valueOf(role);
+            } catch (IllegalArgumentException e) {
+                throw new JWTVerificationException("Unknown role " + role);
+            }
+        }
+        return new VerifiedToken(new TokenClaimsDTO(jwt.getSubject(), userRole), jwt.getExpiresAtAsInstant());
+    }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
     }
 
     private Instant genAccessExpirationDate() {
-        return Instant.now().plus(2, ChronoUnit.HOURS);
+        return Instant.now().plus(accessTokenTtl);
     }
 }
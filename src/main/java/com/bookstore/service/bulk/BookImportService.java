@@ -0,0 +1,305 @@
+package com.bookstore.service.bulk;
+
+import com.bookstore.repository.BookBulkRepository;
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.GenreDTO;
+import com.bookstore.service.dto.ImportJobDTO;
+import com.bookstore.service.event.BooksImportedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service for importing books in bulk from CSV or NDJSON files.
+ * <p>
+ * An import runs as a background job: the upload is saved to a temporary file and queued, and its progress is read
+ * with {@link #getJob}. The jobs run one at a time. The file is read record by record and written in batches of
+ * {@link #BATCH_SIZE} books, each in its own transaction: one round trip allocates the ids of the batch from the book
+ * sequence and the books and their links are sent as JDBC batches, so neither the entities nor the file are held in
+ * memory. The records which are malformed or refer to unknown authors or genres are rejected, the other ones are
+ * imported. If a batch fails, the job fails and the batches written before it stay imported.
+ * <p>
+ * The books are written without a {@link com.bookstore.service.event.BookChangedEvent} each; a
+ * {@link BooksImportedEvent} is published at the end of the job instead.
+ */
+@Service
+public class BookImportService {
+    private static final int BATCH_SIZE = 5000;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final int MAX_ERRORS = 20;
+    private static final int MAX_TITLE_LENGTH = 256;
+
+    private final BookBulkRepository bookBulkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+        final Thread thread = new Thread(runnable, "book-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Cache<UUID, ImportJob> jobs = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofDays(1))
+            .build();
+
+    public BookImportService(BookBulkRepository bookBulkRepository, TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
+        this.bookBulkRepository = bookBulkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Enum class representing the supported import file formats, told apart by the file extension.
+     */
+    private enum Format {
+        CSV,
+        NDJSON;
+
+        static Format of(@Nullable String filename) {
+            final String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Only .csv, .ndjson and .jsonl files can be imported");
+        }
+    }
+
+    /**
+     * Method to queue the import of the books of a file.
+     *
+     * @param filename the name of the file, its extension gives the format.
+     * @param content  the content of the file, read before the method returns.
+     * @return the queued job in {@link ImportJobDTO}.
+     * @throws IllegalArgumentException if the format is not supported.
+     * @throws IllegalStateException    if too many imports are queued.
+     * @throws IOException              if the file can not be saved.
+     */
+    @NonNull
+    public ImportJobDTO submit(@Nullable String filename, @NonNull InputStream content) throws IOException {
+        final Format format = Format.of(filename);
+        final Path file = Files.createTempFile("book-import-", "." + format.name().toLowerCase(Locale.ROOT));
+        try {
+            Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        final ImportJob job = new ImportJob(UUID.randomUUID());
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, file, format));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.id);
+            Files.deleteIfExists(file);
+            throw new IllegalStateException("Too many imports in progress", e);
+        }
+        return job.toDTO();
+    }
+
+    /**
+     * Method to get the progress of an import job.
+     *
+     * @param jobId the id of the job.
+     * @return the job in {@link ImportJobDTO}, null if there is no such job or it ended more than a day ago.
+     */
+    @Nullable
+    public ImportJobDTO getJob(UUID jobId) {
+        final ImportJob job = jobs.getIfPresent(jobId);
+        return job == null ? null : job.toDTO();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ImportJob job, Path file, Format format) {
+        job.status = ImportJobDTO.Status.RUNNING;
+        ImportJobDTO.Status status;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            status = read(job, reader, format);
+        } catch (IOException | RuntimeException e) {
+            job.error("Import failed: " + e.getMessage());
+            status = ImportJobDTO.Status.FAILED;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // The temporary file is left for the system to clean up.
+        }
+        // The listeners have reloaded the books by the time the job is seen as ended.
+        if (job.imported.get() > 0) {
+            eventPublisher.publishEvent(new BooksImportedEvent(job.imported.get()));
+        }
+        job.status = status;
+    }
+
+    private ImportJobDTO.Status read(ImportJob job, BufferedReader reader, Format format) throws IOException {
+        final BookRecordReader records;
+        try {
+            records = format == Format.CSV ? new CsvBookReader(reader) : new NdjsonBookReader(reader, objectMapper);
+        } catch (IllegalArgumentException e) {
+            // The header is malformed, none of the records can be read.
+            job.reject(1, e.getMessage());
+            return ImportJobDTO.Status.FAILED;
+        }
+        final List<BookDTO> batch = new ArrayList<>(BATCH_SIZE);
+        final List<Long> lines = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            final BookDTO book;
+            try {
+                book = records.next();
+            } catch (IllegalArgumentException e) {
+                job.reject(records.line(), e.getMessage());
+                continue;
+            }
+            if (book == null) {
+                break;
+            }
+            final String error = validate(book);
+            if (error != null) {
+                job.reject(records.line(), error);
+                continue;
+            }
+            batch.add(book);
+            lines.add(records.line());
+            if (batch.size() == BATCH_SIZE) {
+                write(job, batch, lines);
+                batch.clear();
+                lines.clear();
+            }
+        }
+        write(job, batch, lines);
+        return ImportJobDTO.Status.COMPLETED;
+    }
+
+    @Nullable
+    private static String validate(BookDTO book) {
+        if (book.getTitle() == null || book.getTitle().isBlank()) {
+            return "The title is required";
+        }
+        if (book.getTitle().length() > MAX_TITLE_LENGTH) {
+            return "The title is longer than " + MAX_TITLE_LENGTH + " characters";
+        }
+        // The authors and genres are linked by id, they are not created by the import.
+        if (book.getListOfAuthors() != null
+                && book.getListOfAuthors().stream().anyMatch(author -> author == null || author.getId() == null)) {
+            return "An author has no id";
+        }
+        if (book.getListOfGenres() != null
+                && book.getListOfGenres().stream().anyMatch(genre -> genre == null || genre.getId() == null)) {
+            return "A genre has no id";
+        }
+        return null;
+    }
+
+    /**
+     * Method to write a batch in one transaction, leaving out the books referring to unknown authors or genres.
+     */
+    private void write(ImportJob job, List<BookDTO> batch, List<Long> lines) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final Integer imported = transactionTemplate.execute(status -> {
+            final Set<Long> authorIds = new HashSet<>();
+            final Set<Integer> genreIds = new HashSet<>();
+            for (BookDTO book : batch) {
+                authorIds.addAll(authorIds(book));
+                genreIds.addAll(genreIds(book));
+            }
+            final Set<Long> existingAuthorIds = bookBulkRepository.findExistingAuthorIds(authorIds);
+            final Set<Integer> existingGenreIds = bookBulkRepository.findExistingGenreIds(genreIds);
+            final List<BookDTO> accepted = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                final BookDTO book = batch.get(i);
+                final Optional<Long> unknownAuthor = authorIds(book).stream()
+                        .filter(id -> !existingAuthorIds.contains(id)).findFirst();
+                final Optional<Integer> unknownGenre = genreIds(book).stream()
+                        .filter(id -> !existingGenreIds.contains(id)).findFirst();
+                if (unknownAuthor.isPresent()) {
+                    job.reject(lines.get(i), "Unknown author " + unknownAuthor.get());
+                } else if (unknownGenre.isPresent()) {
+                    job.reject(lines.get(i), "Unknown genre " + unknownGenre.get());
+                } else {
+                    accepted.add(book);
+                }
+            }
+            if (accepted.isEmpty()) {
+                return 0;
+            }
+            final long[] ids = bookBulkRepository.allocateIds(accepted.size());
+            for (int i = 0; i < ids.length; i++) {
+                accepted.get(i).setId(ids[i]);
+            }
+            bookBulkRepository.insertAll(accepted, Instant.now());
+            return accepted.size();
+        });
+        job.imported.addAndGet(imported == null ? 0 : imported);
+    }
+
+    private static List<Long> authorIds(BookDTO book) {
+        return book.getListOfAuthors() == null ? List.of()
+                : book.getListOfAuthors().stream().map(AuthorDTO::getId).filter(Objects::nonNull).toList();
+    }
+
+    private static List<Integer> genreIds(BookDTO book) {
+        return book.getListOfGenres() == null ? List.of()
+                : book.getListOfGenres().stream().map(GenreDTO::getId).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * The progress of an import, updated by the import thread and read by the requests.
+     */
+    private static final class ImportJob {
+        private final UUID id;
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<String> errors = new CopyOnWriteArrayList<>();
+        private volatile ImportJobDTO.Status status = ImportJobDTO.Status.QUEUED;
+
+        private ImportJob(UUID id) {
+            this.id = id;
+        }
+
+        void reject(long line, String reason) {
+            rejected.incrementAndGet();
+            error("Line " + line + ": " + reason);
+        }
+
+        void error(String message) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(message);
+            }
+        }
+
+        ImportJobDTO toDTO() {
+            return new ImportJobDTO(id, status, imported.get(), rejected.get(), List.copyOf(errors));
+        }
+    }
+}
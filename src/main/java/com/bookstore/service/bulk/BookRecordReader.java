@@ -0,0 +1,29 @@
+package com.bookstore.service.bulk;
+
+import com.bookstore.service.dto.BookDTO;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Streaming reader of the book records of an import file, one record at a time.
+ */
+interface BookRecordReader {
+
+    /**
+     * Method to read the next record. A malformed record is skipped, so the next call reads the one after it.
+     *
+     * @return the book of the record, without id, null at the end of the file.
+     * @throws IllegalArgumentException if the record is malformed.
+     * @throws IOException              if the file can not be read.
+     */
+    @Nullable
+    BookDTO next() throws IOException;
+
+    /**
+     * Method to get the line of the file where the last record read starts.
+     *
+     * @return the line, from 1.
+     */
+    long line();
+}
@@ -0,0 +1,162 @@
+package com.bookstore.service.bulk;
+
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.GenreDTO;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Reader of CSV import files (RFC 4180). The first record is the header naming the columns: {@code title} is
+ * required, {@code description}, {@code price}, {@code year}, {@code authorIds} and {@code genreIds} are optional,
+ * the ids being separated by {@code ;}. Quoted fields may contain commas, quotes and line breaks.
+ */
+final class CsvBookReader implements BookRecordReader {
+    private static final List<String> COLUMNS = List.of("title", "description", "price", "year", "authorids",
+            "genreids");
+
+    private final Reader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private long nextLine = 1;
+    private long line;
+
+    CsvBookReader(Reader reader) throws IOException {
+        this.reader = reader;
+        final List<String> header = readRecord();
+        if (header == null) {
+            return;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            final String column = header.get(i).strip().toLowerCase(Locale.ROOT);
+            if (COLUMNS.contains(column)) {
+                columns.putIfAbsent(column, i);
+            }
+        }
+        if (!columns.containsKey("title")) {
+            throw new IllegalArgumentException("The header has no title column");
+        }
+    }
+
+    @Override
+    @Nullable
+    public BookDTO next() throws IOException {
+        List<String> fields;
+        do {
+            fields = readRecord();
+        } while (fields != null && fields.size() == 1 && fields.get(0).isBlank());
+        if (fields == null) {
+            return null;
+        }
+        final BookDTO book = new BookDTO();
+        book.setTitle(field(fields, "title"));
+        book.setDescription(field(fields, "description"));
+        book.setPrice(parse(field(fields, "price"), "price", Double::valueOf));
+        book.setYear(parse(field(fields, "year"), "year", Integer::valueOf));
+        book.setListOfAuthors(ids(field(fields, "authorids"), "author id", id -> {
+            final AuthorDTO author = new AuthorDTO();
+            author.setId(Long.valueOf(id));
+            return author;
+        }));
+        book.setListOfGenres(ids(field(fields, "genreids"), "genre id", id -> {
+            final GenreDTO genre = new GenreDTO();
+            genre.setId(Integer.valueOf(id));
+            return genre;
+        }));
+        return book;
+    }
+
+    @Override
+    public long line() {
+        return line;
+    }
+
+    @Nullable
+    private String field(List<String> fields, String column) {
+        final Integer index = columns.get(column);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    @Nullable
+    private static <T> T parse(@Nullable String value, String name, Function<String, T> parser) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " '" + value + "'");
+        }
+    }
+
+    private static <T> Set<T> ids(@Nullable String value, String name, Function<String, T> parser) {
+        final Set<T> result = new HashSet<>();
+        if (value == null) {
+            return result;
+        }
+        for (String id : value.split(";")) {
+            if (!id.isBlank()) {
+                result.add(parse(id, name, parser));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method to read the fields of the next record, the whole record being consumed even if it is malformed.
+     *
+     * @return the fields, null at the end of the file.
+     */
+    @Nullable
+    private List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        line = nextLine;
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c != '"') {
+                        // The closing quote, the character after it is read as unquoted.
+                        quoted = false;
+                        continue;
+                    }
+                } else if (c == '\n') {
+                    nextLine++;
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\n' || c == -1) {
+                if (c == '\n') {
+                    nextLine++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+}
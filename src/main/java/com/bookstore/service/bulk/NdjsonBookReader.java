@@ -0,0 +1,52 @@
+package com.bookstore.service.bulk;
+
+import com.bookstore.service.dto.BookDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reader of NDJSON import files: one {@link BookDTO} per line, in the format of the catalog export, so an export can
+ * be imported back. The ids and the creation dates of the lines are ignored.
+ */
+final class NdjsonBookReader implements BookRecordReader {
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private long line;
+
+    NdjsonBookReader(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Nullable
+    public BookDTO next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+        } while (text != null && text.isBlank());
+        if (text == null) {
+            return null;
+        }
+        final BookDTO book;
+        try {
+            book = objectMapper.readValue(text, BookDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (book == null) {
+            throw new IllegalArgumentException("Invalid JSON: null");
+        }
+        return book;
+    }
+
+    @Override
+    public long line() {
+        return line;
+    }
+}
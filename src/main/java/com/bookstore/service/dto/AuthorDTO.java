@@ -17,6 +17,7 @@ public class AuthorDTO {
     private String name;
     @Nullable
     private String surname;
+    private Long version;
 
     public Long getId() {
         return id;
@@ -44,6 +45,14 @@ public class AuthorDTO {
         this.surname = surname;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Nullable
     public static AuthorDTO mapEntityToDTO(final Author entity) {
         if (entity == null)
@@ -52,6 +61,7 @@ public class AuthorDTO {
         dto.setId(entity.getId());
         dto.setName(entity.getName());
         dto.setSurname(entity.getSurname());
+        dto.setVersion(entity.getVersion());
         return dto;
     }
 
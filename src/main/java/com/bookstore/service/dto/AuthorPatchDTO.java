@@ -0,0 +1,69 @@
+package com.bookstore.service.dto;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Data transfer object for a partial update of the Author: only the properties present in the request are set.
+ */
+public class AuthorPatchDTO {
+    public static final String NAME = "name";
+    public static final String SURNAME = "surname";
+
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+
+    public void setName(@Nullable String name) {
+        fields.put(NAME, name);
+    }
+
+    public void setSurname(@Nullable String surname) {
+        fields.put(SURNAME, surname);
+    }
+
+    /**
+     * Method to get the properties to set, by name.
+     *
+     * @return the properties present in the request, in request order.
+     */
+    @NonNull
+    public Map<String, Object> fields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return fields.equals(((AuthorPatchDTO) o).fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return fields.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "AuthorPatchDTO{" +
+                "fields=" + fields +
+                '}';
+    }
+
+    /**
+     * Method to get the patch replacing all the details of an author, as a full update does.
+     *
+     * @param dto the new details of the author.
+     * @return the {@link AuthorPatchDTO}.
+     */
+    @NonNull
+    public static AuthorPatchDTO mapDTOToPatch(@NonNull final AuthorDTO dto) {
+        final AuthorPatchDTO patch = new AuthorPatchDTO();
+        patch.setName(dto.getName());
+        patch.setSurname(dto.getSurname());
+        return patch;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bookstore.service.dto;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * A Data transfer object class for one operation of a batch edit.
+ *
+ * @param operation the operation.
+ * @param id        the id of the edited item, ignored when creating.
+ * @param item      the details of the item, ignored when deleting.
+ * @param <T>       the type of the item.
+ */
+public record BatchOperationDTO<T>(Operation operation, @Nullable Long id, @Nullable T item) {
+
+    /**
+     * Enum class representing the operations of a batch edit.
+     */
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+}
@@ -0,0 +1,22 @@
+package com.bookstore.service.dto;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * A Data transfer object class for the result of one operation of a batch edit.
+ *
+ * @param index  the position of the operation in the batch.
+ * @param id     the id of the item, the new one when created.
+ * @param status the http status the operation would have had on its own: 200, 201, 400 or 404.
+ * @param error  the reason of the failure, null if the operation succeeded.
+ */
+public record BatchResultDTO(int index, @Nullable Long id, int status, @Nullable String error) {
+
+    public static BatchResultDTO success(int index, Long id, int status) {
+        return new BatchResultDTO(index, id, status, null);
+    }
+
+    public static BatchResultDTO failure(int index, @Nullable Long id, int status, String error) {
+        return new BatchResultDTO(index, id, status, error);
+    }
+}
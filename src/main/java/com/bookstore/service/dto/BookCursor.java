@@ -0,0 +1,54 @@
+package com.bookstore.service.dto;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a keyset paginated book listing: the sort the listing uses and the sort key value and id of the
+ * last book returned. Clients receive it as an opaque string.
+ */
+public record BookCursor(String property, Sort.Direction direction, @Nullable String key, Long id) {
+    private static final String SEPARATOR = "\n";
+    private static final String NULL_KEY = "~";
+    private static final String KEY_PREFIX = "=";
+
+    @NonNull
+    public String encode() {
+        final String raw = property + SEPARATOR + direction + SEPARATOR + id + SEPARATOR
+                + (key == null ? NULL_KEY : KEY_PREFIX + key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Method to read a cursor from its string form.
+     *
+     * @param cursor the string form returned by {@link #encode()}.
+     * @return the {@link BookCursor}.
+     * @throws IllegalArgumentException if the string is not a valid cursor.
+     */
+    @NonNull
+    public static BookCursor decode(@NonNull String cursor) {
+        final String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        // The key goes last since it is the only part which may contain the separator.
+        final String[] parts = raw.split(SEPARATOR, 4);
+        if (parts.length != 4 || !(parts[3].equals(NULL_KEY) || parts[3].startsWith(KEY_PREFIX))) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            return new BookCursor(parts[0], Sort.Direction.fromString(parts[1]),
+                    parts[3].equals(NULL_KEY) ? null : parts[3].substring(KEY_PREFIX.length()),
+                    Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
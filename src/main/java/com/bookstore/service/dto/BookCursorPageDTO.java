@@ -0,0 +1,12 @@
+package com.bookstore.service.dto;
+
+import java.util.List;
+
+/**
+ * A Data transfer object class for a keyset paginated page of books.
+ *
+ * @param items the books of the page.
+ * @param next  the cursor of the next page, null if this is the last page.
+ */
+public record BookCursorPageDTO(List<BookDTO> items, String next) {
+}
@@ -22,6 +22,7 @@ public class BookDTO {
     private Integer year;
     @NonNull
     private Instant creationDate;
+    private Long version;
 
     private Set<GenreDTO> listOfGenres;
     private Set<AuthorDTO> listOfAuthors;
@@ -79,6 +80,14 @@ public class BookDTO {
         this.creationDate = creationDate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Set<GenreDTO> getListOfGenres() {
         return listOfGenres;
     }
@@ -131,6 +140,7 @@ public class BookDTO {
         dto.setYear(entity.getYear());
         dto.setPrice(entity.getPrice());
         dto.setCreationDate(entity.getCreationDate());
+        dto.setVersion(entity.getVersion());
         dto.setListOfAuthors(new HashSet<>(AuthorDTO.mapEntitiesToDTOs(entity.getListOfAuthors())));
         dto.setListOfGenres(new HashSet<>(GenreDTO.mapEntitiesToDTOs(entity.getListOfGenres())));
         return dto;
@@ -0,0 +1,12 @@
+package com.bookstore.service.dto;
+
+import java.util.List;
+
+/**
+ * A Data transfer object class for the book counts per genre and per author of a search, ordered by count.
+ *
+ * @param genres  the counts of all the genres having matching books.
+ * @param authors the counts of the top authors having matching books.
+ */
+public record BookFacetsDTO(List<FacetCountDTO> genres, List<FacetCountDTO> authors) {
+}
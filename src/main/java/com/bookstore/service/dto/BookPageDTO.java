@@ -0,0 +1,19 @@
+package com.bookstore.service.dto;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * A Data transfer object class for a page of books with its paging metadata.
+ *
+ * @param items      the books of the page.
+ * @param total      the total number of matching books, null if the count was not requested.
+ * @param page       the page number.
+ * @param size       the page size.
+ * @param hasNext    whether there are more books after this page.
+ * @param didYouMean the corrected title of a fuzzy search, null if there is nothing to correct.
+ */
+public record BookPageDTO(List<BookDTO> items, Long total, int page, int size, boolean hasNext,
+                          @Nullable String didYouMean) {
+}
@@ -0,0 +1,130 @@
+package com.bookstore.service.dto;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Data transfer object for a partial update of the Book: only the properties present in the request are set, so a
+ * property set to null is cleared while an absent one is left as it is.
+ */
+public class BookPatchDTO {
+    public static final String TITLE = "title";
+    public static final String DESCRIPTION = "description";
+    public static final String PRICE = "price";
+    public static final String YEAR = "year";
+
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    @Nullable
+    private Set<Long> authorIds;
+    @Nullable
+    private Set<Integer> genreIds;
+
+    public void setTitle(@Nullable String title) {
+        fields.put(TITLE, title);
+    }
+
+    public void setDescription(@Nullable String description) {
+        fields.put(DESCRIPTION, description);
+    }
+
+    public void setPrice(@Nullable Double price) {
+        fields.put(PRICE, price);
+    }
+
+    public void setYear(@Nullable Integer year) {
+        fields.put(YEAR, year);
+    }
+
+    public void setListOfAuthors(@Nullable Set<AuthorDTO> listOfAuthors) {
+        authorIds = listOfAuthors == null ? Set.of() : listOfAuthors.stream().map(AuthorDTO::getId)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    public void setListOfGenres(@Nullable Set<GenreDTO> listOfGenres) {
+        genreIds = listOfGenres == null ? Set.of() : listOfGenres.stream().map(GenreDTO::getId)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    /**
+     * Method to get the properties to set, by name.
+     *
+     * @return the properties present in the request, in request order.
+     */
+    @NonNull
+    public Map<String, Object> fields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Method to get the ids of the authors the book must have.
+     *
+     * @return the ids, null if the authors are left as they are.
+     */
+    @Nullable
+    public Set<Long> authorIds() {
+        return authorIds;
+    }
+
+    /**
+     * Method to get the ids of the genres the book must have.
+     *
+     * @return the ids, null if the genres are left as they are.
+     */
+    @Nullable
+    public Set<Integer> genreIds() {
+        return genreIds;
+    }
+
+    /**
+     * Method to check whether the patch changes nothing.
+     *
+     * @return true if no property is present.
+     */
+    public boolean isEmpty() {
+        return fields.isEmpty() && authorIds == null && genreIds == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookPatchDTO that = (BookPatchDTO) o;
+        return fields.equals(that.fields) && Objects.equals(authorIds, that.authorIds)
+                && Objects.equals(genreIds, that.genreIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fields, authorIds, genreIds);
+    }
+
+    @Override
+    public String toString() {
+        return "BookPatchDTO{" +
+                "fields=" + fields +
+                ", authorIds=" + authorIds +
+                ", genreIds=" + genreIds +
+                '}';
+    }
+
+    /**
+     * Method to get the patch replacing all the details of a book, as a full update does.
+     *
+     * @param dto the new details of the book.
+     * @return the {@link BookPatchDTO}.
+     */
+    @NonNull
+    public static BookPatchDTO mapDTOToPatch(@NonNull final BookDTO dto) {
+        final BookPatchDTO patch = new BookPatchDTO();
+        patch.setTitle(dto.getTitle());
+        patch.setDescription(dto.getDescription());
+        patch.setPrice(dto.getPrice());
+        patch.setYear(dto.getYear());
+        patch.setListOfAuthors(dto.getListOfAuthors());
+        patch.setListOfGenres(dto.getListOfGenres());
+        return patch;
+    }
+}
@@ -1,14 +1,24 @@
 package com.bookstore.service.dto;
 
+import com.bookstore.repository.BookFilter;
+import org.springframework.lang.NonNull;
+
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Data transfer object for the Book search functionality.
  */
 public class BookSearchDTO {
     private String title;
+    private TitleMatch titleMatch;
+    private Boolean fuzzy;
     private List<Long> authorIds;
     private List<Integer> genreIds;
+    private Double minPrice;
+    private Double maxPrice;
+    private Integer minYear;
+    private Integer maxYear;
 
     public String getTitle() {
         return title;
@@ -18,6 +28,25 @@ public class BookSearchDTO {
         this.title = title;
     }
 
+    public TitleMatch getTitleMatch() {
+        return titleMatch;
+    }
+
+    public void setTitleMatch(TitleMatch titleMatch) {
+        this.titleMatch = titleMatch;
+    }
+
+    /**
+     * Whether the title should be matched typo-tolerantly, a shorthand for {@link TitleMatch#FUZZY}.
+     */
+    public Boolean getFuzzy() {
+        return fuzzy;
+    }
+
+    public void setFuzzy(Boolean fuzzy) {
+        this.fuzzy = fuzzy;
+    }
+
     public List<Long> getAuthorIds() {
         return authorIds;
     }
@@ -33,4 +62,66 @@ public class BookSearchDTO {
     public void setGenreIds(List<Integer> genreIds) {
         this.genreIds = genreIds;
     }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Integer getMinYear() {
+        return minYear;
+    }
+
+    public void setMinYear(Integer minYear) {
+        this.minYear = minYear;
+    }
+
+    public Integer getMaxYear() {
+        return maxYear;
+    }
+
+    public void setMaxYear(Integer maxYear) {
+        this.maxYear = maxYear;
+    }
+
+    /**
+     * Method to map the search dto to the canonical filter: the title trimmed, the id lists sorted and without
+     * duplicates, so equivalent searches get equal filters.
+     *
+     * @param dto the search dto.
+     * @return the {@link BookFilter}.
+     */
+    @NonNull
+    public static BookFilter mapDTOToFilter(final BookSearchDTO dto) {
+        final BookFilter filter = new BookFilter();
+        if (dto == null)
+            return filter;
+        filter.setTitle(dto.getTitle() == null ? null : dto.getTitle().trim());
+        if (dto.getTitleMatch() != null)
+            filter.setTitleMatch(dto.getTitleMatch());
+        if (Boolean.TRUE.equals(dto.getFuzzy()))
+            filter.setTitleMatch(TitleMatch.FUZZY);
+        filter.setAuthorIds(canonical(dto.getAuthorIds()));
+        filter.setGenreIds(canonical(dto.getGenreIds()));
+        filter.setMinPrice(dto.getMinPrice());
+        filter.setMaxPrice(dto.getMaxPrice());
+        filter.setMinYear(dto.getMinYear());
+        filter.setMaxYear(dto.getMaxYear());
+        return filter;
+    }
+
+    private static <T extends Comparable<T>> List<T> canonical(final List<T> ids) {
+        return ids == null ? null : ids.stream().filter(Objects::nonNull).distinct().sorted().toList();
+    }
 }
@@ -0,0 +1,35 @@
+package com.bookstore.service.dto;
+
+import com.bookstore.repository.TableEstimateView;
+import org.springframework.lang.Nullable;
+
+/**
+ * A Data transfer object class for a count which may be approximate.
+ *
+ * @param count      the count.
+ * @param exact      whether the count is exact.
+ * @param errorBound the max difference between the count and the exact count, 0 if the count is exact.
+ */
+public record CountDTO(long count, boolean exact, long errorBound) {
+
+    public static CountDTO exact(final long count) {
+        return new CountDTO(count, true, 0);
+    }
+
+    /**
+     * Method to map the planner statistics of a table to an approximate count of its rows. The statistics are
+     * refreshed by autovacuum once more than {@code scale factor * rows + threshold} rows have changed, so that is
+     * the error bound as long as autovacuum keeps up.
+     *
+     * @param estimate the planner statistics.
+     * @return the approximate count, null if the table has never been analyzed.
+     */
+    @Nullable
+    public static CountDTO mapEstimateToDTO(final TableEstimateView estimate) {
+        if (estimate == null || estimate.getRows() == null || estimate.getRows() < 0) {
+            return null;
+        }
+        final long count = Math.round(estimate.getRows());
+        return new CountDTO(count, false, (long) Math.ceil(count * estimate.getScaleFactor()) + estimate.getThreshold());
+    }
+}
@@ -0,0 +1,10 @@
+package com.bookstore.service.dto;
+
+/**
+ * A Data transfer object class for the number of books of a genre or an author.
+ *
+ * @param id    the id of the genre or the author.
+ * @param count the number of matching books.
+ */
+public record FacetCountDTO(Long id, long count) {
+}
@@ -0,0 +1,18 @@
+package com.bookstore.service.dto;
+
+import java.util.List;
+
+/**
+ * A Data transfer object class for an immutable snapshot of the genres, with the response body serialized ahead of
+ * time.
+ *
+ * @param genres      the genres.
+ * @param json        the genres serialized as a JSON array.
+ * @param gzippedJson the gzip-compressed JSON array.
+ * @param eTag        the strong entity tag of the JSON array, derived from its content.
+ * @param gzippedETag the strong entity tag of the gzip-compressed JSON array, which must differ from the one of the
+ *                    uncompressed array.
+ */
+public record GenreCatalogDTO(List<GenreDTO> genres, byte[] json, byte[] gzippedJson, String eTag,
+                              String gzippedETag) {
+}
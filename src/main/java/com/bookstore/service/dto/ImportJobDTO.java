@@ -0,0 +1,26 @@
+package com.bookstore.service.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A Data transfer object class for the state of a bulk book import.
+ *
+ * @param id       the id of the import job.
+ * @param status   the status of the job.
+ * @param imported the number of books imported so far.
+ * @param rejected the number of records rejected so far.
+ * @param errors   the first errors, with the line of the record they come from.
+ */
+public record ImportJobDTO(UUID id, Status status, long imported, long rejected, List<String> errors) {
+
+    /**
+     * Enum class representing the status of an import job.
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
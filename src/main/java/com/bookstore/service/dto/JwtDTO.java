@@ -2,6 +2,9 @@ package com.bookstore.service.dto;
 
 /**
  * A Data transfer object class for JWT token information.
+ *
+ * @param accessToken  the access token.
+ * @param refreshToken the opaque refresh token, exchanged once for new tokens.
  */
-public record JwtDTO(String accessToken) {
+public record JwtDTO(String accessToken, String refreshToken) {
 }
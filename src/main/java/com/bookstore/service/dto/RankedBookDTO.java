@@ -0,0 +1,10 @@
+package com.bookstore.service.dto;
+
+/**
+ * A Data transfer object class for a book of a relevance-ranked search.
+ *
+ * @param book  the book.
+ * @param score the relevance score of the book for the query, higher is better.
+ */
+public record RankedBookDTO(BookDTO book, double score) {
+}
@@ -0,0 +1,14 @@
+package com.bookstore.service.dto;
+
+import java.util.List;
+
+/**
+ * A Data transfer object class for a page of a relevance-ranked search.
+ *
+ * @param items   the books of the page, by relevance descending.
+ * @param page    the page number.
+ * @param size    the page size.
+ * @param hasNext whether there are more books after this page.
+ */
+public record RankedBookPageDTO(List<RankedBookDTO> items, int page, int size, boolean hasNext) {
+}
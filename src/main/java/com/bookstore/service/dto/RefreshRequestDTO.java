@@ -0,0 +1,7 @@
+package com.bookstore.service.dto;
+
+/**
+ * A Data transfer object class for the refresh and sign out requests.
+ */
+public record RefreshRequestDTO(String refreshToken) {
+}
@@ -0,0 +1,17 @@
+package com.bookstore.service.dto;
+
+/**
+ * A Data transfer object class for a completion of the search box.
+ *
+ * @param type   whether the completion is a book title or an author name.
+ * @param id     the id of the book or the author.
+ * @param text   the title or the full name of the author.
+ * @param weight the popularity weight the completions are ranked by.
+ */
+public record SuggestionDTO(Type type, Long id, String text, long weight) {
+
+    public enum Type {
+        BOOK,
+        AUTHOR
+    }
+}
@@ -0,0 +1,19 @@
+package com.bookstore.service.dto;
+
+/**
+ * Enum class representing how the title of a book search is matched.
+ */
+public enum TitleMatch {
+    /**
+     * The title contains the searched text, case-insensitive. Backed by a trigram index.
+     */
+    SUBSTRING,
+    /**
+     * The title contains all the searched words. Backed by a full-text index.
+     */
+    WORDS,
+    /**
+     * Every searched word is in the title up to a typo or two, case-insensitive. Backed by a trigram index.
+     */
+    FUZZY
+}
@@ -0,0 +1,12 @@
+package com.bookstore.service.dto;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * A Data transfer object class for the claims of a verified access token.
+ *
+ * @param username the username, subject of the token.
+ * @param role     the role of the user when the token was issued, null for a token issued without it.
+ */
+public record TokenClaimsDTO(String username, @Nullable UserRole role) {
+}
@@ -1,5 +1,10 @@
 package com.bookstore.service.dto;
 
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
 /**
  * Enum class representing the user roles.
  */
@@ -16,4 +21,16 @@ public enum UserRole {
     public String getValue() {
         return role;
     }
-}
\ No newline at end of file
+
+    /**
+     * Method to get the authorities granted by the role.
+     *
+     * @return the list of {@link GrantedAuthority}.
+     */
+    public List<GrantedAuthority> getAuthorities() {
+        if (this == ADMIN) {
+            return List.of(new SimpleGrantedAuthority("ROLE_ADMIN"), new SimpleGrantedAuthority("ROLE_USER"));
+        }
+        return List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.bookstore.service.event;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Helper publishing the change events of a transaction once it commits, so the listeners never see the changes of
+ * a transaction which rolls back.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Method to publish the events after the commit of the current transaction, right away if there is none.
+     *
+     * @param eventPublisher the event publisher.
+     * @param events         the events, in publication order.
+     */
+    public static void publish(ApplicationEventPublisher eventPublisher, List<?> events) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            events.forEach(eventPublisher::publishEvent);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                events.forEach(eventPublisher::publishEvent);
+            }
+        });
+    }
+}
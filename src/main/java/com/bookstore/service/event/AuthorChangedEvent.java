@@ -0,0 +1,13 @@
+package com.bookstore.service.event;
+
+import com.bookstore.service.dto.AuthorDTO;
+import org.springframework.lang.Nullable;
+
+/**
+ * Event published by the author service after an author has been created, updated or deleted.
+ *
+ * @param authorId the id of the changed author.
+ * @param author   the author as it is stored now, null if the author has been deleted.
+ */
+public record AuthorChangedEvent(Long authorId, @Nullable AuthorDTO author) {
+}
@@ -0,0 +1,14 @@
+package com.bookstore.service.event;
+
+import com.bookstore.service.dto.BookDTO;
+import org.springframework.lang.Nullable;
+
+/**
+ * Event published by the book service after a book has been created, updated or deleted.
+ *
+ * @param bookId   the id of the changed book.
+ * @param previous the book as it was stored before the change, null if the book has been created.
+ * @param book     the book as it is stored now, null if the book has been deleted.
+ */
+public record BookChangedEvent(Long bookId, @Nullable BookDTO previous, @Nullable BookDTO book) {
+}
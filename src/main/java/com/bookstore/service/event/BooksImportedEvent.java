@@ -0,0 +1,10 @@
+package com.bookstore.service.event;
+
+/**
+ * Event published after a bulk import has written books directly to the database, without a
+ * {@link BookChangedEvent} per book. The listeners reload whatever they derive from the books.
+ *
+ * @param count the number of imported books.
+ */
+public record BooksImportedEvent(long count) {
+}
@@ -0,0 +1,181 @@
+package com.bookstore.service.read;
+
+import com.bookstore.repository.BookReadRepository;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.event.AuthorChangedEvent;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.event.BooksImportedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Denormalized read model of the books, serving the book reads from the {@code book_read} table while the writes
+ * keep using the normalized entities.
+ * <p>
+ * The table is rebuilt when the application starts, since it is not maintained while the model is disabled, and
+ * then refreshed row by row on every book and author change, before any other listener runs, so the search cache is
+ * never refilled from a stale row. The refreshes run from the start, so a write made while the table is rebuilt is
+ * not lost.
+ * <p>
+ * The refreshes run once the write is committed, each in its own transaction. A failed refresh can not fail the
+ * write, so the model is then marked stale: the books are read from the normalized tables while the whole table is
+ * rebuilt on a background thread, the refreshes of the later changes going on meanwhile. A failed rebuild is tried
+ * again on the next change.
+ */
+@Service
+public class BookReadModel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookReadModel.class);
+
+    private final BookReadRepository bookReadRepository;
+    private final boolean enabled;
+    // One rebuild waits at most, covering all the failures before it starts, the others being discarded.
+    private final ThreadPoolExecutor rebuildExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), runnable -> {
+        final Thread thread = new Thread(runnable, "read-model-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    }, new ThreadPoolExecutor.DiscardPolicy());
+    private volatile boolean ready;
+    // Guarded by this, so a failure can not be missed by a rebuild starting or finishing at the same time.
+    private boolean stale;
+    private boolean rebuildQueued;
+
+    public BookReadModel(BookReadRepository bookReadRepository,
+                         @Value("${bookstore.read-model.enabled:false}") boolean enabled) {
+        this.bookReadRepository = bookReadRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Method to check whether the read model is enabled and built, so books can be read from it.
+     *
+     * @return true if the read model is ready.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Method to build the read model from the normalized tables.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            stale = false;
+            rebuildQueued = false;
+        }
+        try {
+            bookReadRepository.rebuild();
+        } catch (RuntimeException e) {
+            markStale();
+            throw e;
+        }
+        synchronized (this) {
+            ready = !stale;
+        }
+    }
+
+    /**
+     * Method to get the books with the given ids.
+     *
+     * @param ids the ids of the books.
+     * @return the list of {@link BookDTO} in the order of the ids, the missing books left out.
+     * @throws IllegalStateException if the read model is not ready.
+     */
+    @NonNull
+    public List<BookDTO> findAllByIdIn(@NonNull List<Long> ids) {
+        if (!ready) {
+            throw new IllegalStateException("Read model is not ready");
+        }
+        final Map<Long, BookDTO> books = new HashMap<>();
+        for (BookDTO book : bookReadRepository.findAllByIdIn(ids)) {
+            books.put(book.getId(), book);
+        }
+        return ids.stream().map(books::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Method to get the book with the given id.
+     *
+     * @param id the id of the book.
+     * @return the {@link BookDTO}, null if there is no such book.
+     * @throws IllegalStateException if the read model is not ready.
+     */
+    @Nullable
+    public BookDTO findById(@NonNull Long id) {
+        final List<BookDTO> books = findAllByIdIn(List.of(id));
+        return books.isEmpty() ? null : books.get(0);
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBookChanged(BookChangedEvent event) {
+        refresh(() -> bookReadRepository.refresh(List.of(event.bookId())));
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        refresh(() -> bookReadRepository.refreshByAuthor(event.authorId()));
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBooksImported(BooksImportedEvent event) {
+        refresh(bookReadRepository::refreshMissing);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void refresh(Runnable refresh) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            refresh.run();
+        } catch (RuntimeException e) {
+            // The write is committed, only the read model is behind it.
+            LOGGER.warn("Read model refresh failed, reading the books from the normalized tables", e);
+            markStale();
+        }
+        final boolean rebuild;
+        synchronized (this) {
+            rebuild = stale && !rebuildQueued;
+            rebuildQueued |= rebuild;
+        }
+        if (rebuild) {
+            rebuildExecutor.execute(() -> {
+                try {
+                    build();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Read model rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    private synchronized void markStale() {
+        stale = true;
+        ready = false;
+    }
+}
@@ -0,0 +1,180 @@
+package com.bookstore.service.search;
+
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.BookPageDTO;
+import com.bookstore.service.dto.GenreDTO;
+import com.bookstore.service.dto.TitleMatch;
+import com.bookstore.service.event.AuthorChangedEvent;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.event.BooksImportedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the book search results and counts.
+ * <p>
+ * The size is bounded by the total number of cached books (a count weighs 1) and the eviction is frequency aware
+ * (W-TinyLFU), so a burst of one-off searches does not push out the popular ones. A write only invalidates the
+ * entries whose criteria the changed book matched before or after the change; an author write only the entries
+ * filtering by the author or showing one of its books; a bulk import all of them. Hits, misses and evictions are published as the
+ * {@code cache.*} metrics with the tag {@code cache=book.search}.
+ * <p>
+ * A load in progress is not seen by an invalidation, so a search which read the rows before a write could store its
+ * result after the write invalidated the entries. Every invalidation therefore bumps a generation, and a result
+ * loaded while the generation changed is dropped after being returned. The entries also expire after a time to
+ * live, which bounds how long any result missed this way can be served.
+ */
+@Service
+public class BookSearchCache {
+    private final Cache<BookSearchKey, Object> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public BookSearchCache(@Value("${bookstore.search.cache.max-weight:0}") long maxWeight,
+                           @Value("${bookstore.search.cache.ttl:PT10M}") Duration ttl,
+                           MeterRegistry meterRegistry) {
+        if (maxWeight <= 0) {
+            cache = null;
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((BookSearchKey key, Object value) -> weigh(value))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "book.search");
+    }
+
+    /**
+     * Method to get the cached result of a search, loading it on a miss. Concurrent misses of the same key load it
+     * once.
+     *
+     * @param key    the key of the search.
+     * @param loader the loader of the result.
+     * @param <T>    the type of the result.
+     * @return the result.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(BookSearchKey key, Supplier<T> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+        final long loadGeneration = generation.get();
+        final Object value = cache.get(key, k -> loader.get());
+        if (generation.get() != loadGeneration) {
+            // A write may have invalidated the entries while the result was loaded from the old rows.
+            cache.asMap().remove(key, value);
+        }
+        return (T) value;
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (cache == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> matches(key, event.previous()) || matches(key, event.book()));
+    }
+
+    @EventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        if (cache == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.asMap().entrySet().removeIf(entry ->
+                entry.getKey().authorIds() != null && entry.getKey().authorIds().contains(event.authorId())
+                        || showsAuthor(entry.getValue(), event.authorId()));
+    }
+
+    @EventListener
+    public void onBooksImported(BooksImportedEvent event) {
+        if (cache == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Method to check whether the book may match the criteria of the key. It may answer true for a book which
+     * does not match, which only costs an extra invalidation, but never false for a book which matches.
+     */
+    private static boolean matches(BookSearchKey key, @Nullable BookDTO book) {
+        if (book == null) {
+            return false;
+        }
+        if (key.title() != null) {
+            final String title = book.getTitle() == null ? "" : book.getTitle().toLowerCase(Locale.ROOT);
+            if (key.titleMatch() == TitleMatch.FUZZY) {
+                // The tolerated typos make any title a possible match.
+                return true;
+            } else if (key.titleMatch() == TitleMatch.WORDS) {
+                // Every word of the full-text query is at least a substring of a matching title.
+                for (String word : key.title().split("\\W+")) {
+                    if (!title.contains(word)) {
+                        return false;
+                    }
+                }
+            } else if (!title.contains(key.title())) {
+                return false;
+            }
+        }
+        if (!inRange(book.getPrice(), key.minPrice(), key.maxPrice())
+                || !inRange(book.getYear(), key.minYear(), key.maxYear())) {
+            return false;
+        }
+        if (key.authorIds() != null && (book.getListOfAuthors() == null
+                || book.getListOfAuthors().stream().map(AuthorDTO::getId).noneMatch(key.authorIds()::contains))) {
+            return false;
+        }
+        return key.genreIds() == null || book.getListOfGenres() != null
+                && book.getListOfGenres().stream().map(GenreDTO::getId).anyMatch(key.genreIds()::contains);
+    }
+
+    private static <T extends Comparable<T>> boolean inRange(@Nullable T value, @Nullable T min, @Nullable T max) {
+        if (min == null && max == null) {
+            return true;
+        }
+        return value != null && (min == null || value.compareTo(min) >= 0) && (max == null || value.compareTo(max) <= 0);
+    }
+
+    private static boolean showsAuthor(Object value, Long authorId) {
+        return books(value).stream()
+                .map(BookDTO::getListOfAuthors)
+                .filter(Objects::nonNull)
+                .flatMap(Collection::stream)
+                .anyMatch(author -> authorId.equals(author.getId()));
+    }
+
+    private static int weigh(Object value) {
+        return 1 + books(value).size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<BookDTO> books(Object value) {
+        if (value instanceof BookPageDTO page) {
+            return page.items();
+        }
+        if (value instanceof List<?> list) {
+            return (List<BookDTO>) list;
+        }
+        return List.of();
+    }
+}
@@ -0,0 +1,53 @@
+package com.bookstore.service.search;
+
+import com.bookstore.repository.BookFilter;
+import com.bookstore.service.dto.TitleMatch;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Key of a cached book search, built from the canonical {@link BookFilter} so that equivalent searches share an
+ * entry.
+ *
+ * @param operation  the service operation the result belongs to.
+ * @param title      the lowercase title criteria, null if there is none.
+ * @param titleMatch the title match mode, null if there is no title criteria.
+ * @param authorIds  the sorted author ids, null if there is no author criteria.
+ * @param genreIds   the sorted genre ids, null if there is no genre criteria.
+ * @param minPrice   the min price, null if there is no lower price bound.
+ * @param maxPrice   the max price, null if there is no upper price bound.
+ * @param minYear    the min year, null if there is no lower year bound.
+ * @param maxYear    the max year, null if there is no upper year bound.
+ * @param page       the page number, 0 for counts.
+ * @param size       the page size, 0 for counts.
+ * @param sort       the sort, empty for counts.
+ */
+public record BookSearchKey(String operation, @Nullable String title, @Nullable TitleMatch titleMatch,
+                            @Nullable List<Long> authorIds, @Nullable List<Integer> genreIds,
+                            @Nullable Double minPrice, @Nullable Double maxPrice,
+                            @Nullable Integer minYear, @Nullable Integer maxYear,
+                            int page, int size, String sort) {
+
+    /**
+     * Method to build the key of a search.
+     *
+     * @param operation the service operation.
+     * @param filter    the canonical filter, before any index has resolved it.
+     * @param pageable  the pageable object, null for counts.
+     * @return the {@link BookSearchKey}.
+     */
+    public static BookSearchKey of(final String operation, final BookFilter filter, @Nullable final Pageable pageable) {
+        return new BookSearchKey(operation,
+                filter.hasTitle() ? filter.getTitle().toLowerCase(Locale.ROOT) : null,
+                filter.hasTitle() ? filter.getTitleMatch() : null,
+                filter.hasAuthorIds() ? filter.getAuthorIds() : null,
+                filter.hasGenreIds() ? filter.getGenreIds() : null,
+                filter.getMinPrice(), filter.getMaxPrice(), filter.getMinYear(), filter.getMaxYear(),
+                pageable == null ? 0 : pageable.getPageNumber(),
+                pageable == null ? 0 : pageable.getPageSize(),
+                pageable == null ? "" : pageable.getSort().toString());
+    }
+}
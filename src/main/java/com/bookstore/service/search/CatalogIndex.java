@@ -0,0 +1,505 @@
+package com.bookstore.service.search;
+
+import com.bookstore.repository.BookCatalogView;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.BookSortKey;
+import com.bookstore.repository.entity.Book;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.event.BooksImportedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory columnar copy of the price and the year of every book, answering the price and year ranges of the book
+ * search and its price and year orders without querying the database or allocating a {@link Book} per row.
+ * <p>
+ * The columns are parallel primitive arrays ordered by book id, so a range is one loop over two arrays. For each
+ * column a permutation of the rows keeps them in the order of the database ({@code nulls last, then id}), so a page
+ * of that order is read off the head of the permutation. Missing values are stored as {@code NaN} prices and
+ * {@link #NO_YEAR} years.
+ * <p>
+ * Like {@link TitleIndex}, the index is a large immutable base segment plus a small delta segment holding the recent
+ * writes and the set of base ids those writes superseded. A write copies the delta alone and publishes a new
+ * snapshot, so readers never lock; once the delta grows past {@link #MERGE_THRESHOLD} rows it is merged into a new
+ * base on a background thread.
+ */
+@Service
+public class CatalogIndex {
+    static final int MERGE_THRESHOLD = 1024;
+    private static final int NO_YEAR = Integer.MAX_VALUE;
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+    private final SegmentMerger merger = new SegmentMerger("catalog-index-merge");
+    private volatile Snapshot snapshot;
+
+    public CatalogIndex(BookRepository bookRepository,
+                        @Value("${bookstore.search.catalog-index.enabled:false}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Method to check whether the index is enabled and built, so searches can be served from it.
+     *
+     * @return true if the index is ready.
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Method to check whether the pages of the given sort can be served by {@link #page}.
+     *
+     * @param sort the sort.
+     * @return true if the sort is a single price or year order.
+     */
+    public static boolean canSort(Sort sort) {
+        if (sort.stream().count() != 1) {
+            return false;
+        }
+        final BookSortKey sortKey = BookSortKey.of(sort.iterator().next().getProperty());
+        return sortKey == BookSortKey.PRICE || sortKey == BookSortKey.YEAR;
+    }
+
+    /**
+     * Method to build the index from the prices and years stored in the database.
+     */
+    @EventListener({ApplicationReadyEvent.class, BooksImportedEvent.class})
+    public synchronized void build() {
+        if (!enabled) {
+            return;
+        }
+        final List<BookCatalogView> rows = bookRepository.findAllCatalogRows();
+        final int[] ids = new int[rows.size()];
+        final double[] prices = new double[rows.size()];
+        final int[] years = new int[rows.size()];
+        for (int row = 0; row < ids.length; row++) {
+            final BookCatalogView view = rows.get(row);
+            ids[row] = Math.toIntExact(view.getId());
+            prices[row] = toPrice(view.getPrice());
+            years[row] = toYear(view.getYear());
+        }
+        merger.cancel();
+        snapshot = new Snapshot(Columns.of(ids, prices, years), Columns.EMPTY, new int[0]);
+    }
+
+    /**
+     * Method to find the books with a price and a year in the given ranges. A bound excludes the books without a
+     * value, as in the database.
+     *
+     * @param minPrice the min price, null for no lower bound.
+     * @param maxPrice the max price, null for no upper bound.
+     * @param minYear  the min year, null for no lower bound.
+     * @param maxYear  the max year, null for no upper bound.
+     * @param within   the sorted ids of the books to search, null for all the books.
+     * @return the sorted ids of the matching books.
+     * @throws IllegalStateException if the index is not ready.
+     */
+    @NonNull
+    public int[] search(@Nullable Double minPrice, @Nullable Double maxPrice, @Nullable Integer minYear,
+                        @Nullable Integer maxYear, @Nullable int[] within) {
+        final Snapshot current = current();
+        final Bounds bounds = new Bounds(minPrice != null || maxPrice != null,
+                minPrice == null ? Double.NEGATIVE_INFINITY : minPrice,
+                maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice, minYear != null || maxYear != null,
+                minYear == null ? Integer.MIN_VALUE : minYear,
+                maxYear == null ? NO_YEAR - 1 : Math.min(maxYear, NO_YEAR - 1));
+        return union(current.base.search(bounds, within, current.superseded),
+                current.delta.search(bounds, within, null));
+    }
+
+    /**
+     * Method to get a page of the books ordered by price or year, ties broken by id.
+     *
+     * @param sort   the sort, see {@link #canSort}.
+     * @param within the sorted ids of the books to page through, null for all the books.
+     * @param offset the number of books to skip.
+     * @param limit  the max number of books to return.
+     * @return the ids of the books of the page, in order.
+     * @throws IllegalArgumentException if the sort is not supported.
+     * @throws IllegalStateException    if the index is not ready.
+     */
+    @NonNull
+    public int[] page(Sort sort, @Nullable int[] within, long offset, int limit) {
+        if (!canSort(sort)) {
+            throw new IllegalArgumentException("Only a single price or year order is supported");
+        }
+        final Snapshot current = current();
+        final Sort.Order order = sort.iterator().next();
+        final boolean byPrice = BookSortKey.of(order.getProperty()) == BookSortKey.PRICE;
+        final Cursor base = new Cursor(current.base, byPrice, order.isAscending(), within, current.superseded);
+        final Cursor delta = new Cursor(current.delta, byPrice, order.isAscending(), within, null);
+        final int[] page = new int[Math.min(limit, current.base.ids.length + current.delta.ids.length)];
+        int count = 0;
+        long skipped = 0;
+        while (count < page.length && (base.row >= 0 || delta.row >= 0)) {
+            final Cursor next = delta.row < 0 || base.row >= 0 && base.compareTo(delta) < 0 ? base : delta;
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page[count++] = next.columns.ids[next.row];
+            }
+            next.advance();
+        }
+        return Arrays.copyOf(page, count);
+    }
+
+    @EventListener
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        final int bookId = Math.toIntExact(event.bookId());
+        final BookDTO book = event.book();
+        final Columns delta = book == null ? current.delta.without(bookId)
+                : current.delta.with(bookId, toPrice(book.getPrice()), toYear(book.getYear()));
+        final int[] superseded = current.base.indexOf(bookId) >= 0
+                ? add(current.superseded, bookId) : current.superseded;
+        if (delta == current.delta && superseded == current.superseded) {
+            return;
+        }
+        snapshot = new Snapshot(current.base, delta, superseded);
+        merger.written(bookId);
+        mergeIfFull();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        merger.shutdown();
+    }
+
+    private void mergeIfFull() {
+        final Snapshot frozen = snapshot;
+        if (Math.max(frozen.delta.ids.length, frozen.superseded.length) >= MERGE_THRESHOLD) {
+            merger.start(() -> merge(frozen));
+        }
+    }
+
+    /**
+     * Method to merge the delta of the given snapshot into its base, then to publish the merged base with the
+     * writes made meanwhile as its delta. Runs on the merge thread.
+     */
+    private void merge(Snapshot frozen) {
+        final int size = frozen.base.ids.length + frozen.delta.ids.length;
+        final int[] ids = new int[size];
+        final double[] prices = new double[size];
+        final int[] years = new int[size];
+        int count = 0;
+        int fromDelta = 0;
+        for (int row = 0; row <= frozen.base.ids.length; row++) {
+            final int id = row < frozen.base.ids.length ? frozen.base.ids[row] : Integer.MAX_VALUE;
+            for (; fromDelta < frozen.delta.ids.length && frozen.delta.ids[fromDelta] < id; fromDelta++, count++) {
+                ids[count] = frozen.delta.ids[fromDelta];
+                prices[count] = frozen.delta.prices[fromDelta];
+                years[count] = frozen.delta.years[fromDelta];
+            }
+            if (row < frozen.base.ids.length && Arrays.binarySearch(frozen.superseded, id) < 0) {
+                ids[count] = id;
+                prices[count] = frozen.base.prices[row];
+                years[count] = frozen.base.years[row];
+                count++;
+            }
+        }
+        final Columns base = Columns.of(Arrays.copyOf(ids, count), Arrays.copyOf(prices, count),
+                Arrays.copyOf(years, count));
+        synchronized (this) {
+            final Snapshot current = snapshot;
+            if (current == null || current.base != frozen.base) {
+                // Rebuilt meanwhile.
+                return;
+            }
+            Columns delta = Columns.EMPTY;
+            int[] superseded = new int[0];
+            for (int id : merger.finish()) {
+                final int row = current.delta.indexOf(id);
+                if (row >= 0) {
+                    delta = delta.with(id, current.delta.prices[row], current.delta.years[row]);
+                }
+                if (base.indexOf(id) >= 0) {
+                    superseded = add(superseded, id);
+                }
+            }
+            snapshot = new Snapshot(base, delta, superseded);
+            mergeIfFull();
+        }
+    }
+
+    private Snapshot current() {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Catalog index is not ready");
+        }
+        return current;
+    }
+
+    private static double toPrice(@Nullable Double price) {
+        return price == null ? Double.NaN : price;
+    }
+
+    private static int toYear(@Nullable Integer year) {
+        return year == null ? NO_YEAR : year;
+    }
+
+    /**
+     * The rows are ordered by id, so the row breaks the ties. {@link Double#compare} puts NaN last.
+     */
+    private static IntBinaryOperator priceOrder(double[] prices) {
+        return (left, right) -> {
+            final int byPrice = Double.compare(prices[left], prices[right]);
+            return byPrice != 0 ? byPrice : Integer.compare(left, right);
+        };
+    }
+
+    private static IntBinaryOperator yearOrder(int[] years) {
+        return (left, right) -> {
+            final int byYear = Integer.compare(years[left], years[right]);
+            return byYear != 0 ? byYear : Integer.compare(left, right);
+        };
+    }
+
+    private static int[] sortedRows(int size, IntBinaryOperator order) {
+        return IntStream.range(0, size).boxed().sorted(order::applyAsInt).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Method to drop the row from a permutation, renumbering the rows after it if it was removed from the columns.
+     */
+    private static int[] without(int[] rows, int row, boolean removed) {
+        final int[] result = new int[rows.length - 1];
+        int j = 0;
+        for (int other : rows) {
+            if (other != row) {
+                result[j++] = removed && other > row ? other - 1 : other;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method to add the row to a permutation at its sorted position, renumbering the rows from it on if it was
+     * inserted in the columns.
+     */
+    private static int[] with(int[] rows, int row, boolean inserted, IntBinaryOperator order) {
+        int lo = 0;
+        int hi = rows.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int other = inserted && rows[mid] >= row ? rows[mid] + 1 : rows[mid];
+            if (order.applyAsInt(other, row) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        final int[] result = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++) {
+            final int other = inserted && rows[i] >= row ? rows[i] + 1 : rows[i];
+            result[i < lo ? i : i + 1] = other;
+        }
+        result[lo] = row;
+        return result;
+    }
+
+    private static int[] insert(int[] values, int index) {
+        final int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index, result, index + 1, values.length - index);
+        return result;
+    }
+
+    private static double[] insert(double[] values, int index) {
+        final double[] result = new double[values.length + 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index, result, index + 1, values.length - index);
+        return result;
+    }
+
+    private static int[] remove(int[] values, int index) {
+        final int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return result;
+    }
+
+    private static double[] remove(double[] values, int index) {
+        final double[] result = new double[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return result;
+    }
+
+    /**
+     * Method to add a value to a sorted array, if it is not there yet.
+     */
+    private static int[] add(int[] sorted, int value) {
+        final int position = Arrays.binarySearch(sorted, value);
+        if (position >= 0) {
+            return sorted;
+        }
+        final int[] result = insert(sorted, -position - 1);
+        result[-position - 1] = value;
+        return result;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        final int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            result[n++] = j == b.length || i < a.length && a[i] < b[j] ? a[i++] : b[j++];
+        }
+        return result;
+    }
+
+    /**
+     * The base and the delta columns, and the sorted ids of the base rows the delta supersedes.
+     */
+    private record Snapshot(Columns base, Columns delta, int[] superseded) {
+    }
+
+    /**
+     * The ranges of a search, a range being ignored unless it is set.
+     */
+    private record Bounds(boolean byPrice, double fromPrice, double toPrice, boolean byYear, int fromYear,
+                          int toYear) {
+        boolean matches(double price, int year) {
+            // A NaN price fails both comparisons.
+            return (!byPrice || price >= fromPrice && price <= toPrice)
+                    && (!byYear || year >= fromYear && year <= toYear);
+        }
+    }
+
+    /**
+     * Parallel columns ordered by id, and the rows in price and in year order.
+     */
+    private record Columns(int[] ids, double[] prices, int[] years, int[] byPrice, int[] byYear) {
+        static final Columns EMPTY = of(new int[0], new double[0], new int[0]);
+
+        static Columns of(int[] ids, double[] prices, int[] years) {
+            return new Columns(ids, prices, years, sortedRows(ids.length, priceOrder(prices)),
+                    sortedRows(ids.length, yearOrder(years)));
+        }
+
+        int indexOf(int id) {
+            return Arrays.binarySearch(ids, id);
+        }
+
+        /**
+         * Method to find the ids of the rows in the bounds, visiting the rows in id order so the excluded ids are
+         * skipped with a single pass over them.
+         */
+        int[] search(Bounds bounds, @Nullable int[] within, @Nullable int[] excluded) {
+            final int candidates = within == null ? ids.length : within.length;
+            final int[] found = new int[candidates];
+            int count = 0;
+            int skip = 0;
+            for (int i = 0; i < candidates; i++) {
+                final int row = within == null ? i : indexOf(within[i]);
+                if (row < 0 || !bounds.matches(prices[row], years[row])) {
+                    continue;
+                }
+                if (excluded != null) {
+                    while (skip < excluded.length && excluded[skip] < ids[row]) {
+                        skip++;
+                    }
+                    if (skip < excluded.length && excluded[skip] == ids[row]) {
+                        continue;
+                    }
+                }
+                found[count++] = ids[row];
+            }
+            return Arrays.copyOf(found, count);
+        }
+
+        Columns with(int id, double price, int year) {
+            final int found = indexOf(id);
+            final int row = found < 0 ? -found - 1 : found;
+            final int[] newIds = found < 0 ? insert(ids, row) : ids.clone();
+            final double[] newPrices = found < 0 ? insert(prices, row) : prices.clone();
+            final int[] newYears = found < 0 ? insert(years, row) : years.clone();
+            newIds[row] = id;
+            newPrices[row] = price;
+            newYears[row] = year;
+            final int[] rowsByPrice = found < 0 ? byPrice : CatalogIndex.without(byPrice, row, false);
+            final int[] rowsByYear = found < 0 ? byYear : CatalogIndex.without(byYear, row, false);
+            return new Columns(newIds, newPrices, newYears,
+                    CatalogIndex.with(rowsByPrice, row, found < 0, priceOrder(newPrices)),
+                    CatalogIndex.with(rowsByYear, row, found < 0, yearOrder(newYears)));
+        }
+
+        Columns without(int id) {
+            final int row = indexOf(id);
+            if (row < 0) {
+                return this;
+            }
+            return new Columns(remove(ids, row), remove(prices, row), remove(years, row),
+                    CatalogIndex.without(byPrice, row, true), CatalogIndex.without(byYear, row, true));
+        }
+    }
+
+    /**
+     * Position in the price or year order of some columns, on the rows in the given ids and not in the excluded
+     * ones. The descending order of the database (nulls first, then id descending) is the ascending one reversed.
+     */
+    private static final class Cursor {
+        final Columns columns;
+        private final boolean byPrice;
+        private final boolean ascending;
+        private final int[] rows;
+        private final int[] within;
+        private final int[] excluded;
+        private int position = -1;
+        int row;
+
+        Cursor(Columns columns, boolean byPrice, boolean ascending, @Nullable int[] within,
+               @Nullable int[] excluded) {
+            this.columns = columns;
+            this.byPrice = byPrice;
+            this.ascending = ascending;
+            this.rows = byPrice ? columns.byPrice : columns.byYear;
+            this.within = within;
+            this.excluded = excluded;
+            advance();
+        }
+
+        /**
+         * Method to move to the next row, -1 once the rows are all visited.
+         */
+        void advance() {
+            while (++position < rows.length) {
+                row = rows[ascending ? position : rows.length - 1 - position];
+                final int id = columns.ids[row];
+                if ((within == null || Arrays.binarySearch(within, id) >= 0)
+                        && (excluded == null || Arrays.binarySearch(excluded, id) < 0)) {
+                    return;
+                }
+            }
+            row = -1;
+        }
+
+        int compareTo(Cursor other) {
+            int result = byPrice ? Double.compare(columns.prices[row], other.columns.prices[other.row])
+                    : Integer.compare(columns.years[row], other.columns.years[other.row]);
+            if (result == 0) {
+                result = Integer.compare(columns.ids[row], other.columns.ids[other.row]);
+            }
+            return ascending ? result : -result;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.bookstore.service.search;
+
+import com.bookstore.repository.BookFacetView;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.GenreDTO;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.event.BooksImportedEvent;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * In-memory index keeping a compressed bitmap of book ids per author id and per genre id, answering the author and
+ * genre criteria of the book search with bitmap unions and intersections instead of joins.
+ * <p>
+ * The bitmaps are never modified once published: a write clones the bitmaps of the facets it touches and publishes
+ * new facet maps, so readers never lock. A facet map is split into 256 shards by facet id and a write copies
+ * only the shards of the facets it touches, so its cost grows with the number of facets divided by the number of
+ * shards rather than with the number of facets.
+ */
+@Service
+public class FacetIndex {
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+    private volatile Snapshot snapshot;
+    // Only read and written by the writers, under the lock.
+    private final Map<Integer, Set<Long>> authorsByBook = new HashMap<>();
+    private final Map<Integer, Set<Long>> genresByBook = new HashMap<>();
+
+    public FacetIndex(BookRepository bookRepository,
+                      @Value("${bookstore.search.facet-index.enabled:false}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Method to check whether the index is enabled and built, so searches can be served from it.
+     *
+     * @return true if the index is ready.
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Method to build the index from all the book links stored in the database.
+     */
+    @EventListener({ApplicationReadyEvent.class, BooksImportedEvent.class})
+    public synchronized void build() {
+        if (!enabled) {
+            return;
+        }
+        authorsByBook.clear();
+        genresByBook.clear();
+        snapshot = new Snapshot(load(bookRepository.findAllAuthorLinks(), authorsByBook),
+                load(bookRepository.findAllGenreLinks(), genresByBook));
+    }
+
+    /**
+     * Method to find the books having any of the given authors and any of the given genres.
+     *
+     * @param authorIds the author ids, null or empty for any author.
+     * @param genreIds  the genre ids, null or empty for any genre.
+     * @return a new bitmap of the matching book ids, null if neither authors nor genres are given.
+     * @throws IllegalStateException if the index is not ready.
+     */
+    @Nullable
+    public RoaringBitmap search(@Nullable List<Long> authorIds, @Nullable List<Integer> genreIds) {
+        final Snapshot current = current();
+        final RoaringBitmap byAuthors = union(current.authors, authorIds);
+        final RoaringBitmap byGenres = union(current.genres, genreIds);
+        if (byAuthors == null || byGenres == null) {
+            return byAuthors == null ? byGenres : byAuthors;
+        }
+        byAuthors.and(byGenres);
+        return byAuthors;
+    }
+
+    /**
+     * Method to count the books per genre.
+     *
+     * @param within the ids of the books to count, null for all the books.
+     * @return the counts by genre id, ordered by count descending, genres without books are left out.
+     * @throws IllegalStateException if the index is not ready.
+     */
+    @NonNull
+    public Map<Long, Long> countPerGenre(@Nullable RoaringBitmap within) {
+        return count(current().genres, within, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Method to count the books per author.
+     *
+     * @param within the ids of the books to count, null for all the books.
+     * @param limit  the max number of authors to return.
+     * @return the counts by author id of the top authors, ordered by count descending.
+     * @throws IllegalStateException if the index is not ready.
+     */
+    @NonNull
+    public Map<Long, Long> countPerAuthor(@Nullable RoaringBitmap within, int limit) {
+        return count(current().authors, within, limit);
+    }
+
+    @EventListener
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        final int bookId = Math.toIntExact(event.bookId());
+        final BookDTO book = event.book();
+        final Set<Long> authorIds = new HashSet<>();
+        final Set<Long> genreIds = new HashSet<>();
+        if (book != null && book.getListOfAuthors() != null) {
+            book.getListOfAuthors().stream().map(AuthorDTO::getId).filter(Objects::nonNull).forEach(authorIds::add);
+        }
+        if (book != null && book.getListOfGenres() != null) {
+            book.getListOfGenres().stream().map(GenreDTO::getId).filter(Objects::nonNull)
+                    .forEach(id -> genreIds.add(id.longValue()));
+        }
+        snapshot = new Snapshot(update(current.authors, authorsByBook, bookId, authorIds),
+                update(current.genres, genresByBook, bookId, genreIds));
+    }
+
+    private Snapshot current() {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Facet index is not ready");
+        }
+        return current;
+    }
+
+    private static Map<Long, Long> count(FacetMap bitmaps, @Nullable RoaringBitmap within, int limit) {
+        final List<Map.Entry<Long, Long>> counts = new ArrayList<>();
+        bitmaps.forEach((facetId, bitmap) -> {
+            // The cardinality of the intersection is computed without materializing it.
+            final long count = within == null
+                    ? bitmap.getLongCardinality() : RoaringBitmap.andCardinality(bitmap, within);
+            if (count > 0) {
+                counts.add(Map.entry(facetId, count));
+            }
+        });
+        counts.sort(Map.Entry.<Long, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        final Map<Long, Long> top = new LinkedHashMap<>();
+        counts.stream().limit(limit).forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    private static FacetMap load(List<BookFacetView> links, Map<Integer, Set<Long>> facetsByBook) {
+        final Map<Long, RoaringBitmap> bitmaps = new HashMap<>();
+        for (BookFacetView link : links) {
+            final int bookId = Math.toIntExact(link.getBookId());
+            bitmaps.computeIfAbsent(link.getFacetId(), key -> new RoaringBitmap()).add(bookId);
+            facetsByBook.computeIfAbsent(bookId, key -> new HashSet<>()).add(link.getFacetId());
+        }
+        bitmaps.values().forEach(RoaringBitmap::runOptimize);
+        return FacetMap.of(bitmaps);
+    }
+
+    private static FacetMap update(FacetMap bitmaps, Map<Integer, Set<Long>> facetsByBook, int bookId,
+                                   Set<Long> facetIds) {
+        final Set<Long> previous = facetsByBook.getOrDefault(bookId, Set.of());
+        if (previous.equals(facetIds)) {
+            return bitmaps;
+        }
+        final Map<Long, RoaringBitmap> changed = new HashMap<>();
+        for (Long facetId : previous) {
+            if (!facetIds.contains(facetId)) {
+                final RoaringBitmap bitmap = bitmaps.get(facetId).clone();
+                bitmap.remove(bookId);
+                changed.put(facetId, bitmap);
+            }
+        }
+        for (Long facetId : facetIds) {
+            if (!previous.contains(facetId)) {
+                final RoaringBitmap existing = bitmaps.get(facetId);
+                final RoaringBitmap bitmap = existing == null ? new RoaringBitmap() : existing.clone();
+                bitmap.add(bookId);
+                changed.put(facetId, bitmap);
+            }
+        }
+        if (facetIds.isEmpty()) {
+            facetsByBook.remove(bookId);
+        } else {
+            facetsByBook.put(bookId, facetIds);
+        }
+        return bitmaps.with(changed);
+    }
+
+    @Nullable
+    private static RoaringBitmap union(FacetMap bitmaps, @Nullable List<? extends Number> facetIds) {
+        if (facetIds == null || facetIds.isEmpty()) {
+            return null;
+        }
+        final List<RoaringBitmap> matching = new ArrayList<>(facetIds.size());
+        for (Number facetId : facetIds) {
+            final RoaringBitmap bitmap = bitmaps.get(facetId.longValue());
+            if (bitmap != null) {
+                matching.add(bitmap);
+            }
+        }
+        // The result is modified by the caller, so it must never be one of the published bitmaps.
+        return matching.size() == 1 ? matching.get(0).clone() : RoaringBitmap.or(matching.iterator());
+    }
+
+    private record Snapshot(@NonNull FacetMap authors, @NonNull FacetMap genres) {
+    }
+
+    /**
+     * Immutable map of the bitmaps by facet id, split into shards by facet id: a change copies the array of the
+     * shards and the shards of the changed facets, the other shards being shared with the previous map.
+     */
+    private static final class FacetMap {
+        static final int SHARDS = 256;
+
+        private final Map<Long, RoaringBitmap>[] shards;
+
+        private FacetMap(Map<Long, RoaringBitmap>[] shards) {
+            this.shards = shards;
+        }
+
+        @SuppressWarnings("unchecked")
+        static FacetMap of(Map<Long, RoaringBitmap> bitmaps) {
+            final Map<Long, RoaringBitmap>[] shards = (Map<Long, RoaringBitmap>[]) new Map<?, ?>[SHARDS];
+            for (int i = 0; i < SHARDS; i++) {
+                shards[i] = new HashMap<>();
+            }
+            bitmaps.forEach((facetId, bitmap) -> shards[shard(facetId)].put(facetId, bitmap));
+            return new FacetMap(shards);
+        }
+
+        @Nullable
+        RoaringBitmap get(long facetId) {
+            return shards[shard(facetId)].get(facetId);
+        }
+
+        void forEach(BiConsumer<Long, RoaringBitmap> action) {
+            for (Map<Long, RoaringBitmap> shard : shards) {
+                shard.forEach(action);
+            }
+        }
+
+        FacetMap with(Map<Long, RoaringBitmap> changed) {
+            final Map<Long, RoaringBitmap>[] copy = shards.clone();
+            final boolean[] copied = new boolean[SHARDS];
+            changed.forEach((facetId, bitmap) -> {
+                final int shard = shard(facetId);
+                if (!copied[shard]) {
+                    copy[shard] = new HashMap<>(copy[shard]);
+                    copied[shard] = true;
+                }
+                copy[shard].put(facetId, bitmap);
+            });
+            return new FacetMap(copy);
+        }
+
+        private static int shard(long facetId) {
+            return (int) (facetId ^ (facetId >>> 32)) & (SHARDS - 1);
+        }
+    }
+}
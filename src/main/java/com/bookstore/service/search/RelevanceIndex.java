@@ -0,0 +1,392 @@
+package com.bookstore.service.search;
+
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.BookTextView;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.event.BooksImportedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * In-memory inverted index over the words of the book titles and descriptions, ranking the books by BM25.
+ * <p>
+ * Every field keeps, per word, the positions of the documents containing it and the frequency of the word in each,
+ * plus the length of every document. A query walks the posting lists of its words document at a time and keeps the
+ * best hits in a heap bounded by the number of hits asked for, so the matching documents are never sorted. A title
+ * match weighs {@link #TITLE_WEIGHT} times a description match.
+ * <p>
+ * Like {@link TitleIndex}, writes go to a small delta segment published with a new snapshot, so readers never lock,
+ * and the delta is merged into a new base on a background thread once it grows past {@link #MERGE_THRESHOLD}
+ * documents. The statistics of the ranking (document count, document frequencies and average lengths) are summed
+ * over both segments and still count the superseded base documents until the next merge.
+ */
+@Service
+public class RelevanceIndex {
+    static final int MERGE_THRESHOLD = 1024;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double TITLE_WEIGHT = 2.0;
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+    private final SegmentMerger merger = new SegmentMerger("relevance-index-merge");
+    private volatile Snapshot snapshot;
+
+    public RelevanceIndex(BookRepository bookRepository,
+                          @Value("${bookstore.search.relevance-index.enabled:false}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * A ranked book.
+     *
+     * @param id    the book id.
+     * @param score the BM25 score.
+     */
+    public record Hit(int id, double score) {
+    }
+
+    /**
+     * Method to check whether the index is enabled and built, so searches can be served from it.
+     *
+     * @return true if the index is ready.
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Method to build the index from the titles and descriptions stored in the database.
+     */
+    @EventListener({ApplicationReadyEvent.class, BooksImportedEvent.class})
+    public synchronized void build() {
+        if (!enabled) {
+            return;
+        }
+        final Map<Integer, Doc> docs = new HashMap<>();
+        for (BookTextView text : bookRepository.findAllTexts()) {
+            docs.put(Math.toIntExact(text.getId()), new Doc(text.getTitle(), text.getDescription()));
+        }
+        merger.cancel();
+        snapshot = new Snapshot(Segment.of(docs), Segment.EMPTY, new int[0], Map.of());
+    }
+
+    /**
+     * Method to get the terms of a text: its lowercase words.
+     *
+     * @param text the text.
+     * @return the terms, made of letters and digits only.
+     */
+    @NonNull
+    public static List<String> terms(@Nullable String text) {
+        final List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Method to find the books with the highest BM25 score for any of the given terms.
+     *
+     * @param terms  the terms, see {@link #terms}.
+     * @param within the sorted ids of the books to rank, null for all the books.
+     * @param limit  the max number of hits.
+     * @return the hits, by score descending and then by id.
+     * @throws IllegalStateException if the index is not ready.
+     */
+    @NonNull
+    public List<Hit> search(@NonNull List<String> terms, @Nullable int[] within, int limit) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Relevance index is not ready");
+        }
+        if (limit < 1) {
+            return List.of();
+        }
+        // The head is the worst hit kept so far.
+        final PriorityQueue<Hit> top = new PriorityQueue<>(Math.min(limit, 1024), WORST_FIRST);
+        final Set<String> distinct = new LinkedHashSet<>(terms);
+        current.base.rank(distinct, current, current.superseded, within, limit, top);
+        current.delta.rank(distinct, current, null, within, limit, top);
+        final List<Hit> hits = new ArrayList<>(top);
+        hits.sort(WORST_FIRST.reversed());
+        return hits;
+    }
+
+    @EventListener
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        final int id = Math.toIntExact(event.bookId());
+        final BookDTO book = event.book();
+        final Map<Integer, Doc> deltaDocs = new HashMap<>(current.deltaDocs);
+        if (book == null) {
+            deltaDocs.remove(id);
+        } else {
+            deltaDocs.put(id, new Doc(book.getTitle(), book.getDescription()));
+        }
+        final int[] superseded = current.base.indexOf(id) >= 0
+                ? insert(current.superseded, id) : current.superseded;
+        snapshot = new Snapshot(current.base, Segment.of(deltaDocs), superseded, Map.copyOf(deltaDocs));
+        merger.written(id);
+        mergeIfFull();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        merger.shutdown();
+    }
+
+    private void mergeIfFull() {
+        final Snapshot frozen = snapshot;
+        if (Math.max(frozen.deltaDocs.size(), frozen.superseded.length) >= MERGE_THRESHOLD) {
+            merger.start(() -> merge(frozen));
+        }
+    }
+
+    /**
+     * Method to merge the delta of the given snapshot into its base, then to publish the merged base with the
+     * writes made meanwhile as its delta. Runs on the merge thread.
+     */
+    private void merge(Snapshot frozen) {
+        final Map<Integer, Doc> docs = new HashMap<>();
+        for (int i = 0; i < frozen.base.ids.length; i++) {
+            if (Arrays.binarySearch(frozen.superseded, frozen.base.ids[i]) < 0) {
+                docs.put(frozen.base.ids[i], frozen.base.docs[i]);
+            }
+        }
+        docs.putAll(frozen.deltaDocs);
+        final Segment base = Segment.of(docs);
+        synchronized (this) {
+            final Snapshot current = snapshot;
+            if (current == null || current.base != frozen.base) {
+                // Rebuilt meanwhile.
+                return;
+            }
+            final Map<Integer, Doc> deltaDocs = new HashMap<>();
+            int[] superseded = new int[0];
+            for (int id : merger.finish()) {
+                final Doc doc = current.deltaDocs.get(id);
+                if (doc != null) {
+                    deltaDocs.put(id, doc);
+                }
+                if (base.indexOf(id) >= 0) {
+                    superseded = insert(superseded, id);
+                }
+            }
+            snapshot = new Snapshot(base, Segment.of(deltaDocs), superseded, Map.copyOf(deltaDocs));
+            mergeIfFull();
+        }
+    }
+
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score)
+            .thenComparing(Hit::id, Comparator.reverseOrder());
+
+    private static int[] insert(int[] sorted, int value) {
+        final int position = Arrays.binarySearch(sorted, value);
+        if (position >= 0) {
+            return sorted;
+        }
+        final int at = -position - 1;
+        final int[] result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(sorted, at, result, at + 1, sorted.length - at);
+        return result;
+    }
+
+    private record Doc(String title, String description) {
+    }
+
+    private record Snapshot(Segment base, Segment delta, int[] superseded, Map<Integer, Doc> deltaDocs) {
+        int size() {
+            return base.ids.length + delta.ids.length;
+        }
+
+        double averageLength(boolean title) {
+            final long total = base.field(title).totalLength + delta.field(title).totalLength;
+            return size() == 0 || total == 0 ? 1.0 : (double) total / size();
+        }
+
+        int frequency(boolean title, String term) {
+            return base.field(title).frequency(term) + delta.field(title).frequency(term);
+        }
+    }
+
+    /**
+     * Posting lists of a field: per term, the ascending positions of the documents and the term frequencies.
+     */
+    private static final class Field {
+        final Map<String, int[]> docs = new HashMap<>();
+        final Map<String, int[]> frequencies = new HashMap<>();
+        final int[] lengths;
+        long totalLength;
+
+        Field(int size) {
+            lengths = new int[size];
+        }
+
+        int frequency(String term) {
+            final int[] postings = docs.get(term);
+            return postings == null ? 0 : postings.length;
+        }
+    }
+
+    /**
+     * Immutable set of documents: sorted ids, their texts and a {@link Field} for the titles and the descriptions.
+     */
+    private static final class Segment {
+        static final Segment EMPTY = of(Map.of());
+
+        final int[] ids;
+        final Doc[] docs;
+        final Field titles;
+        final Field descriptions;
+
+        private Segment(int[] ids, Doc[] docs, Field titles, Field descriptions) {
+            this.ids = ids;
+            this.docs = docs;
+            this.titles = titles;
+            this.descriptions = descriptions;
+        }
+
+        static Segment of(Map<Integer, Doc> texts) {
+            final int[] ids = texts.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            final Doc[] docs = new Doc[ids.length];
+            final Field titles = new Field(ids.length);
+            final Field descriptions = new Field(ids.length);
+            final Map<String, List<int[]>> titlePostings = new HashMap<>();
+            final Map<String, List<int[]>> descriptionPostings = new HashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                docs[i] = texts.get(ids[i]);
+                add(titles, titlePostings, i, terms(docs[i].title()));
+                add(descriptions, descriptionPostings, i, terms(docs[i].description()));
+            }
+            seal(titles, titlePostings);
+            seal(descriptions, descriptionPostings);
+            return new Segment(ids, docs, titles, descriptions);
+        }
+
+        private static void add(Field field, Map<String, List<int[]>> postings, int doc, List<String> terms) {
+            field.lengths[doc] = terms.size();
+            field.totalLength += terms.size();
+            final Map<String, Integer> counts = new HashMap<>();
+            terms.forEach(term -> counts.merge(term, 1, Integer::sum));
+            // Documents are visited in ascending order, so every list stays sorted.
+            counts.forEach((term, count) -> postings.computeIfAbsent(term, key -> new ArrayList<>())
+                    .add(new int[]{doc, count}));
+        }
+
+        private static void seal(Field field, Map<String, List<int[]>> postings) {
+            postings.forEach((term, list) -> {
+                final int[] docs = new int[list.size()];
+                final int[] frequencies = new int[list.size()];
+                for (int i = 0; i < docs.length; i++) {
+                    docs[i] = list.get(i)[0];
+                    frequencies[i] = list.get(i)[1];
+                }
+                field.docs.put(term, docs);
+                field.frequencies.put(term, frequencies);
+            });
+        }
+
+        Field field(boolean title) {
+            return title ? titles : descriptions;
+        }
+
+        int indexOf(int id) {
+            return Arrays.binarySearch(ids, id);
+        }
+
+        void rank(Set<String> terms, Snapshot stats, @Nullable int[] excluded, @Nullable int[] within, int limit,
+                  PriorityQueue<Hit> top) {
+            final PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingInt(Cursor::doc));
+            for (String term : terms) {
+                for (boolean title : new boolean[]{true, false}) {
+                    final int[] docs = field(title).docs.get(term);
+                    if (docs != null) {
+                        final int frequency = stats.frequency(title, term);
+                        final double idf = Math.log(1 + (stats.size() - frequency + 0.5) / (frequency + 0.5));
+                        cursors.add(new Cursor(docs, field(title).frequencies.get(term), field(title).lengths,
+                                (title ? TITLE_WEIGHT : 1.0) * idf, stats.averageLength(title)));
+                    }
+                }
+            }
+            // Document at a time: all the cursors on the smallest document are scored together, then advanced.
+            while (!cursors.isEmpty()) {
+                final int doc = cursors.peek().doc();
+                double score = 0;
+                while (!cursors.isEmpty() && cursors.peek().doc() == doc) {
+                    final Cursor cursor = cursors.poll();
+                    score += cursor.score();
+                    if (cursor.advance()) {
+                        cursors.add(cursor);
+                    }
+                }
+                final int id = ids[doc];
+                if (excluded != null && Arrays.binarySearch(excluded, id) >= 0
+                        || within != null && Arrays.binarySearch(within, id) < 0) {
+                    continue;
+                }
+                final Hit hit = new Hit(id, score);
+                if (top.size() < limit) {
+                    top.add(hit);
+                } else if (WORST_FIRST.compare(hit, top.peek()) > 0) {
+                    top.poll();
+                    top.add(hit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Position in the posting list of a term in a field.
+     */
+    private static final class Cursor {
+        private final int[] docs;
+        private final int[] frequencies;
+        private final int[] lengths;
+        private final double weight;
+        private final double averageLength;
+        private int position;
+
+        Cursor(int[] docs, int[] frequencies, int[] lengths, double weight, double averageLength) {
+            this.docs = docs;
+            this.frequencies = frequencies;
+            this.lengths = lengths;
+            this.weight = weight;
+            this.averageLength = averageLength;
+        }
+
+        int doc() {
+            return docs[position];
+        }
+
+        double score() {
+            final int frequency = frequencies[position];
+            final double norm = K1 * (1 - B + B * lengths[docs[position]] / averageLength);
+            return weight * frequency * (K1 + 1) / (frequency + norm);
+        }
+
+        boolean advance() {
+            return ++position < docs.length;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.bookstore.service.search;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background thread merging the delta segment of an index into a new base segment, so a write never waits for the
+ * merge of the whole index.
+ * <p>
+ * The index keeps writing to its delta while a merge runs and records the ids it writes here, so once the merged
+ * base is built the delta can be cut down to the writes the merge did not see. The methods are called holding the
+ * monitor of the index.
+ */
+final class SegmentMerger {
+    private final ThreadPoolExecutor executor;
+    private Set<Integer> written;
+
+    SegmentMerger(String name) {
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Method to record the write of a document, if a merge is running.
+     *
+     * @param id the id of the document.
+     */
+    void written(int id) {
+        if (written != null) {
+            written.add(id);
+        }
+    }
+
+    /**
+     * Method to start a merge, unless one is running. The merge calls {@link #finish} once it has built the base.
+     *
+     * @param merge the merge.
+     */
+    void start(Runnable merge) {
+        if (written != null) {
+            return;
+        }
+        written = new HashSet<>();
+        try {
+            executor.execute(merge);
+        } catch (RejectedExecutionException e) {
+            // Shut down, the delta keeps growing.
+            written = null;
+        }
+    }
+
+    /**
+     * Method to end the running merge.
+     *
+     * @return the ids of the documents written since the merge started.
+     */
+    Set<Integer> finish() {
+        final Set<Integer> result = written;
+        written = null;
+        return result == null ? Set.of() : result;
+    }
+
+    /**
+     * Method to forget the running merge, the index being rebuilt: the merge must drop its result.
+     */
+    void cancel() {
+        written = null;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,344 @@
+package com.bookstore.service.search;
+
+import com.bookstore.repository.AuthorRepository;
+import com.bookstore.repository.BookFacetView;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.BookTitleView;
+import com.bookstore.repository.entity.Author;
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.SuggestionDTO;
+import com.bookstore.service.event.AuthorChangedEvent;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.event.BooksImportedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * In-memory prefix index over the book titles and the author names, answering the type-ahead completions.
+ * <p>
+ * Every word of a title or a name starts a key (so "vin" completes "The Da Vinci Code"), and the keys are kept in a
+ * sorted array: the keys starting with the typed prefix form one contiguous range, found with two binary searches.
+ * A max segment tree over the weights of the range yields its top k completions in O((k + log n) log n), without
+ * visiting the rest of the range. Authors weigh their number of books, titles weigh 1.
+ * <p>
+ * Like {@link TitleIndex}, writes go to a small delta published with a new snapshot, so readers never lock; the
+ * delta is merged into a new base once it has changed {@link #MERGE_THRESHOLD} entries.
+ */
+@Service
+public class SuggestIndex {
+    static final int MERGE_THRESHOLD = 512;
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final boolean enabled;
+    private volatile Snapshot snapshot;
+    // Only read and written by the writers, under the lock.
+    private final Map<Long, String> authorNames = new HashMap<>();
+    private final Map<Long, Long> authorBooks = new HashMap<>();
+
+    public SuggestIndex(BookRepository bookRepository, AuthorRepository authorRepository,
+                        @Value("${bookstore.search.suggest.enabled:false}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Method to check whether the index is enabled and built, so completions can be served from it.
+     *
+     * @return true if the index is ready.
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Method to build the index from all the books and authors stored in the database.
+     */
+    @EventListener({ApplicationReadyEvent.class, BooksImportedEvent.class})
+    public synchronized void build() {
+        if (!enabled) {
+            return;
+        }
+        authorNames.clear();
+        authorBooks.clear();
+        final List<SuggestionDTO> docs = new ArrayList<>();
+        for (BookTitleView title : bookRepository.findAllTitles()) {
+            docs.add(new SuggestionDTO(SuggestionDTO.Type.BOOK, title.getId(), title.getTitle(), 1));
+        }
+        for (BookFacetView link : bookRepository.findAllAuthorLinks()) {
+            authorBooks.merge(link.getFacetId(), 1L, Long::sum);
+        }
+        for (Author author : authorRepository.findAll()) {
+            authorNames.put(author.getId(), fullName(author.getName(), author.getSurname()));
+            docs.add(authorSuggestion(author.getId()));
+        }
+        snapshot = new Snapshot(Segment.of(docs), Map.of(), Set.of());
+    }
+
+    /**
+     * Method to find the top completions of the given text.
+     *
+     * @param text  the typed text.
+     * @param limit the max number of completions.
+     * @return the completions, by weight descending.
+     * @throws IllegalStateException if the index is not ready.
+     */
+    @NonNull
+    public List<SuggestionDTO> suggest(@NonNull String text, int limit) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Suggest index is not ready");
+        }
+        final String prefix = normalize(text);
+        if (prefix.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        final Map<Long, SuggestionDTO> found = new LinkedHashMap<>();
+        current.base.top(prefix, limit, current.superseded, found);
+        for (SuggestionDTO doc : current.delta.values()) {
+            if (keys(doc.text()).stream().anyMatch(key -> key.startsWith(prefix))) {
+                found.put(docKey(doc), doc);
+            }
+        }
+        return found.values().stream().sorted(RANKING).limit(limit).toList();
+    }
+
+    @EventListener
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        final Map<Long, SuggestionDTO> changes = new HashMap<>();
+        final BookDTO book = event.book();
+        changes.put(-event.bookId(), book == null ? null
+                : new SuggestionDTO(SuggestionDTO.Type.BOOK, event.bookId(), book.getTitle(), 1));
+        final Set<Long> before = authorIds(event.previous());
+        final Set<Long> after = authorIds(book);
+        for (Long authorId : before) {
+            if (!after.contains(authorId)) {
+                authorBooks.merge(authorId, -1L, Long::sum);
+                changes.put(authorId, authorSuggestion(authorId));
+            }
+        }
+        for (Long authorId : after) {
+            if (!before.contains(authorId)) {
+                authorBooks.merge(authorId, 1L, Long::sum);
+                changes.put(authorId, authorSuggestion(authorId));
+            }
+        }
+        publish(current, changes);
+    }
+
+    @EventListener
+    public synchronized void onAuthorChanged(AuthorChangedEvent event) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        final AuthorDTO author = event.author();
+        if (author == null) {
+            authorNames.remove(event.authorId());
+            authorBooks.remove(event.authorId());
+        } else {
+            authorNames.put(event.authorId(), fullName(author.getName(), author.getSurname()));
+        }
+        final Map<Long, SuggestionDTO> changes = new HashMap<>();
+        changes.put(event.authorId(), authorSuggestion(event.authorId()));
+        publish(current, changes);
+    }
+
+    private void publish(Snapshot current, Map<Long, SuggestionDTO> changes) {
+        final Map<Long, SuggestionDTO> delta = new HashMap<>(current.delta);
+        final Set<Long> superseded = new HashSet<>(current.superseded);
+        changes.forEach((docKey, doc) -> {
+            if (doc == null) {
+                delta.remove(docKey);
+            } else {
+                delta.put(docKey, doc);
+            }
+            superseded.add(docKey);
+        });
+        if (superseded.size() < MERGE_THRESHOLD) {
+            snapshot = new Snapshot(current.base, Map.copyOf(delta), Set.copyOf(superseded));
+            return;
+        }
+        final List<SuggestionDTO> docs = new ArrayList<>(delta.values());
+        for (SuggestionDTO doc : current.base.docs) {
+            if (!superseded.contains(docKey(doc))) {
+                docs.add(doc);
+            }
+        }
+        snapshot = new Snapshot(Segment.of(docs), Map.of(), Set.of());
+    }
+
+    @Nullable
+    private SuggestionDTO authorSuggestion(Long authorId) {
+        final String name = authorNames.get(authorId);
+        return name == null ? null
+                : new SuggestionDTO(SuggestionDTO.Type.AUTHOR, authorId, name, authorBooks.getOrDefault(authorId, 0L));
+    }
+
+    private static Set<Long> authorIds(@Nullable BookDTO book) {
+        final Set<Long> ids = new HashSet<>();
+        if (book != null && book.getListOfAuthors() != null) {
+            book.getListOfAuthors().stream().map(AuthorDTO::getId).filter(Objects::nonNull).forEach(ids::add);
+        }
+        return ids;
+    }
+
+    private static String fullName(String name, @Nullable String surname) {
+        return surname == null ? name : name + " " + surname;
+    }
+
+    /**
+     * Books and authors share the id space of the entries: authors keep their id, books take the negated one.
+     */
+    private static long docKey(SuggestionDTO doc) {
+        return doc.type() == SuggestionDTO.Type.BOOK ? -doc.id() : doc.id();
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Method to get the keys of a title or a name: the normalized text starting at each of its words.
+     */
+    private static List<String> keys(String text) {
+        final String normalized = normalize(text == null ? "" : text);
+        final List<String> keys = new ArrayList<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(normalized.substring(i + 1));
+        }
+        return keys;
+    }
+
+    // Sorting is stable, so equal weights keep the order the base segment found them in.
+    private static final Comparator<SuggestionDTO> RANKING = Comparator.comparingLong(SuggestionDTO::weight).reversed();
+
+    private record Snapshot(Segment base, Map<Long, SuggestionDTO> delta, Set<Long> superseded) {
+    }
+
+    /**
+     * Immutable sorted array of keys with a max segment tree over the weights of their entries.
+     */
+    private static final class Segment {
+        final SuggestionDTO[] docs;
+        final String[] keys;
+        final int[] keyDocs;
+        // tree[1] is the root, tree[leaves + i] the key i; every node holds the position of its heaviest key.
+        final int[] tree;
+        final int leaves;
+
+        private Segment(SuggestionDTO[] docs, String[] keys, int[] keyDocs) {
+            this.docs = docs;
+            this.keys = keys;
+            this.keyDocs = keyDocs;
+            int size = 1;
+            while (size < Math.max(1, keys.length)) {
+                size <<= 1;
+            }
+            leaves = size;
+            tree = new int[2 * size];
+            Arrays.fill(tree, -1);
+            for (int i = 0; i < keys.length; i++) {
+                tree[size + i] = i;
+            }
+            for (int node = size - 1; node > 0; node--) {
+                tree[node] = heavier(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        static Segment of(List<SuggestionDTO> docs) {
+            final List<Object[]> entries = new ArrayList<>();
+            for (int doc = 0; doc < docs.size(); doc++) {
+                for (String key : keys(docs.get(doc).text())) {
+                    entries.add(new Object[]{key, doc});
+                }
+            }
+            entries.sort(Comparator.comparing(entry -> (String) entry[0]));
+            final String[] keys = new String[entries.size()];
+            final int[] keyDocs = new int[entries.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = (String) entries.get(i)[0];
+                keyDocs[i] = (Integer) entries.get(i)[1];
+            }
+            return new Segment(docs.toArray(new SuggestionDTO[0]), keys, keyDocs);
+        }
+
+        void top(String prefix, int limit, Set<Long> superseded, Map<Long, SuggestionDTO> found) {
+            final int from = lowerBound(prefix);
+            final int to = lowerBound(prefix + Character.MAX_VALUE);
+            if (from >= to) {
+                return;
+            }
+            // Best-first walk: the canonical nodes of the range, then the children of every popped node.
+            final PriorityQueue<Integer> queue = new PriorityQueue<>(
+                    Comparator.comparingLong((Integer node) -> weight(tree[node])).reversed());
+            for (int lo = from + leaves, hi = to + leaves; lo < hi; lo >>= 1, hi >>= 1) {
+                if ((lo & 1) == 1) {
+                    queue.add(lo++);
+                }
+                if ((hi & 1) == 1) {
+                    queue.add(--hi);
+                }
+            }
+            int taken = 0;
+            while (!queue.isEmpty() && taken < limit) {
+                final int node = queue.poll();
+                if (node >= leaves) {
+                    final SuggestionDTO doc = docs[keyDocs[tree[node]]];
+                    final long docKey = docKey(doc);
+                    if (!superseded.contains(docKey) && found.putIfAbsent(docKey, doc) == null) {
+                        taken++;
+                    }
+                } else {
+                    if (tree[2 * node] >= 0) {
+                        queue.add(2 * node);
+                    }
+                    if (tree[2 * node + 1] >= 0) {
+                        queue.add(2 * node + 1);
+                    }
+                }
+            }
+        }
+
+        private int lowerBound(String key) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private long weight(int position) {
+            return position < 0 ? Long.MIN_VALUE : docs[keyDocs[position]].weight();
+        }
+
+        private int heavier(int left, int right) {
+            if (left < 0 || right < 0) {
+                return left < 0 ? right : left;
+            }
+            return weight(right) > weight(left) ? right : left;
+        }
+    }
+}
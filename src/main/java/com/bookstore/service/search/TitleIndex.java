@@ -0,0 +1,655 @@
+package com.bookstore.service.search;
+
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.BookTitleView;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.event.BooksImportedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * In-memory inverted index from the trigrams of the book titles to the ids of the books, answering the
+ * case-insensitive substring title search without a database query.
+ * <p>
+ * Each segment also keeps the dictionary of the title words with their posting lists, and a BK-tree over the words
+ * for the typo-tolerant search: the triangle inequality of the edit distance prunes the tree, so a lookup visits a
+ * small part of the dictionary instead of all of it.
+ * <p>
+ * The index is a large immutable base segment plus a small delta segment holding the recent writes and the set of
+ * base ids those writes superseded. A write derives a new delta from the previous one, copying only the posting
+ * lists of the trigrams and words of the changed title, and publishes a new snapshot, so readers never lock. Once
+ * the delta grows past {@link #MERGE_THRESHOLD} documents it is merged into a new base on a background thread, the
+ * writes going on meanwhile.
+ * <p>
+ * Book ids come from an integer sequence, so the posting lists are plain {@code int[]}.
+ */
+@Service
+public class TitleIndex {
+    static final int MERGE_THRESHOLD = 1024;
+    private static final int GRAM = 3;
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+    private final SegmentMerger merger = new SegmentMerger("title-index-merge");
+    private volatile Snapshot snapshot;
+
+    public TitleIndex(BookRepository bookRepository,
+                      @Value("${bookstore.search.title-index.enabled:false}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Method to check whether the index is enabled and built, so searches can be served from it.
+     *
+     * @return true if the index is ready.
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Method to build the index from all the books stored in the database.
+     */
+    @EventListener({ApplicationReadyEvent.class, BooksImportedEvent.class})
+    public synchronized void build() {
+        if (!enabled) {
+            return;
+        }
+        final Map<Integer, String> docs = new HashMap<>();
+        for (BookTitleView title : bookRepository.findAllTitles()) {
+            docs.put(Math.toIntExact(title.getId()), normalize(title.getTitle()));
+        }
+        merger.cancel();
+        snapshot = new Snapshot(Segment.of(docs), Segment.EMPTY, new int[0]);
+    }
+
+    /**
+     * Method to find the books whose title contains the given text, ignoring the case.
+     *
+     * @param text the text to search for.
+     * @return the sorted ids of the matching books.
+     * @throws IllegalStateException if the index is not ready.
+     */
+    @NonNull
+    public int[] search(@NonNull String text) {
+        final Snapshot current = current();
+        final String query = normalize(text);
+        final int[] fromBase = current.base.search(query, current.superseded);
+        final int[] fromDelta = current.delta.search(query, null);
+        return union(fromBase, fromDelta);
+    }
+
+    /**
+     * Method to find the books whose title has, for every word of the given text, a word within a small edit
+     * distance of it (see {@link #maxDistance}), ignoring the case.
+     *
+     * @param text the text to search for.
+     * @return the sorted ids of the matching books.
+     * @throws IllegalStateException if the index is not ready.
+     */
+    @NonNull
+    public int[] searchFuzzy(@NonNull String text) {
+        final Snapshot current = current();
+        final List<String> words = words(normalize(text));
+        if (words.isEmpty()) {
+            return new int[0];
+        }
+        return union(current.base.searchFuzzy(words, current.superseded), current.delta.searchFuzzy(words, null));
+    }
+
+    /**
+     * Method to correct the misspelled words of the given text with the closest words of the titles, the most
+     * frequent one on a tie.
+     *
+     * @param text the text to correct.
+     * @return the corrected lowercase text, null if there is nothing to correct.
+     * @throws IllegalStateException if the index is not ready.
+     */
+    @Nullable
+    public String correct(@NonNull String text) {
+        final Snapshot current = current();
+        final List<String> words = words(normalize(text));
+        final List<String> corrected = new ArrayList<>(words.size());
+        for (String word : words) {
+            final Map<String, Integer> candidates = new HashMap<>();
+            current.base.similar(word, candidates);
+            current.delta.similar(word, candidates);
+            final String best = candidates.entrySet().stream()
+                    .min(Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue)
+                            .thenComparing(entry -> -current.frequency(entry.getKey()))
+                            .thenComparing(Map.Entry::getKey))
+                    .map(Map.Entry::getKey)
+                    .orElse(word);
+            corrected.add(best);
+        }
+        return corrected.equals(words) ? null : String.join(" ", corrected);
+    }
+
+    /**
+     * Method to get the max edit distance tolerated for a word: none up to 2 characters, 1 up to 5, then 2.
+     */
+    static int maxDistance(String word) {
+        return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.book() == null) {
+            remove(Math.toIntExact(event.bookId()));
+        } else {
+            put(Math.toIntExact(event.bookId()), event.book().getTitle());
+        }
+    }
+
+    synchronized void put(int id, String title) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        publish(current, id, current.delta.with(id, normalize(title)));
+    }
+
+    synchronized void remove(int id) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        publish(current, id, current.delta.without(id));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        merger.shutdown();
+    }
+
+    private void publish(Snapshot current, int id, Segment delta) {
+        snapshot = new Snapshot(current.base, delta,
+                current.base.contains(id) ? insert(current.superseded, id) : current.superseded);
+        merger.written(id);
+        mergeIfFull();
+    }
+
+    private void mergeIfFull() {
+        final Snapshot frozen = snapshot;
+        if (Math.max(frozen.delta.ids.length, frozen.superseded.length) >= MERGE_THRESHOLD) {
+            merger.start(() -> merge(frozen));
+        }
+    }
+
+    /**
+     * Method to merge the delta of the given snapshot into its base, then to publish the merged base with the
+     * writes made meanwhile as its delta. Runs on the merge thread.
+     */
+    private void merge(Snapshot frozen) {
+        final Map<Integer, String> docs = new HashMap<>(frozen.base.ids.length + frozen.delta.ids.length);
+        for (int i = 0; i < frozen.base.ids.length; i++) {
+            if (Arrays.binarySearch(frozen.superseded, frozen.base.ids[i]) < 0) {
+                docs.put(frozen.base.ids[i], frozen.base.titles[i]);
+            }
+        }
+        for (int i = 0; i < frozen.delta.ids.length; i++) {
+            docs.put(frozen.delta.ids[i], frozen.delta.titles[i]);
+        }
+        final Segment base = Segment.of(docs);
+        synchronized (this) {
+            final Snapshot current = snapshot;
+            if (current == null || current.base != frozen.base) {
+                // Rebuilt meanwhile.
+                return;
+            }
+            Segment delta = Segment.EMPTY;
+            int[] superseded = new int[0];
+            for (int id : merger.finish()) {
+                final int index = Arrays.binarySearch(current.delta.ids, id);
+                if (index >= 0) {
+                    delta = delta.with(id, current.delta.titles[index]);
+                }
+                if (base.contains(id)) {
+                    superseded = insert(superseded, id);
+                }
+            }
+            snapshot = new Snapshot(base, delta, superseded);
+            mergeIfFull();
+        }
+    }
+
+    private Snapshot current() {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Title index is not ready");
+        }
+        return current;
+    }
+
+    private static List<String> words(String text) {
+        final List<String> words = new ArrayList<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Method to get the Levenshtein distance of two words, with two rows of the dynamic programming table.
+     */
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            row[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                final int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                row[j] = Math.min(substitution, Math.min(previous[j], row[j - 1]) + 1);
+            }
+            final int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static String normalize(String title) {
+        return title == null ? "" : title.toLowerCase(Locale.ROOT);
+    }
+
+    private static long gram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    private static Set<Long> grams(@Nullable String text) {
+        final Set<Long> grams = new HashSet<>();
+        for (int from = 0; text != null && from + GRAM <= text.length(); from++) {
+            grams.add(gram(text, from));
+        }
+        return grams;
+    }
+
+    private static int[] insert(int[] sorted, int value) {
+        final int position = Arrays.binarySearch(sorted, value);
+        if (position >= 0) {
+            return sorted;
+        }
+        final int at = -position - 1;
+        final int[] result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(sorted, at, result, at + 1, sorted.length - at);
+        return result;
+    }
+
+    private static int[] delete(int[] sorted, int value) {
+        final int position = Arrays.binarySearch(sorted, value);
+        if (position < 0) {
+            return sorted;
+        }
+        final int[] result = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, position);
+        System.arraycopy(sorted, position + 1, result, position, sorted.length - position - 1);
+        return result;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        final int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[n++] = a[i++];
+        }
+        while (j < b.length) {
+            result[n++] = b[j++];
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        final int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private record Snapshot(Segment base, Segment delta, int[] superseded) {
+        int frequency(String word) {
+            return base.terms.getOrDefault(word, new int[0]).length + delta.terms.getOrDefault(word, new int[0]).length;
+        }
+    }
+
+    /**
+     * Immutable set of documents: sorted ids, their normalized titles, the trigram posting lists and the word
+     * dictionary. The tree may hold words no document has any more, which the lookups skip.
+     */
+    private static final class Segment {
+        static final Segment EMPTY = of(Map.of());
+
+        final int[] ids;
+        final String[] titles;
+        final Map<Long, int[]> postings;
+        final Map<String, int[]> terms;
+        final BkTree tree;
+
+        private Segment(int[] ids, String[] titles, Map<Long, int[]> postings, Map<String, int[]> terms,
+                        BkTree tree) {
+            this.ids = ids;
+            this.titles = titles;
+            this.postings = postings;
+            this.terms = terms;
+            this.tree = tree;
+        }
+
+        static Segment of(Map<Integer, String> docs) {
+            final int[] ids = docs.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            final String[] titles = new String[ids.length];
+            final Map<Long, IntList> lists = new HashMap<>();
+            final Map<String, IntList> wordLists = new HashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                titles[i] = docs.get(ids[i]);
+                for (int from = 0; from + GRAM <= titles[i].length(); from++) {
+                    // Ids are visited in ascending order, so a list only needs a check against its last id.
+                    lists.computeIfAbsent(gram(titles[i], from), key -> new IntList()).addIfGreater(ids[i]);
+                }
+                for (String word : words(titles[i])) {
+                    wordLists.computeIfAbsent(word, key -> new IntList()).addIfGreater(ids[i]);
+                }
+            }
+            final Map<Long, int[]> postings = new HashMap<>(lists.size() * 2);
+            lists.forEach((gram, list) -> postings.put(gram, list.toArray()));
+            final Map<String, int[]> terms = new HashMap<>(wordLists.size() * 2);
+            wordLists.forEach((word, list) -> terms.put(word, list.toArray()));
+            final BkTree tree = new BkTree();
+            terms.keySet().stream().sorted().forEach(tree::add);
+            return new Segment(ids, titles, postings, terms, tree);
+        }
+
+        /**
+         * Method to get a copy of the segment with the given title for the document, sharing everything but the
+         * posting lists of the trigrams and words of its previous and new titles.
+         */
+        Segment with(int id, String title) {
+            final int index = Arrays.binarySearch(ids, id);
+            final String previous = index >= 0 ? titles[index] : null;
+            final int[] newIds = index >= 0 ? ids : insert(ids, id);
+            final String[] newTitles = new String[newIds.length];
+            final int at = index >= 0 ? index : -index - 1;
+            System.arraycopy(titles, 0, newTitles, 0, at);
+            newTitles[at] = title;
+            System.arraycopy(titles, index >= 0 ? at + 1 : at, newTitles, at + 1, newIds.length - at - 1);
+            final Set<String> words = new HashSet<>(words(title));
+            BkTree newTree = tree;
+            for (String word : words) {
+                if (!terms.containsKey(word)) {
+                    newTree = newTree.plus(word);
+                }
+            }
+            return new Segment(newIds, newTitles, relink(postings, grams(previous), grams(title), id),
+                    relink(terms, previous == null ? Set.of() : new HashSet<>(words(previous)), words, id), newTree);
+        }
+
+        /**
+         * Method to get a copy of the segment without the document, the same segment if it is not there.
+         */
+        Segment without(int id) {
+            final int index = Arrays.binarySearch(ids, id);
+            if (index < 0) {
+                return this;
+            }
+            final String[] newTitles = new String[ids.length - 1];
+            System.arraycopy(titles, 0, newTitles, 0, index);
+            System.arraycopy(titles, index + 1, newTitles, index, ids.length - index - 1);
+            return new Segment(delete(ids, id), newTitles, relink(postings, grams(titles[index]), Set.of(), id),
+                    relink(terms, new HashSet<>(words(titles[index])), Set.of(), id), tree);
+        }
+
+        private static <K> Map<K, int[]> relink(Map<K, int[]> lists, Set<K> removed, Set<K> added, int id) {
+            final Map<K, int[]> result = new HashMap<>(lists);
+            for (K key : removed) {
+                if (!added.contains(key)) {
+                    final int[] list = delete(result.get(key), id);
+                    if (list.length == 0) {
+                        result.remove(key);
+                    } else {
+                        result.put(key, list);
+                    }
+                }
+            }
+            for (K key : added) {
+                if (!removed.contains(key)) {
+                    result.put(key, insert(result.getOrDefault(key, new int[0]), id));
+                }
+            }
+            return result;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        /**
+         * Method to add the words of the segment within the max edit distance of the given word to the found ones.
+         */
+        void similar(String word, Map<String, Integer> found) {
+            final Map<String, Integer> words = new HashMap<>();
+            tree.search(word, maxDistance(word), words);
+            words.forEach((similar, distance) -> {
+                if (terms.containsKey(similar)) {
+                    found.merge(similar, distance, Math::min);
+                }
+            });
+        }
+
+        int[] search(String query, int[] excluded) {
+            int[] candidates = null;
+            if (query.length() >= GRAM) {
+                final List<int[]> lists = new ArrayList<>();
+                for (int from = 0; from + GRAM <= query.length(); from++) {
+                    final int[] list = postings.get(gram(query, from));
+                    if (list == null) {
+                        return new int[0];
+                    }
+                    lists.add(list);
+                }
+                lists.sort(Comparator.comparingInt(list -> list.length));
+                candidates = lists.get(0);
+                for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+                    candidates = intersect(candidates, lists.get(i));
+                }
+            }
+            // Trigrams only narrow the candidates down; the title itself decides the match.
+            final IntList matches = new IntList();
+            if (candidates == null) {
+                for (int i = 0; i < ids.length; i++) {
+                    addIfMatches(matches, i, query, excluded);
+                }
+            } else {
+                for (int id : candidates) {
+                    addIfMatches(matches, Arrays.binarySearch(ids, id), query, excluded);
+                }
+            }
+            return matches.toArray();
+        }
+
+        int[] searchFuzzy(List<String> words, int[] excluded) {
+            int[] candidates = null;
+            for (String word : words) {
+                final Map<String, Integer> similar = new HashMap<>();
+                similar(word, similar);
+                int[] matching = new int[0];
+                for (String term : similar.keySet()) {
+                    matching = union(matching, terms.get(term));
+                }
+                candidates = candidates == null ? matching : intersect(candidates, matching);
+                if (candidates.length == 0) {
+                    return candidates;
+                }
+            }
+            if (excluded == null || excluded.length == 0) {
+                return candidates;
+            }
+            final IntList matches = new IntList();
+            for (int id : candidates) {
+                if (Arrays.binarySearch(excluded, id) < 0) {
+                    matches.addIfGreater(id);
+                }
+            }
+            return matches.toArray();
+        }
+
+        private void addIfMatches(IntList matches, int index, String query, int[] excluded) {
+            if (titles[index].contains(query) && (excluded == null || Arrays.binarySearch(excluded, ids[index]) < 0)) {
+                matches.addIfGreater(ids[index]);
+            }
+        }
+    }
+
+    /**
+     * Burkhard-Keller tree of words: the children of a node are keyed by their edit distance to it, so a lookup
+     * within distance k of the query only descends into the children at distance d - k to d + k, d being the
+     * distance of the query to the node.
+     * <p>
+     * A tree is filled with {@link #add} before it is published, and only copied with {@link #plus} after.
+     */
+    private static final class BkTree {
+        private String word;
+        private Map<Integer, BkTree> children;
+
+        void add(String added) {
+            if (word == null) {
+                word = added;
+                return;
+            }
+            BkTree node = this;
+            while (true) {
+                final int distance = distance(added, node.word);
+                if (distance == 0) {
+                    return;
+                }
+                if (node.children == null) {
+                    node.children = new HashMap<>();
+                }
+                final BkTree child = node.children.get(distance);
+                if (child == null) {
+                    final BkTree leaf = new BkTree();
+                    leaf.word = added;
+                    node.children.put(distance, leaf);
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        /**
+         * Method to get a tree with the word added, copying the nodes on the path to its leaf and sharing the rest.
+         */
+        BkTree plus(String added) {
+            if (word == null) {
+                final BkTree leaf = new BkTree();
+                leaf.word = added;
+                return leaf;
+            }
+            final List<BkTree> path = new ArrayList<>();
+            final List<Integer> distances = new ArrayList<>();
+            BkTree node = this;
+            while (node != null) {
+                final int distance = distance(added, node.word);
+                if (distance == 0) {
+                    return this;
+                }
+                path.add(node);
+                distances.add(distance);
+                node = node.children == null ? null : node.children.get(distance);
+            }
+            BkTree copy = new BkTree();
+            copy.word = added;
+            for (int i = path.size() - 1; i >= 0; i--) {
+                final BkTree parent = new BkTree();
+                parent.word = path.get(i).word;
+                parent.children = path.get(i).children == null ? new HashMap<>() : new HashMap<>(path.get(i).children);
+                parent.children.put(distances.get(i), copy);
+                copy = parent;
+            }
+            return copy;
+        }
+
+        void search(String query, int maxDistance, Map<String, Integer> found) {
+            if (word == null) {
+                return;
+            }
+            final Deque<BkTree> pending = new ArrayDeque<>();
+            pending.push(this);
+            while (!pending.isEmpty()) {
+                final BkTree node = pending.pop();
+                final int distance = distance(query, node.word);
+                if (distance <= maxDistance) {
+                    found.merge(node.word, distance, Math::min);
+                }
+                if (node.children == null) {
+                    continue;
+                }
+                for (int d = Math.max(1, distance - maxDistance); d <= distance + maxDistance; d++) {
+                    final BkTree child = node.children.get(d);
+                    if (child != null) {
+                        pending.push(child);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable sorted list of primitive ints.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addIfGreater(int value) {
+            if (size > 0 && values[size - 1] >= value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
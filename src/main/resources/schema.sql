@@ -20,6 +20,13 @@ SET default_tablespace = '';
 
 SET default_table_access_method = heap;
 
+--
+-- Name: pg_trgm; Type: EXTENSION; Schema: -; Owner: -
+--
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+
 --
 -- Name: author; Type: TABLE; Schema: public; Owner: postgres
 --
@@ -27,7 +34,8 @@ SET default_table_access_method = heap;
 CREATE TABLE public.author (
                                id bigint NOT NULL,
                                name character varying(256) NOT NULL,
-                               surname character varying(256)
+                               surname character varying(256),
+                               version bigint DEFAULT 0 NOT NULL
 );
 
 
@@ -65,12 +73,32 @@ CREATE TABLE public.book (
                              description character varying,
                              price double precision,
                              creation_date timestamp with time zone DEFAULT now() NOT NULL,
-                             year integer
+                             year integer,
+                             version bigint DEFAULT 0 NOT NULL
 );
 
 
 ALTER TABLE public.book OWNER TO postgres;
 
+--
+-- Name: book_read; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE public.book_read (
+                                  id bigint NOT NULL,
+                                  title character varying(256) NOT NULL,
+                                  description character varying,
+                                  price double precision,
+                                  year integer,
+                                  creation_date timestamp with time zone NOT NULL,
+                                  authors jsonb DEFAULT '[]'::jsonb NOT NULL,
+                                  genres jsonb DEFAULT '[]'::jsonb NOT NULL,
+                                  version bigint DEFAULT 0 NOT NULL
+);
+
+
+ALTER TABLE public.book_read OWNER TO postgres;
+
 --
 -- Name: book_author; Type: TABLE; Schema: public; Owner: postgres
 --
@@ -143,6 +171,21 @@ CREATE TABLE public.users (
 
 ALTER TABLE public.users OWNER TO postgres;
 
+--
+-- Name: refresh_token; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE public.refresh_token (
+                                      token_hash bytea NOT NULL,
+                                      family_id uuid NOT NULL,
+                                      user_id integer NOT NULL,
+                                      expires_at timestamp with time zone NOT NULL,
+                                      used_at timestamp with time zone
+);
+
+
+ALTER TABLE public.refresh_token OWNER TO postgres;
+
 
 --
 -- Name: author pk_author; Type: CONSTRAINT; Schema: public; Owner: postgres
@@ -160,6 +203,14 @@ ALTER TABLE ONLY public.book
     ADD CONSTRAINT pk_book PRIMARY KEY (id);
 
 
+--
+-- Name: book_read pk_book_read; Type: CONSTRAINT; Schema: public; Owner: postgres
+--
+
+ALTER TABLE ONLY public.book_read
+    ADD CONSTRAINT pk_book_read PRIMARY KEY (id);
+
+
 --
 -- Name: genre pk_genre; Type: CONSTRAINT; Schema: public; Owner: postgres
 --
@@ -184,6 +235,14 @@ ALTER TABLE ONLY public.users
     ADD CONSTRAINT unique_username UNIQUE (username);
 
 
+--
+-- Name: refresh_token pk_refresh_token; Type: CONSTRAINT; Schema: public; Owner: postgres
+--
+
+ALTER TABLE ONLY public.refresh_token
+    ADD CONSTRAINT pk_refresh_token PRIMARY KEY (token_hash);
+
+
 --
 -- Name: fki_fk_book_author_book; Type: INDEX; Schema: public; Owner: postgres
 --
@@ -219,6 +278,48 @@ CREATE INDEX fki_fk_bookgenre_genre ON public.book_genre USING btree (genre_id);
 CREATE INDEX idx_title ON public.book USING btree (title);
 
 
+--
+-- Name: idx_book_title_trgm; Type: INDEX; Schema: public; Owner: postgres
+--
+
+CREATE INDEX idx_book_title_trgm ON public.book USING gin (lower((title)::text) public.gin_trgm_ops);
+
+
+--
+-- Name: idx_book_title_fts; Type: INDEX; Schema: public; Owner: postgres
+--
+
+CREATE INDEX idx_book_title_fts ON public.book USING gin (to_tsvector('simple'::regconfig, (title)::text));
+
+
+--
+-- Name: idx_book_title_id; Type: INDEX; Schema: public; Owner: postgres
+--
+
+CREATE INDEX idx_book_title_id ON public.book USING btree (title, id);
+
+
+--
+-- Name: idx_book_price_id; Type: INDEX; Schema: public; Owner: postgres
+--
+
+CREATE INDEX idx_book_price_id ON public.book USING btree (price, id);
+
+
+--
+-- Name: idx_book_year_id; Type: INDEX; Schema: public; Owner: postgres
+--
+
+CREATE INDEX idx_book_year_id ON public.book USING btree (year, id);
+
+
+--
+-- Name: idx_book_creation_date_id; Type: INDEX; Schema: public; Owner: postgres
+--
+
+CREATE INDEX idx_book_creation_date_id ON public.book USING btree (creation_date, id);
+
+
 --
 -- Name: idx_username; Type: INDEX; Schema: public; Owner: postgres
 --
@@ -226,6 +327,20 @@ CREATE INDEX idx_title ON public.book USING btree (title);
 CREATE INDEX idx_username ON public.users USING btree (username);
 
 
+--
+-- Name: idx_refresh_token_family; Type: INDEX; Schema: public; Owner: postgres
+--
+
+CREATE INDEX idx_refresh_token_family ON public.refresh_token USING btree (family_id);
+
+
+--
+-- Name: idx_refresh_token_user_expires; Type: INDEX; Schema: public; Owner: postgres
+--
+
+CREATE INDEX idx_refresh_token_user_expires ON public.refresh_token USING btree (user_id, expires_at);
+
+
 --
 -- Name: book_author fk_bookauthor_author; Type: FK CONSTRAINT; Schema: public; Owner: postgres
 --
@@ -250,6 +365,14 @@ ALTER TABLE ONLY public.book_genre
     ADD CONSTRAINT fk_bookgenre_book FOREIGN KEY (book_id) REFERENCES public.book(id) NOT VALID;
 
 
+--
+-- Name: refresh_token fk_refreshtoken_users; Type: FK CONSTRAINT; Schema: public; Owner: postgres
+--
+
+ALTER TABLE ONLY public.refresh_token
+    ADD CONSTRAINT fk_refreshtoken_users FOREIGN KEY (user_id) REFERENCES public.users(id) ON DELETE CASCADE;
+
+
 --
 -- Name: book_genre fk_bookgenre_genre; Type: FK CONSTRAINT; Schema: public; Owner: postgres
 --
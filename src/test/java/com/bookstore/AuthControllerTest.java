@@ -0,0 +1,123 @@
+package com.bookstore;
+
+import com.bookstore.controller.AuthController;
+import com.bookstore.service.dto.JwtDTO;
+import com.bookstore.service.dto.RefreshRequestDTO;
+import com.bookstore.service.dto.SignInRequestDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.*;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link AuthController}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.profiles.active=test")
+public class AuthControllerTest {
+    @Autowired
+    TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    // The default request factory of the template can not read a 401 response to a POST request.
+    private TestRestTemplate authTemplate;
+
+    @BeforeEach
+    public void setup() {
+        authTemplate = new TestRestTemplate(new RestTemplateBuilder()
+                .rootUri(restTemplate.getRootUri()).requestFactory(() -> new JdkClientHttpRequestFactory()));
+    }
+
+    @Test
+    void refreshSuccessTest() {
+        final JwtDTO signedIn = signIn("admin", "pass1");
+        assertThat(signedIn.refreshToken()).isNotBlank();
+
+        final ResponseEntity<JwtDTO> response = authTemplate.postForEntity("/auth/refresh",
+                new RefreshRequestDTO(signedIn.refreshToken()), JwtDTO.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        final JwtDTO refreshed = response.getBody();
+        assertThat(refreshed.refreshToken()).isNotEqualTo(signedIn.refreshToken());
+
+        // The refreshed access token keeps the role of the user.
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", refreshed.accessToken());
+        assertThat(authTemplate.exchange("/author/count", HttpMethod.GET, new HttpEntity<>(null, headers),
+                String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(authTemplate.exchange("/actuator/health", HttpMethod.GET, new HttpEntity<>(null, headers),
+                String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void refreshReusedTokenRevokesFamilyTest() {
+        final JwtDTO signedIn = signIn("user", "pass2");
+        final JwtDTO refreshed = authTemplate.postForEntity("/auth/refresh",
+                new RefreshRequestDTO(signedIn.refreshToken()), JwtDTO.class).getBody();
+        assertThat(refreshed).isNotNull();
+
+        ResponseEntity<JwtDTO> response = authTemplate.postForEntity("/auth/refresh",
+                new RefreshRequestDTO(signedIn.refreshToken()), JwtDTO.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        // The token it was rotated into is revoked with it.
+        response = authTemplate.postForEntity("/auth/refresh", new RefreshRequestDTO(refreshed.refreshToken()),
+                JwtDTO.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void signOutSuccessTest() {
+        final JwtDTO signedIn = signIn("user", "pass2");
+        final ResponseEntity<Void> signOut = authTemplate.postForEntity("/auth/signout",
+                new RefreshRequestDTO(signedIn.refreshToken()), Void.class);
+        assertThat(signOut.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        final ResponseEntity<JwtDTO> response = authTemplate.postForEntity("/auth/refresh",
+                new RefreshRequestDTO(signedIn.refreshToken()), JwtDTO.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void refreshInvalidTokenTest() {
+        assertThat(authTemplate.postForEntity("/auth/refresh", new RefreshRequestDTO("unknown"), JwtDTO.class)
+                .getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(authTemplate.postForEntity("/auth/refresh", new RefreshRequestDTO(null), JwtDTO.class)
+                .getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void signInInvalidTest() {
+        final ResponseEntity<JwtDTO> response = authTemplate.postForEntity("/auth/signin",
+                new SignInRequestDTO("user", "wrong"), JwtDTO.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(authTemplate.postForEntity("/auth/signin", new SignInRequestDTO("unknown", "pass2"),
+                JwtDTO.class).getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void signInRehashTest() {
+        // The test data is hashed with the work factor 10 and the test profile configures 4.
+        signIn("user", "pass2");
+        final String rehashed = jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = ?",
+                String.class, "user");
+        assertThat(rehashed).startsWith("$2a$04$");
+
+        signIn("user", "pass2");
+        assertThat(jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = ?", String.class,
+                "user")).isEqualTo(rehashed);
+        assertThat(authTemplate.postForEntity("/auth/signin", new SignInRequestDTO("user", "wrong"),
+                JwtDTO.class).getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    private JwtDTO signIn(final String username, final String password) {
+        final ResponseEntity<JwtDTO> response = authTemplate.postForEntity("/auth/signin",
+                new SignInRequestDTO(username, password), JwtDTO.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        return response.getBody();
+    }
+}
@@ -12,7 +12,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -29,6 +32,8 @@ public class AuthorControllerTest {
 
     @Autowired
     TestRestTemplate restTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
 
 
     @BeforeEach
@@ -51,6 +56,25 @@ public class AuthorControllerTest {
         setupIsDone = true;
     }
 
+    @Test
+    void getAuthorsCountApproximateSuccessTest() {
+        jdbcTemplate.execute("analyze author");
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/author/count?approximate=true", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        final DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((Integer) documentContext.read("$.count")).isEqualTo(4);
+        assertThat((Boolean) documentContext.read("$.exact")).isFalse();
+        assertThat((Integer) documentContext.read("$.errorBound")).isPositive();
+
+        response = restTemplate
+                .exchange("/author/count?approximate=false", HttpMethod.GET, request, String.class);
+        assertThat(response.getBody()).isEqualTo("4");
+    }
+
     @Test
     void getAllAuthorsSuccessTest() {
         final HttpHeaders headers = new HttpHeaders();
@@ -256,6 +280,90 @@ public class AuthorControllerTest {
         assertThat(surname).isEqualTo(updatedAuthor.getSurname());
     }
 
+    @Test
+    @DirtiesContext
+    void updateAuthorIfMatchTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/author/1", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"0\"");
+        headers.setIfNoneMatch("\"0\"");
+        response = restTemplate.exchange("/author/1", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        headers.remove(HttpHeaders.IF_NONE_MATCH);
+
+        final AuthorDTO authorDTO = new AuthorDTO();
+        authorDTO.setName("Steve");
+        authorDTO.setSurname("King");
+        headers.setIfMatch("\"0\"");
+        response = restTemplate.exchange("/author/1", HttpMethod.PUT, new HttpEntity<>(authorDTO, headers),
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"1\"");
+        assertThat((String) JsonPath.parse(response.getBody()).read("$.name")).isEqualTo("Steve");
+
+        response = restTemplate.exchange("/author/1", HttpMethod.PUT, new HttpEntity<>(authorDTO, headers),
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        headers.remove(HttpHeaders.IF_MATCH);
+
+        response = restTemplate.exchange("/author/1", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat((String) JsonPath.parse(response.getBody()).read("$.name")).isEqualTo("Steve");
+        // The book embeds the author, so its tag changes with the author.
+        response = restTemplate.exchange("/book/2", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"0.1\"");
+        assertThat((JSONArray) JsonPath.parse(response.getBody()).read("$.listOfAuthors[*].name"))
+                .containsExactly("Steve");
+    }
+
+    @Test
+    @DirtiesContext
+    void patchAuthorSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        headers.setIfMatch("\"0\"");
+        ResponseEntity<String> response = patch("/author/1", "{\"surname\": \"K.\"}", headers);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"1\"");
+        final DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((String) documentContext.read("$.name")).isEqualTo("Stephen");
+        assertThat((String) documentContext.read("$.surname")).isEqualTo("K.");
+
+        response = patch("/author/1", "{\"surname\": \"King\"}", headers);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        headers.remove(HttpHeaders.IF_MATCH);
+        assertThat(patch("/author/1", "{\"name\": \"\"}", headers).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(patch("/author/1000", "{\"name\": \"Nobody\"}", headers).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        response = restTemplate.exchange("/book/2", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat((JSONArray) JsonPath.parse(response.getBody()).read("$.listOfAuthors[*].surname"))
+                .containsExactly("K.");
+    }
+
+    @Test
+    @DirtiesContext
+    void updateAuthorRefreshesBooksSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        final AuthorDTO authorDTO = new AuthorDTO();
+        authorDTO.setName("Steve");
+        authorDTO.setSurname("King");
+        final ResponseEntity<AuthorDTO> updateResponse = restTemplate
+                .exchange("/author/1", HttpMethod.PUT, new HttpEntity<>(authorDTO, headers), AuthorDTO.class);
+        assertThat(updateResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        final ResponseEntity<String> getResponse = restTemplate
+                .exchange("/book/2", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        final DocumentContext documentContext = JsonPath.parse(getResponse.getBody());
+        assertThat((JSONArray) documentContext.read("$.listOfAuthors[*].name")).containsExactly("Steve");
+        assertThat(jdbcTemplate.queryForObject("select authors->0->>'name' from book_read where id = 2",
+                String.class)).isEqualTo("Steve");
+    }
+
     @Test
     @DirtiesContext
     void updateAuthorUnauthorizedTest() {
@@ -350,4 +458,73 @@ public class AuthorControllerTest {
         assertThat(deleteResponse.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
         assertThat(deleteResponse.getBody()).isNull();
     }
+
+    @Test
+    @DirtiesContext
+    void applyBatchSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        final String batch = """
+                [{"operation": "CREATE", "item": {"name": "Paulo", "surname": "Coelho"}},
+                 {"operation": "UPDATE", "id": 4, "item": {"name": "C. S.", "surname": "Lewis"}},
+                 {"operation": "DELETE", "id": 2},
+                 {"operation": "DELETE", "id": 100},
+                 {"operation": "CREATE", "item": {"name": " "}}]
+                """;
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        final ResponseEntity<String> response = restTemplate.postForEntity("/author/batch",
+                new HttpEntity<>(batch, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        final DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$[*].status")).containsExactly(201, 200, 200, 404, 400);
+        assertThat((String) documentContext.read("$[4].error")).isEqualTo("The name is required");
+        final Integer createdId = documentContext.read("$[0].id");
+
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        assertThat(restTemplate.exchange("/author/" + createdId, HttpMethod.GET, request, String.class)
+                .getBody()).contains("Coelho");
+        assertThat(restTemplate.exchange("/author/4", HttpMethod.GET, request, String.class).getBody())
+                .contains("C. S.");
+        assertThat(restTemplate.exchange("/author/2", HttpMethod.GET, request, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @DirtiesContext
+    void applyBatchRolledBackTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        final String batch = """
+                [{"operation": "UPDATE", "id": 2, "item": {"name": "Nicholas", "surname": "Sparks"}},
+                 {"operation": "DELETE", "id": 1}]
+                """;
+        final ResponseEntity<String> response = restTemplate.postForEntity("/author/batch",
+                new HttpEntity<>(batch, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        assertThat(restTemplate.exchange("/author/2", HttpMethod.GET, request, String.class).getBody())
+                .contains("Nicolas");
+        assertThat(restTemplate.exchange("/author/1", HttpMethod.GET, request, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void applyBatchUnauthorizedWithUserTokenTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        final ResponseEntity<String> response = restTemplate.postForEntity("/author/batch",
+                new HttpEntity<>("[{\"operation\": \"DELETE\", \"id\": 2}]", headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    private ResponseEntity<String> patch(final String url, final String json, final HttpHeaders headers) {
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        // The default request factory of the template can not send PATCH requests.
+        final TestRestTemplate patchTemplate = new TestRestTemplate(new RestTemplateBuilder()
+                .rootUri(restTemplate.getRootUri()).requestFactory(() -> new JdkClientHttpRequestFactory()));
+        return patchTemplate.exchange(url, HttpMethod.PATCH, new HttpEntity<>(json, headers), String.class);
+    }
 }
@@ -2,20 +2,27 @@ package com.bookstore;
 
 import com.bookstore.exception.NotFoundException;
 import com.bookstore.repository.AuthorRepository;
+import com.bookstore.repository.DirectWriteRepository;
+import com.bookstore.repository.TableEstimateView;
 import com.bookstore.repository.entity.Author;
 import com.bookstore.service.AuthorService;
 import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.AuthorPatchDTO;
+import com.bookstore.service.dto.BatchOperationDTO;
+import com.bookstore.service.dto.BatchResultDTO;
+import com.bookstore.service.dto.CountDTO;
+import com.bookstore.service.event.AuthorChangedEvent;
 import org.easymock.EasyMock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.annotation.DirtiesContext;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.easymock.EasyMock.*;
@@ -29,12 +36,15 @@ class AuthorServiceTest {
     private static final Long AUTHOR_ID = 1L;
     private AuthorService authorService;
     private AuthorRepository authorRepository;
+    private DirectWriteRepository directWriteRepository;
 
 
     @BeforeEach
     public void setup() {
         authorRepository = EasyMock.createMock(AuthorRepository.class);
-        authorService = new AuthorService(authorRepository);
+        directWriteRepository = EasyMock.createMock(DirectWriteRepository.class);
+        authorService = new AuthorService(authorRepository, directWriteRepository, event -> {
+        });
     }
 
     @Test
@@ -73,6 +83,27 @@ class AuthorServiceTest {
         assertThat(response).isEqualTo(AuthorDTO.mapEntitiesToDTOs(List.of(author)));
     }
 
+    @Test
+    void getAuthorsCountEstimateSuccessTest() {
+        reset(authorRepository);
+        expect(authorRepository.estimateCount()).andReturn(tableEstimate(1000.0));
+        replay(authorRepository);
+        final CountDTO response = authorService.getAuthorsCountEstimate();
+        verify(authorRepository);
+        assertThat(response).isEqualTo(new CountDTO(1000, false, 150));
+    }
+
+    @Test
+    void getAuthorsCountEstimateNotAnalyzedTest() {
+        reset(authorRepository);
+        expect(authorRepository.estimateCount()).andReturn(tableEstimate(-1.0));
+        expect(authorRepository.count()).andReturn(4L);
+        replay(authorRepository);
+        final CountDTO response = authorService.getAuthorsCountEstimate();
+        verify(authorRepository);
+        assertThat(response).isEqualTo(CountDTO.exact(4));
+    }
+
     @Test
     @DirtiesContext
     void saveAuthorSuccessTest() {
@@ -96,22 +127,20 @@ class AuthorServiceTest {
     @Test
     @DirtiesContext
     void deleteAuthorSuccessTest() {
-        expect(authorRepository.findById(AUTHOR_ID)).andReturn(Optional.of(new Author()));
-        authorRepository.deleteById(AUTHOR_ID);
-        expectLastCall();
-        replay(authorRepository);
+        expect(directWriteRepository.deleteAuthor(AUTHOR_ID)).andReturn(1);
+        replay(authorRepository, directWriteRepository);
         authorService.deleteAuthor(AUTHOR_ID);
-        verify(authorRepository);
+        verify(authorRepository, directWriteRepository);
     }
 
     @Test
     @DirtiesContext
     void deleteAuthorNotFoundTest() {
-        expect(authorRepository.findById(AUTHOR_ID)).andReturn(Optional.empty());
-        replay(authorRepository);
+        expect(directWriteRepository.deleteAuthor(AUTHOR_ID)).andReturn(0);
+        replay(authorRepository, directWriteRepository);
         final Throwable exception = assertThrows(NotFoundException.class, () -> authorService.deleteAuthor(AUTHOR_ID));
         assertThat("Author with id " + AUTHOR_ID + " does not exist").isEqualTo(exception.getMessage());
-        verify(authorRepository);
+        verify(authorRepository, directWriteRepository);
     }
 
     @Test
@@ -119,12 +148,15 @@ class AuthorServiceTest {
     void updateAuthorSuccessTest() {
         final AuthorDTO requestDTO = new AuthorDTO();
         requestDTO.setName("updatedName");
-        expect(authorRepository.findById(AUTHOR_ID)).andReturn(Optional.of(new Author()));
-        expect(authorRepository.save(AuthorDTO.mapDTOToEntity(requestDTO))).andReturn(AuthorDTO.mapDTOToEntity(requestDTO));
-        replay(authorRepository);
+        final AuthorDTO updated = new AuthorDTO();
+        updated.setId(AUTHOR_ID);
+        updated.setName("updatedName");
+        expect(directWriteRepository.patchAuthor(AUTHOR_ID, null, AuthorPatchDTO.mapDTOToPatch(requestDTO)))
+                .andReturn(updated);
+        replay(authorRepository, directWriteRepository);
         final AuthorDTO response = authorService.updateAuthor(AUTHOR_ID, requestDTO);
-        verify(authorRepository);
-        assertThat(response).isEqualTo(requestDTO);
+        verify(authorRepository, directWriteRepository);
+        assertThat(response.getName()).isEqualTo("updatedName");
     }
 
     @Test
@@ -132,10 +164,153 @@ class AuthorServiceTest {
     void updateAuthorNotFoundTest() {
         final AuthorDTO requestDTO = new AuthorDTO();
         requestDTO.setName("updatedName");
-        expect(authorRepository.findById(AUTHOR_ID)).andReturn(Optional.empty());
-        replay(authorRepository);
+        expect(directWriteRepository.patchAuthor(AUTHOR_ID, null, AuthorPatchDTO.mapDTOToPatch(requestDTO)))
+                .andReturn(null);
+        replay(authorRepository, directWriteRepository);
         final AuthorDTO response = authorService.updateAuthor(AUTHOR_ID, requestDTO);
-        verify(authorRepository);
+        verify(authorRepository, directWriteRepository);
         assertThat(response).isNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateAuthorWithVersionSuccessTest() {
+        final List<Object> events = new ArrayList<>();
+        authorService = new AuthorService(authorRepository, directWriteRepository, events::add);
+        final AuthorDTO requestDTO = new AuthorDTO();
+        requestDTO.setName("updatedName");
+        final AuthorDTO updated = new AuthorDTO();
+        updated.setId(AUTHOR_ID);
+        updated.setName("updatedName");
+        updated.setVersion(3L);
+        expect(directWriteRepository.patchAuthor(AUTHOR_ID, 2L, AuthorPatchDTO.mapDTOToPatch(requestDTO)))
+                .andReturn(updated);
+        replay(authorRepository, directWriteRepository);
+        final AuthorDTO response = authorService.updateAuthor(AUTHOR_ID, 2L, requestDTO);
+        verify(authorRepository, directWriteRepository);
+        assertThat(response.getName()).isEqualTo("updatedName");
+        assertThat(response.getVersion()).isEqualTo(3L);
+        assertThat(events).containsExactly(new AuthorChangedEvent(AUTHOR_ID, response));
+    }
+
+    @Test
+    void updateAuthorWithStaleVersionTest() {
+        final AuthorDTO requestDTO = new AuthorDTO();
+        requestDTO.setName("updatedName");
+        expect(directWriteRepository.patchAuthor(AUTHOR_ID, 1L, AuthorPatchDTO.mapDTOToPatch(requestDTO)))
+                .andReturn(null).times(2);
+        expect(authorRepository.existsById(AUTHOR_ID)).andReturn(true);
+        expect(authorRepository.existsById(AUTHOR_ID)).andReturn(false);
+        replay(authorRepository, directWriteRepository);
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> authorService.updateAuthor(AUTHOR_ID, 1L, requestDTO));
+        assertThat(authorService.updateAuthor(AUTHOR_ID, 1L, requestDTO)).isNull();
+        verify(authorRepository, directWriteRepository);
+    }
+
+    @Test
+    void patchAuthorSuccessTest() {
+        final AuthorPatchDTO patch = new AuthorPatchDTO();
+        patch.setSurname(null);
+        final AuthorDTO updated = new AuthorDTO();
+        updated.setId(AUTHOR_ID);
+        updated.setName("Stephen");
+        expect(directWriteRepository.patchAuthor(AUTHOR_ID, null, patch)).andReturn(updated);
+        replay(authorRepository, directWriteRepository);
+        final AuthorDTO response = authorService.patchAuthor(AUTHOR_ID, null, patch);
+        verify(authorRepository, directWriteRepository);
+        assertThat(response.getSurname()).isNull();
+        assertThat(patch.fields()).containsOnlyKeys(AuthorPatchDTO.SURNAME);
+    }
+
+    @Test
+    void patchAuthorInvalidTest() {
+        replay(authorRepository, directWriteRepository);
+        assertThrows(IllegalArgumentException.class,
+                () -> authorService.patchAuthor(AUTHOR_ID, null, new AuthorPatchDTO()));
+        final AuthorPatchDTO patch = new AuthorPatchDTO();
+        patch.setName(null);
+        assertThrows(IllegalArgumentException.class, () -> authorService.patchAuthor(AUTHOR_ID, null, patch));
+        final AuthorPatchDTO longSurname = new AuthorPatchDTO();
+        longSurname.setSurname("s".repeat(257));
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> authorService.patchAuthor(AUTHOR_ID, null, longSurname));
+        assertThat(exception.getMessage()).isEqualTo("The surname is longer than 256 characters");
+        verify(authorRepository, directWriteRepository);
+    }
+
+    @Test
+    void applyBatchSuccessTest() {
+        final List<Object> events = new ArrayList<>();
+        authorService = new AuthorService(authorRepository, directWriteRepository, events::add);
+        final Author existing = new Author();
+        existing.setId(AUTHOR_ID);
+        existing.setName("Stephen");
+        final AuthorDTO created = new AuthorDTO();
+        created.setName("Paulo");
+        final AuthorDTO updated = new AuthorDTO();
+        updated.setName("Steve");
+        expect(authorRepository.findAllById(Set.of(AUTHOR_ID, 5L))).andReturn(List.of(existing));
+        expect(authorRepository.saveAll(anyObject())).andAnswer(() -> {
+            final Collection<Author> authors = getCurrentArgument(0);
+            authors.forEach(author -> author.setId(7L));
+            return List.copyOf(authors);
+        });
+        replay(authorRepository);
+        final List<BatchResultDTO> results = authorService.applyBatch(List.of(
+                new BatchOperationDTO<>(BatchOperationDTO.Operation.CREATE, null, created),
+                new BatchOperationDTO<>(BatchOperationDTO.Operation.UPDATE, AUTHOR_ID, updated),
+                new BatchOperationDTO<>(BatchOperationDTO.Operation.DELETE, 5L, null)));
+        verify(authorRepository);
+        assertThat(results).containsExactly(BatchResultDTO.success(0, 7L, 201), BatchResultDTO.success(1, 1L, 200),
+                BatchResultDTO.failure(2, 5L, 404, "Author with id 5 does not exist"));
+        assertThat(existing.getName()).isEqualTo("Steve");
+        assertThat(events).extracting(event -> ((AuthorChangedEvent) event).authorId()).containsExactly(1L, 7L);
+    }
+
+    @Test
+    void applyBatchInvalidItemTest() {
+        expect(authorRepository.findAllById(anyObject())).andReturn(List.of());
+        expect(authorRepository.saveAll(anyObject())).andReturn(List.of());
+        replay(authorRepository);
+        final AuthorDTO longName = new AuthorDTO();
+        longName.setName("n".repeat(257));
+        final AuthorDTO longSurname = new AuthorDTO();
+        longSurname.setName("Paulo");
+        longSurname.setSurname("s".repeat(257));
+        final List<BatchResultDTO> results = authorService.applyBatch(List.of(
+                new BatchOperationDTO<>(BatchOperationDTO.Operation.CREATE, null, longName),
+                new BatchOperationDTO<>(BatchOperationDTO.Operation.CREATE, null, longSurname)));
+        assertThat(results).containsExactly(
+                BatchResultDTO.failure(0, null, 400, "The name is longer than 256 characters"),
+                BatchResultDTO.failure(1, null, 400, "The surname is longer than 256 characters"));
+        verify(authorRepository);
+    }
+
+    @Test
+    void applyBatchTooLargeTest() {
+        replay(authorRepository);
+        assertThrows(IllegalArgumentException.class, () -> authorService.applyBatch(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> authorService.applyBatch(Collections.nCopies(1001,
+                new BatchOperationDTO<>(BatchOperationDTO.Operation.DELETE, AUTHOR_ID, null))));
+        verify(authorRepository);
+    }
+
+    private static TableEstimateView tableEstimate(final Double rows) {
+        return new TableEstimateView() {
+            @Override
+            public Double getRows() {
+                return rows;
+            }
+
+            @Override
+            public Double getScaleFactor() {
+                return 0.1;
+            }
+
+            @Override
+            public Long getThreshold() {
+                return 50L;
+            }
+        };
+    }
+}
@@ -1,22 +1,47 @@
 package com.bookstore;
 
 import com.bookstore.controller.BookController;
-import com.bookstore.service.dto.AuthorDTO;
-import com.bookstore.service.dto.BookDTO;
-import com.bookstore.service.dto.JwtDTO;
-import com.bookstore.service.dto.SignInRequestDTO;
+import com.bookstore.repository.BookFilter;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.entity.Book;
+import com.bookstore.repository.entity.Genre;
+import com.bookstore.service.BookService;
+import com.bookstore.service.dto.*;
+import com.bookstore.service.read.BookReadModel;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import net.minidev.json.JSONArray;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.*;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -30,6 +55,14 @@ class BookControllerTest {
     private static String USER_TOKEN;
     @Autowired
     TestRestTemplate restTemplate;
+    @Autowired
+    BookService bookService;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    BookRepository bookRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
 
     @BeforeEach
     public void setup() {
@@ -151,6 +184,580 @@ class BookControllerTest {
         assertThat(titles).containsExactly("The Da Vinci Code");
     }
 
+    @Test
+    void getAllBooksSearchWithTitleWordsSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book?title=code vinci&titleMatch=WORDS", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JSONArray titles = JsonPath.parse(response.getBody()).read("$..title");
+        assertThat(titles).containsExactly("The Da Vinci Code");
+
+        response = restTemplate
+                .exchange("/book?title=vin&titleMatch=WORDS", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        titles = JsonPath.parse(response.getBody()).read("$..title");
+        assertThat(titles).isEmpty();
+
+        response = restTemplate
+                .exchange("/book/count?title=vin", HttpMethod.GET, request, String.class);
+        assertThat(response.getBody()).isEqualTo("1");
+    }
+
+    @Test
+    void getBookFacetsSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/facets", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$.genres[*].id")).containsExactly(2, 3);
+        assertThat((JSONArray) documentContext.read("$.genres[*].count")).containsExactly(2, 1);
+        assertThat((JSONArray) documentContext.read("$.authors[*].id")).containsExactly(1, 3);
+
+        response = restTemplate
+                .exchange("/book/facets?genreIds=3&title=code&titleMatch=WORDS&limit=1", HttpMethod.GET, request,
+                        String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$.genres[*].id")).containsExactly(2, 3);
+        assertThat((JSONArray) documentContext.read("$.genres[*].count")).containsExactly(1, 1);
+        assertThat((JSONArray) documentContext.read("$.authors[*].id")).containsExactly(3);
+    }
+
+    @Test
+    void getBookFacetsInvalidLimitTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        final ResponseEntity<String> response = restTemplate
+                .exchange("/book/facets?limit=0", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void suggestSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/suggest?q=vin", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$[*].type")).containsExactly("BOOK");
+        assertThat((JSONArray) documentContext.read("$[*].text")).containsExactly("The Da Vinci Code");
+
+        response = restTemplate.exchange("/book/suggest?q=Dan&limit=1", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$[*].type")).containsExactly("AUTHOR");
+        assertThat((JSONArray) documentContext.read("$[*].text")).containsExactly("Dan Brown");
+    }
+
+    @Test
+    void suggestInvalidLimitTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        final ResponseEntity<String> response = restTemplate
+                .exchange("/book/suggest?q=it&limit=0", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getBooksCountApproximateSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/count?approximate=true&genreIds=2", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((Integer) documentContext.read("$.count")).isEqualTo(2);
+        assertThat((Boolean) documentContext.read("$.exact")).isTrue();
+        assertThat((Integer) documentContext.read("$.errorBound")).isZero();
+
+        response = restTemplate
+                .exchange("/book/count?approximate=true", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((Integer) documentContext.read("$.count")).isEqualTo(3);
+    }
+
+    @Test
+    void getAllBooksCacheMetricsTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        for (int i = 0; i < 2; i++) {
+            final ResponseEntity<String> response = restTemplate
+                    .exchange("/book?size=7&genreIds=3", HttpMethod.GET, request, String.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+        ResponseEntity<String> response = restTemplate.exchange(
+                "/actuator/metrics/cache.gets?tag=cache:book.search&tag=result:hit", HttpMethod.GET, request,
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        headers.set("Authorization", ADMIN_TOKEN);
+        response = restTemplate.exchange("/actuator/metrics/cache.gets?tag=cache:book.search&tag=result:hit",
+                HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat((Double) JsonPath.parse(response.getBody()).read("$.measurements[0].value")).isPositive();
+    }
+
+    @Test
+    void getAllBooksSearchWithWildcardTitleTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        final ResponseEntity<String> response = restTemplate
+                .exchange("/book/count?title=%25", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("0");
+    }
+
+    @Test
+    void getAllBooksUnsupportedSortTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        final ResponseEntity<String> response = restTemplate
+                .exchange("/book?sort=description", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void searchBooksWithTotalSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/search?page=0&size=2", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        JSONArray titles = documentContext.read("$.items[*].title");
+        assertThat(titles).containsExactly("The Da Vinci Code", "It");
+        assertThat((Integer) documentContext.read("$.total")).isEqualTo(3);
+        assertThat((Boolean) documentContext.read("$.hasNext")).isTrue();
+
+        response = restTemplate
+                .exchange("/book/search?page=1&size=2", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        titles = documentContext.read("$.items[*].title");
+        assertThat(titles).containsExactly("unknown");
+        assertThat((Integer) documentContext.read("$.total")).isEqualTo(3);
+        assertThat((Boolean) documentContext.read("$.hasNext")).isFalse();
+    }
+
+    /**
+     * The statement counts of the searches hydrated with the entities: the read model hydrates them with plain JDBC,
+     * which the Hibernate statistics do not see.
+     */
+    @Nested
+    @TestPropertySource(properties = "bookstore.read-model.enabled=false")
+    class EntityHydrationTest {
+        @Autowired
+        BookService bookService;
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+        @Autowired
+        BookReadModel readModel;
+
+        @Test
+        void searchBooksStatementCountTest() {
+            assertThat(readModel.isReady()).isFalse();
+            // Called outside of a request, so a lazy association left unloaded would fail the mapping to DTOs.
+            final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            final BookSearchDTO bookSearchDTO = new BookSearchDTO();
+            for (int size = 1; size <= 3; size++) {
+                statistics.clear();
+                final BookPageDTO page = bookService.searchBooks(bookSearchDTO,
+                        PageRequest.of(0, size, Sort.by("id")), true);
+                assertThat(page.items()).hasSize(size);
+                assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+            }
+
+            bookSearchDTO.setGenreIds(List.of(2));
+            statistics.clear();
+            final BookPageDTO page = bookService.searchBooks(bookSearchDTO,
+                    PageRequest.of(0, 1, Sort.by("price")), true);
+            assertThat(page.items().get(0).getListOfGenres()).extracting(GenreDTO::getName).contains("novel");
+            assertThat(page.total()).isEqualTo(2);
+            assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+        }
+    }
+
+    @Test
+    void searchBooksWithoutTotalSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        final ResponseEntity<String> response = restTemplate
+                .exchange("/book/search?count=false&genreIds=2&size=1", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        final DocumentContext documentContext = JsonPath.parse(response.getBody());
+        final JSONArray ids = documentContext.read("$.items[*].id");
+        assertThat(ids).containsExactly(1);
+        assertThat((Integer) documentContext.read("$.total")).isNull();
+        assertThat((Boolean) documentContext.read("$.hasNext")).isTrue();
+    }
+
+    @Test
+    void searchBooksWithPriceAndYearRangeSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/search?minPrice=96&maxYear=2010", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$.items[*].id")).containsExactly(1);
+        assertThat((Integer) documentContext.read("$.total")).isEqualTo(1);
+
+        response = restTemplate.exchange("/book?minYear=1980&maxYear=1990&minPrice=0", HttpMethod.GET, request,
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$[*].id")).containsExactly(2);
+    }
+
+    @Test
+    void searchBooksSortedByPriceSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/search?count=false&sort=price,desc&size=2", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$.items[*].id")).containsExactly(3, 1);
+        assertThat((Boolean) documentContext.read("$.hasNext")).isTrue();
+
+        response = restTemplate.exchange("/book?sort=price&genreIds=2", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$[*].id")).containsExactly(2, 1);
+    }
+
+    @Test
+    void searchBooksFuzzySuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/search?title=Da Vinchi Cod&fuzzy=true", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$.items[*].id")).containsExactly(1);
+        assertThat((String) documentContext.read("$.didYouMean")).isEqualTo("da vinci code");
+
+        response = restTemplate.exchange("/book/search?title=code&fuzzy=true", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$.items[*].id")).containsExactly(1);
+        assertThat((String) documentContext.read("$.didYouMean")).isNull();
+    }
+
+    @Test
+    void countMatchingFuzzyWithoutIndexSuccessTest() {
+        final BookFilter filter = new BookFilter();
+        filter.setTitle("Da Vinchi Cod");
+        filter.setTitleMatch(TitleMatch.FUZZY);
+        assertThat(bookRepository.countMatching(filter)).isEqualTo(1);
+        filter.setTitle("Angels");
+        assertThat(bookRepository.countMatching(filter)).isZero();
+    }
+
+    @Test
+    void searchIdsTooManyIdsFallbackTest() {
+        final BookFilter unresolved = new BookFilter();
+        unresolved.setTitle("vinci");
+        final BookFilter filter = new BookFilter();
+        filter.setUnresolved(unresolved);
+        // Ids of no book, so the result only has books if the title criterion is sent instead of them.
+        filter.setIds(IntStream.range(0, BookFilter.MAX_DATABASE_IDS + 1).map(i -> 1_000_000 + i).toArray());
+        assertThat(bookRepository.searchIds(filter, PageRequest.of(0, 10, Sort.by("title"))).getContent())
+                .containsExactly(1L);
+        assertThat(bookRepository.countMatching(filter)).isEqualTo(1);
+
+        filter.setIds(new int[]{1_000_000});
+        assertThat(bookRepository.searchIds(filter, PageRequest.of(0, 10, Sort.by("title"))).getContent()).isEmpty();
+    }
+
+    @Test
+    void searchBooksByRelevanceSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/relevance?q=secret code", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$.items[*].book.id")).containsExactly(1, 3);
+        final JSONArray scores = documentContext.read("$.items[*].score");
+        assertThat((Double) scores.get(0)).isGreaterThan((Double) scores.get(1));
+
+        response = restTemplate.exchange("/book/relevance?q=code&size=1", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$.items[*].book.id")).containsExactly(1);
+        assertThat((Boolean) documentContext.read("$.hasNext")).isTrue();
+
+        response = restTemplate.exchange("/book/relevance?q=code&genreIds=2", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$.items[*].book.id")).containsExactly(1);
+    }
+
+    @Test
+    void searchBooksByRelevanceWithoutWordsTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        final ResponseEntity<String> response = restTemplate
+                .exchange("/book/relevance?q=!", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void rankIdsWithoutIndexSuccessTest() {
+        final BookFilter filter = new BookFilter();
+        assertThat(bookRepository.rankIds(List.of("secret", "code"), filter, 0, 10)).containsOnlyKeys(3L, 1L);
+        assertThat(bookRepository.rankIds(List.of("code"), filter, 0, 10).keySet()).containsExactly(1L, 3L);
+        filter.setGenreIds(List.of(2));
+        assertThat(bookRepository.rankIds(List.of("code"), filter, 0, 10).keySet()).containsExactly(1L);
+    }
+
+    @Test
+    void exportBooksSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        final ResponseEntity<String> response = restTemplate
+                .exchange("/book/export", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(response.getBody()).isNotNull();
+        final String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(3);
+        final DocumentContext documentContext = JsonPath.parse(lines[0]);
+        assertThat((Integer) documentContext.read("$.id")).isEqualTo(1);
+        assertThat((JSONArray) documentContext.read("$.listOfAuthors[*].id")).containsExactly(3);
+        assertThat((JSONArray) documentContext.read("$.listOfGenres[*].id")).containsExactlyInAnyOrder(2, 3);
+        assertThat((Integer) JsonPath.parse(lines[2]).read("$.id")).isEqualTo(3);
+    }
+
+    @Test
+    void exportBooksAuthFailedTest() {
+        final ResponseEntity<String> response = restTemplate.getForEntity("/book/export", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    @DirtiesContext
+    void importBooksSuccessTest() throws InterruptedException {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        final String csv = """
+                title,price,year,authorIds,genreIds
+                Imported Saga,10.5,2001,1;2,1
+                "Imported, the ""Sequel""\",,,,
+                ,1.0,2000,,
+                Unknown Author,1.0,2000,99,
+                Bad Price,abc,,,
+                """;
+        final ResponseEntity<String> response = restTemplate.postForEntity("/book/import",
+                new HttpEntity<>(importFile("books.csv", csv), headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(response.getHeaders().getLocation()).isNotNull();
+
+        final HttpHeaders getHeaders = new HttpHeaders();
+        getHeaders.set("Authorization", ADMIN_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, getHeaders);
+        DocumentContext documentContext = null;
+        for (int attempt = 0; attempt < 100; attempt++) {
+            final ResponseEntity<String> jobResponse = restTemplate.exchange(
+                    response.getHeaders().getLocation().toString(), HttpMethod.GET, request, String.class);
+            assertThat(jobResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+            documentContext = JsonPath.parse(jobResponse.getBody());
+            if ("COMPLETED".equals(documentContext.read("$.status"))) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertThat((String) documentContext.read("$.status")).isEqualTo("COMPLETED");
+        assertThat((Integer) documentContext.read("$.imported")).isEqualTo(2);
+        assertThat((Integer) documentContext.read("$.rejected")).isEqualTo(3);
+        assertThat((JSONArray) documentContext.read("$.errors")).containsExactlyInAnyOrder(
+                "Line 4: The title is required", "Line 5: Unknown author 99", "Line 6: Invalid price 'abc'");
+
+        final ResponseEntity<String> searchResponse = restTemplate.exchange(
+                "/book/search?title=imported&sort=id", HttpMethod.GET, request, String.class);
+        documentContext = JsonPath.parse(searchResponse.getBody());
+        assertThat((JSONArray) documentContext.read("$.items[*].title"))
+                .containsExactly("Imported Saga", "Imported, the \"Sequel\"");
+        assertThat((JSONArray) documentContext.read("$.items[0].listOfAuthors[*].id"))
+                .containsExactlyInAnyOrder(1, 2);
+        assertThat((Double) documentContext.read("$.items[0].price")).isEqualTo(10.5);
+    }
+
+    @Test
+    void importBooksUnsupportedFileTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        final ResponseEntity<String> response = restTemplate.postForEntity("/book/import",
+                new HttpEntity<>(importFile("books.xml", "<books/>"), headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void importBooksFailedUnauthorizedWithUserTokenTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        final ResponseEntity<String> response = restTemplate.postForEntity("/book/import",
+                new HttpEntity<>(importFile("books.csv", "title\nIt\n"), headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void getImportJobNotFoundTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        final ResponseEntity<String> response = restTemplate.exchange("/book/import/" + UUID.randomUUID(),
+                HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private static MultiValueMap<String, Object> importFile(final String filename, final String content) {
+        final MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        });
+        return body;
+    }
+
+    @Test
+    @DirtiesContext
+    void applyBatchSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        final String batch = """
+                [{"operation": "CREATE", "item": {"title": "Inferno", "listOfAuthors": [{"id": 3}]}},
+                 {"operation": "UPDATE", "id": 2, "item": {"title": "It (1986)", "price": 20.0}},
+                 {"operation": "DELETE", "id": 3},
+                 {"operation": "UPDATE", "id": 100, "item": {"title": "Missing"}},
+                 {"operation": "UPDATE", "id": 1, "item": {"title": ""}},
+                 {"operation": "DELETE"}]
+                """;
+        final ResponseEntity<String> response = restTemplate.postForEntity("/book/batch",
+                new HttpEntity<>(batch, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((JSONArray) documentContext.read("$[*].status")).containsExactly(201, 200, 200, 404, 400, 400);
+        assertThat((JSONArray) documentContext.read("$[*].index")).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat((String) documentContext.read("$[5].error")).isEqualTo("The id is required");
+        final Integer createdId = documentContext.read("$[0].id");
+
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        documentContext = JsonPath.parse(restTemplate.exchange("/book/" + createdId, HttpMethod.GET, request,
+                String.class).getBody());
+        assertThat((String) documentContext.read("$.title")).isEqualTo("Inferno");
+        assertThat((JSONArray) documentContext.read("$.listOfAuthors[*].surname")).containsExactly("Brown");
+        documentContext = JsonPath.parse(restTemplate.exchange("/book/2", HttpMethod.GET, request, String.class)
+                .getBody());
+        assertThat((String) documentContext.read("$.title")).isEqualTo("It (1986)");
+        assertThat((Double) documentContext.read("$.price")).isEqualTo(20.0);
+        assertThat(restTemplate.exchange("/book/3", HttpMethod.GET, request, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.exchange("/book/1", HttpMethod.GET, request, String.class).getBody())
+                .contains("The Da Vinci Code");
+        assertThat(restTemplate.exchange("/book/count?title=inferno", HttpMethod.GET, request, String.class)
+                .getBody()).isEqualTo("1");
+    }
+
+    @Test
+    void applyBatchEmptyTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        final ResponseEntity<String> response = restTemplate.postForEntity("/book/batch",
+                new HttpEntity<>("[]", headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void scrollBooksSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/scroll?size=2", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        JSONArray titles = documentContext.read("$.items[*].title");
+        assertThat(titles).containsExactly("The Da Vinci Code", "It");
+        final String next = documentContext.read("$.next");
+        assertThat(next).isNotNull();
+
+        response = restTemplate
+                .exchange("/book/scroll?size=2&cursor=" + next, HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        documentContext = JsonPath.parse(response.getBody());
+        titles = documentContext.read("$.items[*].title");
+        assertThat(titles).containsExactly("unknown");
+        assertThat((String) documentContext.read("$.next")).isNull();
+    }
+
+    @Test
+    void scrollBooksSortedByNullablePriceSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/scroll?size=1&sort=price,desc", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        JSONArray ids = documentContext.read("$.items[*].id");
+        assertThat(ids).containsExactly(3);
+
+        String next = documentContext.read("$.next");
+        response = restTemplate
+                .exchange("/book/scroll?size=1&cursor=" + next, HttpMethod.GET, request, String.class);
+        documentContext = JsonPath.parse(response.getBody());
+        ids = documentContext.read("$.items[*].id");
+        assertThat(ids).containsExactly(1);
+
+        next = documentContext.read("$.next");
+        response = restTemplate
+                .exchange("/book/scroll?size=1&cursor=" + next, HttpMethod.GET, request, String.class);
+        documentContext = JsonPath.parse(response.getBody());
+        ids = documentContext.read("$.items[*].id");
+        assertThat(ids).containsExactly(2);
+    }
+
+    @Test
+    void scrollBooksInvalidCursorTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        final HttpEntity<String> request = new HttpEntity<>(null, headers);
+        final ResponseEntity<String> response = restTemplate
+                .exchange("/book/scroll?cursor=invalid", HttpMethod.GET, request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     void getBookByIdSuccessTest() {
         final HttpHeaders headers = new HttpHeaders();
@@ -170,7 +777,142 @@ class BookControllerTest {
 
         JSONArray authors = documentContext.read("$.listOfAuthors");
         assertThat(authors.size()).isEqualTo(1);
-        assertThat(authors.get(0).toString()).isEqualTo("{id=1, name=Stephen, surname=King}");
+        assertThat(authors.get(0).toString()).isEqualTo("{id=1, name=Stephen, surname=King, version=0}");
+    }
+
+    @Test
+    void getBookByIdNotModifiedTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", USER_TOKEN);
+        ResponseEntity<String> response = restTemplate
+                .exchange("/book/2", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        final String eTag = response.getHeaders().getETag();
+        assertThat(eTag).isEqualTo("\"0.0\"");
+
+        headers.setIfNoneMatch(eTag);
+        response = restTemplate.exchange("/book/2", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    @DirtiesContext
+    void updateBookIfMatchTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        final String eTag = restTemplate.exchange("/book/2", HttpMethod.GET, new HttpEntity<>(null, headers),
+                String.class).getHeaders().getETag();
+        final BookDTO bookDTO = new BookDTO();
+        bookDTO.setTitle("It, Revised");
+        bookDTO.setPrice(50.0);
+        final AuthorDTO author = new AuthorDTO();
+        author.setId(3L);
+        bookDTO.setListOfAuthors(Set.of(author));
+        headers.setIfMatch(eTag);
+        ResponseEntity<String> response = restTemplate.exchange("/book/2", HttpMethod.PUT,
+                new HttpEntity<>(bookDTO, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"1.0\"");
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((Integer) documentContext.read("$.version")).isEqualTo(1);
+        final JSONArray names = documentContext.read("$.listOfAuthors[*].name");
+        assertThat(names).containsExactly("Dan");
+
+        // The second write with the same tag lost the race.
+        response = restTemplate.exchange("/book/2", HttpMethod.PUT, new HttpEntity<>(bookDTO, headers),
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        headers.remove(HttpHeaders.IF_MATCH);
+        response = restTemplate.exchange("/book/2", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((String) documentContext.read("$.title")).isEqualTo("It, Revised");
+        assertThat((JSONArray) documentContext.read("$.listOfAuthors[*].id")).containsExactly(3);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"1.0\"");
+
+        headers.setIfMatch("\"0.0\"");
+        response = restTemplate.exchange("/book/1000", HttpMethod.PUT, new HttpEntity<>(bookDTO, headers),
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @DirtiesContext
+    void patchBookSuccessTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        ResponseEntity<String> response = patch("/book/1", "{\"price\": 9.5}", headers);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"1.0\"");
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat((String) documentContext.read("$.title")).isEqualTo("The Da Vinci Code");
+        assertThat((Double) documentContext.read("$.price")).isEqualTo(9.5);
+        assertThat((JSONArray) documentContext.read("$.listOfAuthors[*].name")).containsExactly("Dan");
+        assertThat((JSONArray) documentContext.read("$.listOfGenres[*].id")).containsExactlyInAnyOrder(2, 3);
+
+        headers.setIfMatch("\"1.0\"");
+        response = patch("/book/1", "{\"description\": null, \"listOfGenres\": [{\"id\": 1}, {\"id\": 3}]}",
+                headers);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"2.0\"");
+        response = patch("/book/1", "{\"price\": 1}", headers);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        headers.remove(HttpHeaders.IF_MATCH);
+
+        response = restTemplate.exchange("/book/1", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        documentContext = JsonPath.parse(response.getBody());
+        assertThat((Double) documentContext.read("$.price")).isEqualTo(9.5);
+        assertThat((String) documentContext.read("$.description")).isNull();
+        assertThat((JSONArray) documentContext.read("$.listOfGenres[*].name"))
+                .containsExactlyInAnyOrder("fiction", "mystery");
+        assertThat((JSONArray) documentContext.read("$.listOfAuthors[*].id")).containsExactly(3);
+    }
+
+    @Test
+    @DirtiesContext
+    void patchBookLinksReadDuringWriteTest() throws Exception {
+        final String role = Book.class.getName() + ".listOfGenres";
+        final Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        final GenreDTO genre = new GenreDTO();
+        genre.setId(1);
+        final BookPatchDTO patch = new BookPatchDTO();
+        patch.setListOfGenres(Set.of(genre));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookService.patchBook(1L, null, patch);
+            // A read running before the commit still sees the previous links and caches them.
+            CompletableFuture.runAsync(() -> {
+                final EntityManager entityManager = entityManagerFactory.createEntityManager();
+                try {
+                    Hibernate.initialize(entityManager.find(Book.class, 1L).getListOfGenres());
+                } finally {
+                    entityManager.close();
+                }
+            }).join();
+            assertThat(cache.containsCollection(role, 1L)).isTrue();
+        });
+
+        assertThat(cache.containsCollection(role, 1L)).isFalse();
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            assertThat(entityManager.find(Book.class, 1L).getListOfGenres()).extracting(Genre::getId)
+                    .containsExactly(1);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Test
+    void patchBookFailedTest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", ADMIN_TOKEN);
+        assertThat(patch("/book/1", "{}", headers).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(patch("/book/1", "{\"title\": \" \"}", headers).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(patch("/book/1000", "{\"price\": 1}", headers).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        headers.set("Authorization", USER_TOKEN);
+        assertThat(patch("/book/1", "{\"price\": 1}", headers).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
     }
 
     @Test
@@ -245,7 +987,7 @@ class BookControllerTest {
         assertThat(id).isNotNull();
         assertThat(title).isEqualTo(createdBook.getTitle());
         assertThat(authors.size()).isEqualTo(1);
-        assertThat(authors.get(0).toString()).isEqualTo("{id=1, name=Stephen, surname=King}");
+        assertThat(authors.get(0).toString()).isEqualTo("{id=1, name=Stephen, surname=King, version=0}");
     }
 
     @Test
@@ -381,4 +1123,12 @@ class BookControllerTest {
         assertThat(deleteResponse.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
         assertThat(deleteResponse.getBody()).isNull();
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<String> patch(final String url, final String json, final HttpHeaders headers) {
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        // The default request factory of the template can not send PATCH requests.
+        final TestRestTemplate patchTemplate = new TestRestTemplate(new RestTemplateBuilder()
+                .rootUri(restTemplate.getRootUri()).requestFactory(() -> new JdkClientHttpRequestFactory()));
+        return patchTemplate.exchange(url, HttpMethod.PATCH, new HttpEntity<>(json, headers), String.class);
+    }
+}
@@ -0,0 +1,160 @@
+package com.bookstore;
+
+import com.bookstore.repository.BookBulkRepository;
+import com.bookstore.service.bulk.BookImportService;
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.ImportJobDTO;
+import com.bookstore.service.event.BooksImportedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link BookImportService}.
+ */
+class BookImportServiceTest {
+
+    private BookBulkRepository bookBulkRepository;
+    private List<Object> events;
+    private BookImportService bookImportService;
+
+    @BeforeEach
+    public void setup() {
+        bookBulkRepository = EasyMock.createMock(BookBulkRepository.class);
+        final PlatformTransactionManager transactionManager = EasyMock.createNiceMock(PlatformTransactionManager.class);
+        replay(transactionManager);
+        events = new ArrayList<>();
+        bookImportService = new BookImportService(bookBulkRepository, new TransactionTemplate(transactionManager),
+                events::add, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bookImportService.shutdown();
+    }
+
+    @Test
+    void importNdjsonSuccessTest() throws Exception {
+        final Capture<List<BookDTO>> inserted = newCapture();
+        expect(bookBulkRepository.findExistingAuthorIds(Set.of(1L, 3L))).andReturn(Set.of(1L, 3L));
+        expect(bookBulkRepository.findExistingGenreIds(Set.of(1, 7))).andReturn(Set.of(1));
+        expect(bookBulkRepository.allocateIds(2)).andReturn(new long[]{20L, 21L});
+        bookBulkRepository.insertAll(capture(inserted), anyObject());
+        expectLastCall();
+        replay(bookBulkRepository);
+
+        final String ndjson = """
+                {"id":1,"title":"Inferno","price":12.5,"listOfAuthors":[{"id":3}]}
+                {"title":"Origin","listOfGenres":[{"id":7}]}
+
+                {"title":"Carrie","year":1974,"listOfAuthors":[{"id":1}],"listOfGenres":[{"id":1}]}
+                {"title":
+                {"title":" "}
+                """;
+        final ImportJobDTO job = awaitEnd(bookImportService.submit("books.ndjson",
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8))));
+
+        assertThat(job.status()).isEqualTo(ImportJobDTO.Status.COMPLETED);
+        assertThat(job.imported()).isEqualTo(2);
+        assertThat(job.rejected()).isEqualTo(3);
+        assertThat(job.errors()).hasSize(3).contains("Line 2: Unknown genre 7", "Line 6: The title is required");
+        assertThat(inserted.getValue()).extracting(BookDTO::getId).containsExactly(20L, 21L);
+        assertThat(inserted.getValue()).extracting(BookDTO::getTitle).containsExactly("Inferno", "Carrie");
+        assertThat(inserted.getValue().get(0).getListOfAuthors()).extracting(AuthorDTO::getId).containsExactly(3L);
+        assertThat(events).containsExactly(new BooksImportedEvent(2));
+        verify(bookBulkRepository);
+    }
+
+    @Test
+    void importNdjsonWithoutLinkIdTest() throws Exception {
+        final Capture<List<BookDTO>> inserted = newCapture();
+        expect(bookBulkRepository.findExistingAuthorIds(Set.of(3L))).andReturn(Set.of(3L));
+        expect(bookBulkRepository.findExistingGenreIds(Set.of())).andReturn(Set.of());
+        expect(bookBulkRepository.allocateIds(1)).andReturn(new long[]{30L});
+        bookBulkRepository.insertAll(capture(inserted), anyObject());
+        expectLastCall();
+        replay(bookBulkRepository);
+
+        final String ndjson = """
+                {"title":"X","listOfAuthors":[{"name":"Dan"}]}
+                {"title":"Y","listOfGenres":[{"name":"Horror"}]}
+                {"title":"Inferno","listOfAuthors":[{"id":3}]}
+                """;
+        final ImportJobDTO job = awaitEnd(bookImportService.submit("books.ndjson",
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8))));
+
+        assertThat(job.status()).isEqualTo(ImportJobDTO.Status.COMPLETED);
+        assertThat(job.imported()).isEqualTo(1);
+        assertThat(job.rejected()).isEqualTo(2);
+        assertThat(job.errors()).containsExactly("Line 1: An author has no id", "Line 2: A genre has no id");
+        assertThat(inserted.getValue()).extracting(BookDTO::getTitle).containsExactly("Inferno");
+        verify(bookBulkRepository);
+    }
+
+    @Test
+    void importCsvQuotedFieldsSuccessTest() throws Exception {
+        final Capture<List<BookDTO>> inserted = newCapture();
+        expect(bookBulkRepository.findExistingAuthorIds(Set.of())).andReturn(Set.of());
+        expect(bookBulkRepository.findExistingGenreIds(Set.of())).andReturn(Set.of());
+        expect(bookBulkRepository.allocateIds(1)).andReturn(new long[]{5L});
+        bookBulkRepository.insertAll(capture(inserted), anyObject());
+        expectLastCall();
+        replay(bookBulkRepository);
+
+        final String csv = "Description,Title\r\n\"Two lines,\nwith a \"\"quote\"\"\",Hamlet\r\n";
+        final ImportJobDTO job = awaitEnd(bookImportService.submit("books.CSV",
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+
+        assertThat(job.status()).isEqualTo(ImportJobDTO.Status.COMPLETED);
+        assertThat(job.imported()).isEqualTo(1);
+        assertThat(inserted.getValue().get(0).getTitle()).isEqualTo("Hamlet");
+        assertThat(inserted.getValue().get(0).getDescription()).isEqualTo("Two lines,\nwith a \"quote\"");
+        verify(bookBulkRepository);
+    }
+
+    @Test
+    void importCsvWithoutTitleColumnFailedTest() throws Exception {
+        replay(bookBulkRepository);
+        final ImportJobDTO job = awaitEnd(bookImportService.submit("books.csv",
+                new ByteArrayInputStream("name,price\nIt,1\n".getBytes(StandardCharsets.UTF_8))));
+        assertThat(job.status()).isEqualTo(ImportJobDTO.Status.FAILED);
+        assertThat(job.errors()).containsExactly("Line 1: The header has no title column");
+        assertThat(events).isEmpty();
+        verify(bookBulkRepository);
+    }
+
+    @Test
+    void importUnsupportedFormatTest() {
+        replay(bookBulkRepository);
+        assertThrows(IllegalArgumentException.class, () -> bookImportService.submit("books.xlsx",
+                new ByteArrayInputStream(new byte[0])));
+        assertThrows(IllegalArgumentException.class, () -> bookImportService.submit(null,
+                new ByteArrayInputStream(new byte[0])));
+    }
+
+    private ImportJobDTO awaitEnd(final ImportJobDTO submitted) throws InterruptedException {
+        ImportJobDTO job = submitted;
+        for (int attempt = 0; attempt < 100 && (job.status() == ImportJobDTO.Status.QUEUED
+                || job.status() == ImportJobDTO.Status.RUNNING); attempt++) {
+            Thread.sleep(50);
+            job = bookImportService.getJob(submitted.id());
+        }
+        return job;
+    }
+}
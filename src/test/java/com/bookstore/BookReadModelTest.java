@@ -0,0 +1,120 @@
+package com.bookstore;
+
+import com.bookstore.repository.BookReadRepository;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.event.AuthorChangedEvent;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.event.BooksImportedEvent;
+import com.bookstore.service.read.BookReadModel;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link BookReadModel}.
+ */
+class BookReadModelTest {
+
+    private BookReadRepository bookReadRepository;
+
+    @BeforeEach
+    public void setup() {
+        bookReadRepository = EasyMock.createMock(BookReadRepository.class);
+    }
+
+    @Test
+    void findAllByIdInSuccessTest() {
+        bookReadRepository.rebuild();
+        expectLastCall();
+        expect(bookReadRepository.findAllByIdIn(List.of(3L, 1L, 2L))).andReturn(List.of(book(1L), book(3L)));
+        replay(bookReadRepository);
+        final BookReadModel readModel = new BookReadModel(bookReadRepository, true);
+        readModel.build();
+        assertThat(readModel.isReady()).isTrue();
+        assertThat(readModel.findAllByIdIn(List.of(3L, 1L, 2L))).extracting(BookDTO::getId).containsExactly(3L, 1L);
+        verify(bookReadRepository);
+    }
+
+    @Test
+    void changesRefreshSuccessTest() {
+        bookReadRepository.refresh(List.of(5L));
+        expectLastCall();
+        bookReadRepository.refreshByAuthor(2L);
+        expectLastCall();
+        bookReadRepository.refreshMissing();
+        expectLastCall();
+        replay(bookReadRepository);
+        final BookReadModel readModel = new BookReadModel(bookReadRepository, true);
+        readModel.onBookChanged(new BookChangedEvent(5L, null, book(5L)));
+        readModel.onAuthorChanged(new AuthorChangedEvent(2L, null));
+        readModel.onBooksImported(new BooksImportedEvent(10));
+        verify(bookReadRepository);
+    }
+
+    @Test
+    void refreshFailedRebuildsInBackgroundTest() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<String> rebuildThread = new AtomicReference<>();
+        bookReadRepository.rebuild();
+        expectLastCall();
+        bookReadRepository.refresh(List.of(5L));
+        expectLastCall().andThrow(new IllegalStateException("Connection lost"));
+        bookReadRepository.rebuild();
+        expectLastCall().andAnswer(() -> {
+            rebuildThread.set(Thread.currentThread().getName());
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        bookReadRepository.refreshByAuthor(2L);
+        expectLastCall();
+        // The refresh is called while the rebuild is still running.
+        makeThreadSafe(bookReadRepository, false);
+        replay(bookReadRepository);
+        final BookReadModel readModel = new BookReadModel(bookReadRepository, true);
+        try {
+            readModel.build();
+            // The failure does not reach the committed write, the reads fall back to the normalized tables.
+            readModel.onBookChanged(new BookChangedEvent(5L, null, book(5L)));
+            assertThat(readModel.isReady()).isFalse();
+            // The later changes are still refreshed while the table is rebuilt.
+            readModel.onAuthorChanged(new AuthorChangedEvent(2L, null));
+            assertThat(readModel.isReady()).isFalse();
+
+            release.countDown();
+            for (int attempt = 0; attempt < 100 && !readModel.isReady(); attempt++) {
+                Thread.sleep(50);
+            }
+            assertThat(readModel.isReady()).isTrue();
+            assertThat(rebuildThread.get()).isEqualTo("read-model-rebuild");
+            verify(bookReadRepository);
+        } finally {
+            readModel.shutdown();
+        }
+    }
+
+    @Test
+    void disabledTest() {
+        replay(bookReadRepository);
+        final BookReadModel readModel = new BookReadModel(bookReadRepository, false);
+        readModel.build();
+        readModel.onBookChanged(new BookChangedEvent(5L, null, null));
+        assertThat(readModel.isReady()).isFalse();
+        assertThrows(IllegalStateException.class, () -> readModel.findById(1L));
+        verify(bookReadRepository);
+    }
+
+    private static BookDTO book(final Long id) {
+        final BookDTO book = new BookDTO();
+        book.setId(id);
+        return book;
+    }
+}
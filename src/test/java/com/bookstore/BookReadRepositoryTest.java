@@ -0,0 +1,70 @@
+package com.bookstore;
+
+import com.bookstore.repository.BookReadRepository;
+import com.bookstore.service.dto.BookDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link BookReadRepository}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.profiles.active=test")
+class BookReadRepositoryTest {
+    @Autowired
+    BookReadRepository bookReadRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    @DirtiesContext
+    void refreshOverlappingRefreshTest() throws Exception {
+        final CompletableFuture<Void> older;
+        final CompletableFuture<Void> newer;
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            // The row lock keeps the first refresh in flight once it has read the book.
+            connection.setAutoCommit(false);
+            statement.execute("select id from book_read where id = 1 for update");
+            older = CompletableFuture.runAsync(() -> bookReadRepository.refresh(List.of(1L)));
+            awaitWaiting("Lock", "tuple", "transactionid");
+
+            jdbcTemplate.update("update book set price = 99, version = version + 1 where id = 1");
+            newer = CompletableFuture.runAsync(() -> bookReadRepository.refresh(List.of(1L)));
+            // The second refresh waits for the first one to end before reading the book.
+            awaitWaiting("Lock", "advisory");
+            connection.rollback();
+        }
+        older.get(5, TimeUnit.SECONDS);
+        newer.get(5, TimeUnit.SECONDS);
+
+        final BookDTO book = bookReadRepository.findAllByIdIn(List.of(1L)).get(0);
+        assertThat(book.getPrice()).isEqualTo(99.0);
+        assertThat(book.getVersion())
+                .isEqualTo(jdbcTemplate.queryForObject("select version from book where id = 1", Long.class));
+    }
+
+    private void awaitWaiting(final String type, final String... events) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            final Integer waiting = jdbcTemplate.queryForObject("select count(*) from pg_stat_activity "
+                    + "where wait_event_type = ? and wait_event = any(?)", Integer.class, type, events);
+            if (waiting != null && waiting > 0) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No session waits for the lock: " + String.join(" or ", events));
+    }
+}
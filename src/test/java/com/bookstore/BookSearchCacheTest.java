@@ -0,0 +1,135 @@
+package com.bookstore;
+
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.BookSearchDTO;
+import com.bookstore.service.dto.GenreDTO;
+import com.bookstore.service.event.AuthorChangedEvent;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.search.BookSearchCache;
+import com.bookstore.service.search.BookSearchKey;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link BookSearchCache}.
+ */
+class BookSearchCacheTest {
+
+    private MeterRegistry meterRegistry;
+    private BookSearchCache searchCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        searchCache = new BookSearchCache(1000, Duration.ofMinutes(10), meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void getCanonicalKeySuccessTest() {
+        final BookSearchDTO first = search(" Code ", List.of(2L, 1L, 2L), null);
+        final BookSearchDTO second = search("code", List.of(1L, 2L), null);
+        assertThat(count(first)).isEqualTo(1L);
+        assertThat(count(second)).isEqualTo(1L);
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "book.search").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "book.search").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void bookChangedInvalidatesMatchingEntriesTest() {
+        final BookSearchDTO byGenre = search(null, null, List.of(1));
+        final BookSearchDTO byOtherGenre = search(null, null, List.of(2));
+        final BookSearchDTO byTitle = search("vinci", null, null);
+        count(byGenre);
+        count(byOtherGenre);
+        count(byTitle);
+        searchCache.onBookChanged(new BookChangedEvent(1L, book("Inferno", 3L, 3), book("Inferno", 3L, 1)));
+        count(byGenre);
+        count(byOtherGenre);
+        count(byTitle);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void authorChangedInvalidatesShowingEntriesTest() {
+        final BookSearchKey shows = BookSearchKey.of("books", BookSearchDTO.mapDTOToFilter(new BookSearchDTO()),
+                PageRequest.of(0, 10));
+        final BookSearchKey hides = BookSearchKey.of("books", BookSearchDTO.mapDTOToFilter(new BookSearchDTO()),
+                PageRequest.of(1, 10));
+        searchCache.get(shows, () -> List.of(book("It", 1L, 2)));
+        searchCache.get(hides, () -> List.of(book("Inferno", 3L, 2)));
+        searchCache.onAuthorChanged(new AuthorChangedEvent(1L, null));
+        final List<BookDTO> showing = searchCache.get(shows, List::of);
+        final List<BookDTO> hiding = searchCache.get(hides, List::of);
+        assertThat(showing).isEmpty();
+        assertThat(hiding).hasSize(1);
+    }
+
+    @Test
+    void bookChangedDuringLoadDropsResultTest() throws Exception {
+        final BookSearchKey key = BookSearchKey.of("count",
+                BookSearchDTO.mapDTOToFilter(search(null, null, List.of(1))), null);
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch changed = new CountDownLatch(1);
+        // The load reads the old rows, then the write commits and invalidates before the load stores its result.
+        final CompletableFuture<Long> stale = CompletableFuture.supplyAsync(() -> searchCache.get(key, () -> {
+            loading.countDown();
+            try {
+                assertThat(changed.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return 1L;
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        searchCache.onBookChanged(new BookChangedEvent(1L, null, book("Inferno", 3L, 1)));
+        changed.countDown();
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo(1L);
+
+        assertThat(searchCache.get(key, () -> 2L)).isEqualTo(2L);
+        assertThat(searchCache.get(key, () -> 3L)).isEqualTo(2L);
+    }
+
+    private Long count(final BookSearchDTO bookSearchDTO) {
+        return searchCache.get(BookSearchKey.of("count", BookSearchDTO.mapDTOToFilter(bookSearchDTO), null),
+                () -> (long) loads.incrementAndGet());
+    }
+
+    private static BookSearchDTO search(final String title, final List<Long> authorIds, final List<Integer> genreIds) {
+        final BookSearchDTO bookSearchDTO = new BookSearchDTO();
+        bookSearchDTO.setTitle(title);
+        bookSearchDTO.setAuthorIds(authorIds);
+        bookSearchDTO.setGenreIds(genreIds);
+        return bookSearchDTO;
+    }
+
+    private static BookDTO book(final String title, final Long authorId, final Integer genreId) {
+        final AuthorDTO author = new AuthorDTO();
+        author.setId(authorId);
+        final GenreDTO genre = new GenreDTO();
+        genre.setId(genreId);
+        final BookDTO book = new BookDTO();
+        book.setTitle(title);
+        book.setListOfAuthors(Set.of(author));
+        book.setListOfGenres(Set.of(genre));
+        return book;
+    }
+}
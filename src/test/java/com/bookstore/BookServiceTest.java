@@ -1,25 +1,43 @@
 package com.bookstore;
 
 import com.bookstore.exception.NotFoundException;
+import com.bookstore.repository.AuthorRepository;
+import com.bookstore.repository.BookFilter;
 import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.BookSortKey;
+import com.bookstore.repository.BookTitleView;
+import com.bookstore.repository.DirectWriteRepository;
 import com.bookstore.repository.entity.Book;
 import com.bookstore.service.BookService;
-import com.bookstore.service.dto.BookDTO;
-import com.bookstore.service.dto.BookSearchDTO;
-import com.bookstore.service.dto.GenreDTO;
+import com.bookstore.service.dto.*;
+import com.bookstore.service.read.BookReadModel;
+import com.bookstore.service.search.BookSearchCache;
+import com.bookstore.service.search.CatalogIndex;
+import com.bookstore.service.search.FacetIndex;
+import com.bookstore.service.search.RelevanceIndex;
+import com.bookstore.service.search.SuggestIndex;
+import com.bookstore.service.search.TitleIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.easymock.EasyMock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import static com.bookstore.Views.facetLink;
+import static com.bookstore.Views.titleView;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -33,12 +51,21 @@ class BookServiceTest {
     private static final Long BOOK_ID = 1L;
     private BookService bookService;
     private BookRepository bookRepository;
+    private AuthorRepository authorRepository;
+    private DirectWriteRepository directWriteRepository;
 
 
     @BeforeEach
     public void setup() {
         bookRepository = EasyMock.createMock(BookRepository.class);
-        bookService = new BookService(bookRepository);
+        authorRepository = EasyMock.createMock(AuthorRepository.class);
+        directWriteRepository = EasyMock.createMock(DirectWriteRepository.class);
+        bookService = new BookService(bookRepository, authorRepository, directWriteRepository,
+                new TitleIndex(bookRepository, false), new FacetIndex(bookRepository, false),
+                new BookSearchCache(0, Duration.ofMinutes(10), new SimpleMeterRegistry()),
+                new SuggestIndex(bookRepository, null, false), new CatalogIndex(bookRepository, false),
+                new RelevanceIndex(bookRepository, false), new BookReadModel(null, false), event -> {
+        });
     }
 
     @Test
@@ -71,14 +98,158 @@ class BookServiceTest {
         final PageRequest pageable = PageRequest.of(0, 1);
         reset(bookRepository);
         final Book book = new Book();
-        final Page<Book> page = new PageImpl<>(List.of(book), pageable, 0);
-        expect(bookRepository.findAll("", null, null, pageable)).andReturn(page);
+        book.setId(BOOK_ID);
+        final Page<Long> page = new PageImpl<>(List.of(BOOK_ID), pageable, 0);
+        expect(bookRepository.searchIds(anyObject(BookFilter.class), eq(pageable))).andReturn(page);
+        expect(bookRepository.findAllWithAssociationsByIdIn(List.of(BOOK_ID))).andReturn(List.of(book));
         replay(bookRepository);
         final List<BookDTO> response = bookService.getAllBooks(bookSearchDTO, pageable);
         verify(bookRepository);
         assertThat(response).isEqualTo(BookDTO.mapEntitiesToDTOs(List.of(book)));
     }
 
+    @Test
+    void searchBooksLastPageSkipsCountTest() {
+        final PageRequest pageable = PageRequest.of(1, 2);
+        reset(bookRepository);
+        final Book book = new Book();
+        book.setId(BOOK_ID);
+        expect(bookRepository.searchIds(anyObject(BookFilter.class), eq(pageable)))
+                .andReturn(new SliceImpl<>(List.of(BOOK_ID), pageable, false));
+        expect(bookRepository.findAllWithAssociationsByIdIn(List.of(BOOK_ID))).andReturn(List.of(book));
+        replay(bookRepository);
+        final BookPageDTO response = bookService.searchBooks(new BookSearchDTO(), pageable, true);
+        verify(bookRepository);
+        assertThat(response.total()).isEqualTo(3L);
+        assertThat(response.hasNext()).isFalse();
+    }
+
+    @Test
+    void searchBooksFullPageCountsOnceTest() {
+        final PageRequest pageable = PageRequest.of(0, 1);
+        reset(bookRepository);
+        final Book book = new Book();
+        book.setId(BOOK_ID);
+        expect(bookRepository.searchIds(anyObject(BookFilter.class), eq(pageable)))
+                .andReturn(new SliceImpl<>(List.of(BOOK_ID), pageable, true));
+        expect(bookRepository.findAllWithAssociationsByIdIn(List.of(BOOK_ID))).andReturn(List.of(book));
+        expect(bookRepository.countMatching(anyObject(BookFilter.class))).andReturn(5L).once();
+        replay(bookRepository);
+        final BookPageDTO response = bookService.searchBooks(new BookSearchDTO(), pageable, true);
+        verify(bookRepository);
+        assertThat(response.items()).isEqualTo(BookDTO.mapEntitiesToDTOs(List.of(book)));
+        assertThat(response.total()).isEqualTo(5L);
+        assertThat(response.hasNext()).isTrue();
+    }
+
+    @Test
+    void searchBooksWithoutTotalTest() {
+        final PageRequest pageable = PageRequest.of(0, 1);
+        reset(bookRepository);
+        expect(bookRepository.searchIds(anyObject(BookFilter.class), eq(pageable)))
+                .andReturn(new SliceImpl<>(List.of(BOOK_ID), pageable, true));
+        expect(bookRepository.findAllWithAssociationsByIdIn(List.of(BOOK_ID))).andReturn(List.of(new Book()));
+        replay(bookRepository);
+        final BookPageDTO response = bookService.searchBooks(new BookSearchDTO(), pageable, false);
+        verify(bookRepository);
+        assertThat(response.total()).isNull();
+    }
+
+    @Test
+    void scrollBooksSuccessTest() {
+        reset(bookRepository);
+        final Book first = new Book();
+        first.setId(1L);
+        first.setPrice(10.5);
+        expect(bookRepository.findIdsAfter(anyObject(BookFilter.class), eq(BookSortKey.PRICE),
+                eq(Sort.Direction.ASC), isNull(), isNull(), eq(2))).andReturn(List.of(1L, 2L));
+        expect(bookRepository.findAllWithAssociationsByIdIn(List.of(1L))).andReturn(List.of(first));
+        replay(bookRepository);
+        final BookCursorPageDTO response = bookService.scrollBooks(new BookSearchDTO(), Sort.Order.asc("price"), null, 1);
+        verify(bookRepository);
+        assertThat(response.items()).isEqualTo(BookDTO.mapEntitiesToDTOs(List.of(first)));
+        assertThat(BookCursor.decode(response.next()))
+                .isEqualTo(new BookCursor("price", Sort.Direction.ASC, "10.5", 1L));
+    }
+
+    @Test
+    void scrollBooksUnsupportedSortTest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> bookService.scrollBooks(new BookSearchDTO(), Sort.Order.asc("description"), null, 1));
+    }
+
+    @Test
+    void getBooksCountFromTitleIndexTest() {
+        final BookService indexedBookService = withTitleIndex(titleView(1L, "The Da Vinci Code"), titleView(2L, "It"));
+        final BookSearchDTO bookSearchDTO = new BookSearchDTO();
+        bookSearchDTO.setTitle("VINCI");
+        final Long response = indexedBookService.getBooksCount(bookSearchDTO);
+        verify(bookRepository);
+        assertThat(response).isEqualTo(1L);
+    }
+
+    @Test
+    void getAllBooksFromTitleIndexTest() {
+        final BookService indexedBookService = withTitleIndex(titleView(1L, "The Da Vinci Code"), titleView(2L, "It"),
+                titleView(3L, "Little Women"));
+        final Book book = new Book();
+        book.setId(3L);
+        reset(bookRepository);
+        expect(bookRepository.findAllWithAssociationsByIdIn(List.of(3L))).andReturn(List.of(book));
+        replay(bookRepository);
+        final BookSearchDTO bookSearchDTO = new BookSearchDTO();
+        bookSearchDTO.setTitle("it");
+        final List<BookDTO> response = indexedBookService.getAllBooks(bookSearchDTO,
+                PageRequest.of(1, 1, Sort.by("id")));
+        verify(bookRepository);
+        assertThat(response).containsExactly(BookDTO.mapEntityToDTO(book));
+    }
+
+    @Test
+    void getAllBooksNoTitleIndexMatchTest() {
+        final BookService indexedBookService = withTitleIndex(titleView(1L, "The Da Vinci Code"));
+        final BookSearchDTO bookSearchDTO = new BookSearchDTO();
+        bookSearchDTO.setTitle("women");
+        final List<BookDTO> response = indexedBookService.getAllBooks(bookSearchDTO, PageRequest.of(0, 10));
+        verify(bookRepository);
+        assertThat(response).isEmpty();
+    }
+
+    @Test
+    void getBooksCountFromFacetIndexTest() {
+        reset(bookRepository);
+        expect(bookRepository.findAllAuthorLinks()).andReturn(List.of());
+        expect(bookRepository.findAllGenreLinks()).andReturn(List.of(facetLink(1L, 2L), facetLink(2L, 2L),
+                facetLink(2L, 3L)));
+        replay(bookRepository);
+        final FacetIndex facetIndex = new FacetIndex(bookRepository, true);
+        facetIndex.build();
+        final BookService indexedBookService = new BookService(bookRepository, authorRepository,
+                directWriteRepository, new TitleIndex(bookRepository, false), facetIndex, new BookSearchCache(0, Duration.ofMinutes(10), new SimpleMeterRegistry()),
+                new SuggestIndex(bookRepository, null, false), new CatalogIndex(bookRepository, false),
+                new RelevanceIndex(bookRepository, false), new BookReadModel(null, false), event -> {
+        });
+        final BookSearchDTO bookSearchDTO = new BookSearchDTO();
+        bookSearchDTO.setGenreIds(List.of(2, 3));
+        final Long response = indexedBookService.getBooksCount(bookSearchDTO);
+        verify(bookRepository);
+        assertThat(response).isEqualTo(2L);
+    }
+
+    @Test
+    void getBookFacetsSuccessTest() {
+        final BookSearchDTO bookSearchDTO = new BookSearchDTO();
+        bookSearchDTO.setGenreIds(List.of(3));
+        reset(bookRepository);
+        expect(bookRepository.countPerGenre(anyObject(BookFilter.class))).andReturn(Map.of(2L, 5L));
+        expect(bookRepository.countPerAuthor(anyObject(BookFilter.class), eq(5))).andReturn(Map.of(1L, 2L));
+        replay(bookRepository);
+        final BookFacetsDTO response = bookService.getBookFacets(bookSearchDTO, 5);
+        verify(bookRepository);
+        assertThat(response.genres()).containsExactly(new FacetCountDTO(2L, 5L));
+        assertThat(response.authors()).containsExactly(new FacetCountDTO(1L, 2L));
+    }
+
     @Test
     @DirtiesContext
     void saveBookSuccessTest() {
@@ -103,22 +274,20 @@ class BookServiceTest {
     @Test
     @DirtiesContext
     void deleteBookSuccessTest() {
-        expect(bookRepository.findById(BOOK_ID)).andReturn(Optional.of(new Book()));
-        bookRepository.deleteById(BOOK_ID);
-        expectLastCall();
-        replay(bookRepository);
+        expect(directWriteRepository.deleteBook(BOOK_ID)).andReturn(new BookDTO());
+        replay(bookRepository, directWriteRepository);
         bookService.deleteBook(BOOK_ID);
-        verify(bookRepository);
+        verify(bookRepository, directWriteRepository);
     }
 
     @Test
     @DirtiesContext
     void deleteBookNotFoundTest() {
-        expect(bookRepository.findById(BOOK_ID)).andReturn(Optional.empty());
-        replay(bookRepository);
+        expect(directWriteRepository.deleteBook(BOOK_ID)).andReturn(null);
+        replay(bookRepository, directWriteRepository);
         final Throwable exception = assertThrows(NotFoundException.class, () -> bookService.deleteBook(BOOK_ID));
         assertThat("Book with id " + BOOK_ID + " does not exist").isEqualTo(exception.getMessage());
-        verify(bookRepository);
+        verify(bookRepository, directWriteRepository);
     }
 
     @Test
@@ -126,12 +295,15 @@ class BookServiceTest {
     void updateBookSuccessTest() {
         final BookDTO requestDTO = new BookDTO();
         requestDTO.setTitle("updatedTitle");
-        expect(bookRepository.findById(BOOK_ID)).andReturn(Optional.of(new Book()));
-        expect(bookRepository.save(BookDTO.mapDTOToEntity(requestDTO))).andReturn(BookDTO.mapDTOToEntity(requestDTO));
-        replay(bookRepository);
+        final BookDTO updated = new BookDTO();
+        updated.setId(BOOK_ID);
+        updated.setTitle("updatedTitle");
+        expect(directWriteRepository.patchBook(BOOK_ID, null, BookPatchDTO.mapDTOToPatch(requestDTO)))
+                .andReturn(new DirectWriteRepository.BookUpdate(new BookDTO(), updated));
+        replay(bookRepository, directWriteRepository);
         final BookDTO response = bookService.updateBook(BOOK_ID, requestDTO);
-        verify(bookRepository);
-        assertThat(response).isEqualTo(requestDTO);
+        verify(bookRepository, directWriteRepository);
+        assertThat(response.getTitle()).isEqualTo("updatedTitle");
     }
 
     @Test
@@ -139,11 +311,128 @@ class BookServiceTest {
     void updateBookNotFoundTest() {
         final BookDTO requestDTO = new BookDTO();
         requestDTO.setTitle("updatedTitle");
-        expect(bookRepository.findById(BOOK_ID)).andReturn(Optional.empty());
-        replay(bookRepository);
+        expect(directWriteRepository.patchBook(BOOK_ID, null, BookPatchDTO.mapDTOToPatch(requestDTO)))
+                .andReturn(null);
+        replay(bookRepository, directWriteRepository);
         final BookDTO response = bookService.updateBook(BOOK_ID, requestDTO);
-        verify(bookRepository);
+        verify(bookRepository, directWriteRepository);
         assertThat(response).isNull();
     }
 
-}
\ No newline at end of file
+    @Test
+    void updateBookWithVersionSuccessTest() {
+        final BookDTO requestDTO = new BookDTO();
+        requestDTO.setTitle("updatedTitle");
+        final BookDTO previous = new BookDTO();
+        previous.setId(BOOK_ID);
+        previous.setVersion(4L);
+        final BookDTO updated = new BookDTO();
+        updated.setId(BOOK_ID);
+        updated.setVersion(5L);
+        expect(directWriteRepository.patchBook(BOOK_ID, 4L, BookPatchDTO.mapDTOToPatch(requestDTO)))
+                .andReturn(new DirectWriteRepository.BookUpdate(previous, updated));
+        replay(bookRepository, directWriteRepository);
+        final BookDTO response = bookService.updateBook(BOOK_ID, 4L, requestDTO);
+        verify(bookRepository, directWriteRepository);
+        assertThat(response.getVersion()).isEqualTo(5L);
+    }
+
+    @Test
+    void updateBookWithStaleVersionTest() {
+        final BookDTO requestDTO = new BookDTO();
+        requestDTO.setTitle("updatedTitle");
+        expect(directWriteRepository.patchBook(BOOK_ID, 3L, BookPatchDTO.mapDTOToPatch(requestDTO))).andReturn(null);
+        expect(bookRepository.existsById(BOOK_ID)).andReturn(true);
+        replay(bookRepository, directWriteRepository);
+        assertThrows(OptimisticLockingFailureException.class, () -> bookService.updateBook(BOOK_ID, 3L, requestDTO));
+        verify(bookRepository, directWriteRepository);
+    }
+
+    @Test
+    void patchBookSuccessTest() {
+        final BookPatchDTO patch = new BookPatchDTO();
+        patch.setPrice(9.5);
+        final BookDTO previous = new BookDTO();
+        previous.setId(BOOK_ID);
+        previous.setPrice(12.0);
+        final BookDTO updated = new BookDTO();
+        updated.setId(BOOK_ID);
+        updated.setPrice(9.5);
+        expect(directWriteRepository.patchBook(BOOK_ID, null, patch))
+                .andReturn(new DirectWriteRepository.BookUpdate(previous, updated));
+        replay(bookRepository, directWriteRepository);
+        final BookDTO response = bookService.patchBook(BOOK_ID, null, patch);
+        verify(bookRepository, directWriteRepository);
+        assertThat(response.getPrice()).isEqualTo(9.5);
+        assertThat(patch.fields()).containsOnlyKeys(BookPatchDTO.PRICE);
+        assertThat(patch.authorIds()).isNull();
+    }
+
+    @Test
+    void patchBookInvalidTest() {
+        replay(bookRepository, directWriteRepository);
+        assertThrows(IllegalArgumentException.class, () -> bookService.patchBook(BOOK_ID, null, new BookPatchDTO()));
+        final BookPatchDTO patch = new BookPatchDTO();
+        patch.setTitle(" ");
+        assertThrows(IllegalArgumentException.class, () -> bookService.patchBook(BOOK_ID, null, patch));
+        verify(bookRepository, directWriteRepository);
+    }
+
+    @Test
+    void suggestWithoutIndexSuccessTest() {
+        expect(bookRepository.findByTitleStartingWithIgnoreCaseOrderByTitle("the da", PageRequest.of(0, 5)))
+                .andReturn(List.of(titleView(BOOK_ID, "The Da Vinci Code")));
+        replay(bookRepository);
+        final List<SuggestionDTO> response = bookService.suggest(" the da ", 5);
+        verify(bookRepository);
+        assertThat(response).containsExactly(
+                new SuggestionDTO(SuggestionDTO.Type.BOOK, BOOK_ID, "The Da Vinci Code", 1));
+        assertThat(bookService.suggest("  ", 5)).isEmpty();
+    }
+
+    @Test
+    void searchBooksByRelevanceWithoutIndexSuccessTest() {
+        final Book book = new Book();
+        book.setId(BOOK_ID);
+        book.setTitle("The Da Vinci Code");
+        expect(bookRepository.rankIds(eq(List.of("vinci", "code")), anyObject(BookFilter.class), eq(0L), eq(3)))
+                .andReturn(Map.of(BOOK_ID, 0.5));
+        expect(bookRepository.findAllWithAssociationsByIdIn(List.of(BOOK_ID))).andReturn(List.of(book));
+        replay(bookRepository);
+        final RankedBookPageDTO response = bookService.searchBooksByRelevance("Vinci, code", new BookSearchDTO(),
+                PageRequest.of(0, 2));
+        verify(bookRepository);
+        assertThat(response.items()).containsExactly(new RankedBookDTO(BookDTO.mapEntityToDTO(book), 0.5));
+        assertThat(response.hasNext()).isFalse();
+    }
+
+    @Test
+    void searchBooksByRelevanceWithoutWordsTest() {
+        replay(bookRepository);
+        assertThrows(IllegalArgumentException.class,
+                () -> bookService.searchBooksByRelevance(" ,. ", new BookSearchDTO(), PageRequest.of(0, 2)));
+        verify(bookRepository);
+    }
+
+    @Test
+    void suggestInvalidLimitTest() {
+        replay(bookRepository);
+        assertThrows(IllegalArgumentException.class, () -> bookService.suggest("it", 0));
+        assertThrows(IllegalArgumentException.class, () -> bookService.suggest("it", 51));
+        verify(bookRepository);
+    }
+
+    private BookService withTitleIndex(final BookTitleView... titles) {
+        reset(bookRepository);
+        expect(bookRepository.findAllTitles()).andReturn(List.of(titles));
+        replay(bookRepository);
+        final TitleIndex titleIndex = new TitleIndex(bookRepository, true);
+        titleIndex.build();
+        return new BookService(bookRepository, authorRepository, directWriteRepository,
+                titleIndex, new FacetIndex(bookRepository, false),
+                new BookSearchCache(0, Duration.ofMinutes(10), new SimpleMeterRegistry()), new SuggestIndex(bookRepository, null, false),
+                new CatalogIndex(bookRepository, false), new RelevanceIndex(bookRepository, false),
+                new BookReadModel(null, false), event -> {
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package com.bookstore;
+
+import com.bookstore.repository.BookRepository;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.search.CatalogIndex;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.bookstore.Views.catalogRow;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link CatalogIndex}.
+ */
+class CatalogIndexTest {
+
+    private BookRepository bookRepository;
+    private CatalogIndex catalogIndex;
+
+    @BeforeEach
+    public void setup() {
+        bookRepository = EasyMock.createMock(BookRepository.class);
+        expect(bookRepository.findAllCatalogRows()).andReturn(List.of(catalogRow(1L, 98.9, 2003),
+                catalogRow(2L, 95.9, 1986), catalogRow(3L, null, null), catalogRow(4L, 95.9, 2009)));
+        replay(bookRepository);
+        catalogIndex = new CatalogIndex(bookRepository, true);
+        catalogIndex.build();
+    }
+
+    @Test
+    void searchSuccessTest() {
+        assertThat(catalogIndex.isReady()).isTrue();
+        assertThat(catalogIndex.search(96.0, null, null, null, null)).containsExactly(1);
+        assertThat(catalogIndex.search(null, 98.9, 2000, null, null)).containsExactly(1, 4);
+        assertThat(catalogIndex.search(null, null, null, 2003, new int[]{1, 3, 5})).containsExactly(1);
+        assertThat(catalogIndex.search(null, null, 2010, 2000, null)).isEmpty();
+        verify(bookRepository);
+    }
+
+    @Test
+    void searchDisabledTest() {
+        final CatalogIndex disabledIndex = new CatalogIndex(bookRepository, false);
+        disabledIndex.build();
+        assertThat(disabledIndex.isReady()).isFalse();
+        assertThrows(IllegalStateException.class, () -> disabledIndex.search(1.0, null, null, null, null));
+    }
+
+    @Test
+    void pageSuccessTest() {
+        assertThat(catalogIndex.page(Sort.by("price"), null, 0, 10)).containsExactly(2, 4, 1, 3);
+        assertThat(catalogIndex.page(Sort.by(Sort.Direction.DESC, "price"), null, 1, 2)).containsExactly(1, 4);
+        assertThat(catalogIndex.page(Sort.by("year"), new int[]{1, 3, 4}, 0, 10)).containsExactly(1, 4, 3);
+        assertThrows(IllegalArgumentException.class, () -> catalogIndex.page(Sort.by("title"), null, 0, 10));
+    }
+
+    @Test
+    void bookChangedSuccessTest() {
+        catalogIndex.onBookChanged(new BookChangedEvent(5L, null, book(10.0, 2020)));
+        catalogIndex.onBookChanged(new BookChangedEvent(2L, null, book(120.0, null)));
+        catalogIndex.onBookChanged(new BookChangedEvent(1L, null, null));
+        catalogIndex.onBookChanged(new BookChangedEvent(6L, null, null));
+        assertThat(catalogIndex.page(Sort.by("price"), null, 0, 10)).containsExactly(5, 4, 2, 3);
+        assertThat(catalogIndex.page(Sort.by(Sort.Direction.DESC, "year"), null, 0, 10)).containsExactly(3, 2, 5, 4);
+        assertThat(catalogIndex.search(null, null, 2000, null, null)).containsExactly(4, 5);
+    }
+
+    @Test
+    void bookChangedMergeSuccessTest() throws InterruptedException {
+        IntStream.rangeClosed(5, 2000).forEach(id -> catalogIndex.onBookChanged(
+                new BookChangedEvent((long) id, null, book((double) id, 2000 + id % 10))));
+        catalogIndex.onBookChanged(new BookChangedEvent(1L, null, null));
+        catalogIndex.onBookChanged(new BookChangedEvent(1500L, null, book(1.0, null)));
+        assertMerged();
+        // The merge runs in the background, the results are the same once it is done.
+        Thread.sleep(500);
+        assertMerged();
+    }
+
+    private void assertMerged() {
+        assertThat(catalogIndex.page(Sort.by("price"), null, 0, 4)).containsExactly(1500, 5, 6, 7);
+        assertThat(catalogIndex.page(Sort.by(Sort.Direction.DESC, "price"), null, 0, 3))
+                .containsExactly(3, 2000, 1999);
+        assertThat(catalogIndex.page(Sort.by("year"), new int[]{2, 4, 10, 11}, 1, 2)).containsExactly(10, 11);
+        assertThat(catalogIndex.search(95.0, 96.0, null, null, null)).containsExactly(2, 4, 95, 96);
+        assertThat(catalogIndex.search(null, null, 2009, null, new int[]{1, 4, 9, 19, 1500}))
+                .containsExactly(4, 9, 19);
+    }
+
+    private static BookDTO book(final Double price, final Integer year) {
+        final BookDTO book = new BookDTO();
+        book.setPrice(price);
+        book.setYear(year);
+        return book;
+    }
+}
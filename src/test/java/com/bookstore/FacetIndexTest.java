@@ -0,0 +1,137 @@
+package com.bookstore;
+
+import com.bookstore.repository.BookFacetView;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.GenreDTO;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.search.FacetIndex;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.bookstore.Views.facetLink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link FacetIndex}.
+ */
+class FacetIndexTest {
+
+    private BookRepository bookRepository;
+    private FacetIndex facetIndex;
+
+    @BeforeEach
+    public void setup() {
+        bookRepository = EasyMock.createMock(BookRepository.class);
+        expect(bookRepository.findAllAuthorLinks()).andReturn(List.of(facetLink(1L, 3L), facetLink(2L, 1L), facetLink(4L, 1L)));
+        expect(bookRepository.findAllGenreLinks()).andReturn(List.of(facetLink(1L, 2L), facetLink(1L, 3L), facetLink(2L, 2L)));
+        replay(bookRepository);
+        facetIndex = new FacetIndex(bookRepository, true);
+        facetIndex.build();
+    }
+
+    @Test
+    void searchSuccessTest() {
+        assertThat(facetIndex.isReady()).isTrue();
+        assertThat(facetIndex.search(List.of(1L), null).toArray()).containsExactly(2, 4);
+        assertThat(facetIndex.search(null, List.of(2, 3)).toArray()).containsExactly(1, 2);
+        assertThat(facetIndex.search(List.of(1L, 3L), List.of(2)).toArray()).containsExactly(1, 2);
+        assertThat(facetIndex.search(List.of(5L), List.of(2)).isEmpty()).isTrue();
+        assertThat(facetIndex.search(null, null)).isNull();
+        verify(bookRepository);
+    }
+
+    @Test
+    void searchResultIsACopyTest() {
+        final RoaringBitmap result = facetIndex.search(List.of(1L), null);
+        result.add(100);
+        assertThat(facetIndex.search(List.of(1L), null).toArray()).containsExactly(2, 4);
+    }
+
+    @Test
+    void searchDisabledTest() {
+        final FacetIndex disabledIndex = new FacetIndex(bookRepository, false);
+        disabledIndex.build();
+        assertThat(disabledIndex.isReady()).isFalse();
+        assertThrows(IllegalStateException.class, () -> disabledIndex.search(List.of(1L), null));
+    }
+
+    @Test
+    void bookChangedSuccessTest() {
+        final RoaringBitmap before = facetIndex.search(null, List.of(2));
+        facetIndex.onBookChanged(new BookChangedEvent(5L, null, book(2L, 1)));
+        facetIndex.onBookChanged(new BookChangedEvent(2L, null, book(1L, 3)));
+        facetIndex.onBookChanged(new BookChangedEvent(1L, null, null));
+        assertThat(facetIndex.search(List.of(2L), null).toArray()).containsExactly(5);
+        assertThat(facetIndex.search(List.of(1L), List.of(3)).toArray()).containsExactly(2);
+        assertThat(facetIndex.search(null, List.of(2)).isEmpty()).isTrue();
+        assertThat(facetIndex.search(List.of(3L), null).isEmpty()).isTrue();
+        assertThat(before.toArray()).containsExactly(1, 2);
+    }
+
+    @Test
+    void bookChangedManyFacetsTest() {
+        // One book per author: a write must copy the shards of the facets it touches and share the others.
+        final int authors = 200_000;
+        final List<BookFacetView> links = new ArrayList<>(authors);
+        for (long id = 1; id <= authors; id++) {
+            links.add(facetLink(id, id));
+        }
+        reset(bookRepository);
+        expect(bookRepository.findAllAuthorLinks()).andReturn(links);
+        expect(bookRepository.findAllGenreLinks()).andReturn(List.of());
+        replay(bookRepository);
+        final FacetIndex largeIndex = new FacetIndex(bookRepository, true);
+        largeIndex.build();
+
+        final Object[] before = authorShards(largeIndex);
+        largeIndex.onBookChanged(new BookChangedEvent(1L, null, book(2L, 1)));
+        final Object[] after = authorShards(largeIndex);
+        assertThat(after).hasSameSizeAs(before);
+        for (int shard = 0; shard < before.length; shard++) {
+            if (shard == 1 || shard == 2) {
+                assertThat(after[shard]).isNotSameAs(before[shard]);
+            } else {
+                assertThat(after[shard]).isSameAs(before[shard]);
+            }
+        }
+
+        for (long bookId = 2; bookId <= 5000; bookId++) {
+            largeIndex.onBookChanged(new BookChangedEvent(bookId, null, book(authors + 1 - bookId, 1)));
+        }
+        assertThat(largeIndex.search(List.of(2L), null).toArray()).containsExactly(1);
+        assertThat(largeIndex.search(List.of((long) authors - 1), null).toArray()).containsExactly(2, authors - 1);
+        assertThat(largeIndex.search(List.of(1L), null).isEmpty()).isTrue();
+        assertThat(largeIndex.search(null, List.of(1)).getCardinality()).isEqualTo(5000);
+        assertThat(largeIndex.countPerAuthor(null, Integer.MAX_VALUE)).hasSize(authors - 4999);
+    }
+
+    private static Object[] authorShards(final FacetIndex index) {
+        final Object snapshot = ReflectionTestUtils.getField(index, "snapshot");
+        final Object authors = ReflectionTestUtils.getField(Objects.requireNonNull(snapshot), "authors");
+        return (Object[]) ReflectionTestUtils.getField(Objects.requireNonNull(authors), "shards");
+    }
+
+    private static BookDTO book(final Long authorId, final Integer genreId) {
+        final AuthorDTO author = new AuthorDTO();
+        author.setId(authorId);
+        final GenreDTO genre = new GenreDTO();
+        genre.setId(genreId);
+        final BookDTO book = new BookDTO();
+        book.setTitle("title");
+        book.setListOfAuthors(Set.of(author));
+        book.setListOfGenres(Set.of(genre));
+        return book;
+    }
+}
@@ -0,0 +1,95 @@
+package com.bookstore;
+
+import com.bookstore.repository.BookRepository;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.search.RelevanceIndex;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.bookstore.Views.textView;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link RelevanceIndex}.
+ */
+class RelevanceIndexTest {
+
+    private BookRepository bookRepository;
+    private RelevanceIndex relevanceIndex;
+
+    @BeforeEach
+    public void setup() {
+        bookRepository = EasyMock.createMock(BookRepository.class);
+        expect(bookRepository.findAllTexts()).andReturn(List.of(textView(1L, "The Da Vinci Code", null),
+                textView(2L, "It", null), textView(3L, "unknown", "A story about a secret code"),
+                textView(4L, "Code Complete", "A practical handbook of software construction, code first")));
+        replay(bookRepository);
+        relevanceIndex = new RelevanceIndex(bookRepository, true);
+        relevanceIndex.build();
+    }
+
+    @Test
+    void searchSuccessTest() {
+        assertThat(relevanceIndex.isReady()).isTrue();
+        assertThat(ids(relevanceIndex.search(List.of("code"), null, 10))).containsExactly(4, 1, 3);
+        assertThat(ids(relevanceIndex.search(List.of("code"), null, 2))).containsExactly(4, 1);
+        assertThat(ids(relevanceIndex.search(List.of("code"), new int[]{1, 3}, 10))).containsExactly(1, 3);
+        assertThat(ids(relevanceIndex.search(List.of("secret", "story", "story"), null, 1))).containsExactly(3);
+        assertThat(relevanceIndex.search(List.of("missing"), null, 10)).isEmpty();
+        assertThat(RelevanceIndex.terms("Da Vinci, CODE!")).containsExactly("da", "vinci", "code");
+        verify(bookRepository);
+    }
+
+    @Test
+    void searchDisabledTest() {
+        final RelevanceIndex disabledIndex = new RelevanceIndex(bookRepository, false);
+        disabledIndex.build();
+        assertThat(disabledIndex.isReady()).isFalse();
+        assertThrows(IllegalStateException.class, () -> disabledIndex.search(List.of("it"), null, 10));
+    }
+
+    @Test
+    void bookChangedSuccessTest() {
+        relevanceIndex.onBookChanged(new BookChangedEvent(4L, null, null));
+        relevanceIndex.onBookChanged(new BookChangedEvent(2L, null, book("Code", "code code")));
+        assertThat(ids(relevanceIndex.search(List.of("code"), null, 10))).containsExactly(2, 1, 3);
+        assertThat(relevanceIndex.search(List.of("complete"), null, 10)).isEmpty();
+    }
+
+    @Test
+    void bookChangedMergeSuccessTest() throws InterruptedException {
+        IntStream.rangeClosed(5, 1100).forEach(id -> relevanceIndex.onBookChanged(
+                new BookChangedEvent((long) id, null, book("Volume " + id, null))));
+        relevanceIndex.onBookChanged(new BookChangedEvent(3L, null, null));
+        relevanceIndex.onBookChanged(new BookChangedEvent(1000L, null, book("Inferno", null)));
+        assertMerged();
+        // The merge runs in the background: the results are the same once it is over.
+        Thread.sleep(500);
+        assertMerged();
+    }
+
+    private void assertMerged() {
+        assertThat(ids(relevanceIndex.search(List.of("volume", "1099"), null, 1))).containsExactly(1099);
+        assertThat(relevanceIndex.search(List.of("volume"), null, 2000)).hasSize(1095);
+        assertThat(ids(relevanceIndex.search(List.of("inferno"), null, 10))).containsExactly(1000);
+        assertThat(relevanceIndex.search(List.of("secret"), null, 10)).isEmpty();
+    }
+
+    private static List<Integer> ids(final List<RelevanceIndex.Hit> hits) {
+        return hits.stream().map(RelevanceIndex.Hit::id).toList();
+    }
+
+    private static BookDTO book(final String title, final String description) {
+        final BookDTO book = new BookDTO();
+        book.setTitle(title);
+        book.setDescription(description);
+        return book;
+    }
+}
@@ -1,16 +1,34 @@
 package com.bookstore;
 
 import com.bookstore.controller.ResourceController;
+import com.bookstore.repository.entity.Book;
+import com.bookstore.repository.entity.Genre;
+import com.bookstore.service.ResourceService;
+import com.bookstore.service.dto.JwtDTO;
+import com.bookstore.service.dto.SignInRequestDTO;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import net.minidev.json.JSONArray;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -20,6 +38,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 class ResourceControllerTest {
     @Autowired
     TestRestTemplate restTemplate;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    ResourceService resourceService;
 
     @Test
     void getAllGenresSuccessTest() {
@@ -35,4 +57,107 @@ class ResourceControllerTest {
         assertThat(names).containsExactly("fiction", "novel", "mystery");
     }
 
-}
\ No newline at end of file
+    @Test
+    void getAllGenresNotModifiedTest() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/resources/genre", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        final String eTag = response.getHeaders().getETag();
+        assertThat(eTag).isNotNull();
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("max-age=3600, public");
+
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        response = restTemplate.exchange("/resources/genre", HttpMethod.GET, new HttpEntity<>(null, headers),
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        assertThat(response.getHeaders().getETag()).isEqualTo(eTag);
+
+        headers.setIfNoneMatch("\"stale\"");
+        response = restTemplate.exchange("/resources/genre", HttpMethod.GET, new HttpEntity<>(null, headers),
+                String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void getAllGenresGzipTest() throws IOException {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        final ResponseEntity<byte[]> response = restTemplate.exchange("/resources/genre", HttpMethod.GET,
+                new HttpEntity<>(null, headers), byte[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeaders().getVary()).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getBody()).isNotNull();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            final JSONArray names = JsonPath.parse(new String(gzip.readAllBytes(), StandardCharsets.UTF_8))
+                    .read("$..name");
+            assertThat(names).containsExactly("fiction", "novel", "mystery");
+        }
+    }
+
+    @Test
+    void getAllGenresGzipNotModifiedTest() {
+        final String eTag = restTemplate.getForEntity("/resources/genre", String.class).getHeaders().getETag();
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        ResponseEntity<byte[]> response = restTemplate.exchange("/resources/genre", HttpMethod.GET,
+                new HttpEntity<>(null, headers), byte[].class);
+        final String gzippedETag = response.getHeaders().getETag();
+        assertThat(gzippedETag).isNotNull().isNotEqualTo(eTag).endsWith("-gz\"");
+
+        // The tag of the uncompressed body does not validate the compressed one.
+        headers.setIfNoneMatch(eTag);
+        response = restTemplate.exchange("/resources/genre", HttpMethod.GET, new HttpEntity<>(null, headers),
+                byte[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+
+        headers.setIfNoneMatch(gzippedETag);
+        response = restTemplate.exchange("/resources/genre", HttpMethod.GET, new HttpEntity<>(null, headers),
+                byte[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo(gzippedETag);
+    }
+
+    @Test
+    void getAllGenresQueryCacheTest() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        resourceService.getAllGenres();
+        statistics.clear();
+        assertThat(resourceService.getAllGenres()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void bookAssociationsSecondLevelCacheTest() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        loadGenresOfBook(1L);
+        statistics.clear();
+        assertThat(loadGenresOfBook(1L)).containsExactlyInAnyOrder("novel", "mystery");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics("book-genres").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics("genre").getHitCount()).isEqualTo(2);
+
+        final ResponseEntity<JwtDTO> signIn = restTemplate
+                .postForEntity("/auth/signin", new SignInRequestDTO("admin", "pass1"), JwtDTO.class);
+        assertThat(signIn.getBody()).isNotNull();
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", signIn.getBody().accessToken());
+        final ResponseEntity<String> metrics = restTemplate.exchange(
+                "/actuator/metrics/hibernate.second.level.cache.requests?tag=region:genre&tag=result:hit",
+                HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(metrics.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat((Double) JsonPath.parse(metrics.getBody()).read("$.measurements[0].value")).isPositive();
+    }
+
+    private List<String> loadGenresOfBook(Long bookId) {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.find(Book.class, bookId).getListOfGenres().stream().map(Genre::getName).toList();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
@@ -3,12 +3,18 @@ package com.bookstore;
 import com.bookstore.repository.GenreRepository;
 import com.bookstore.repository.entity.Genre;
 import com.bookstore.service.ResourceService;
+import com.bookstore.service.dto.GenreCatalogDTO;
 import com.bookstore.service.dto.GenreDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.easymock.EasyMock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -19,13 +25,17 @@ import static org.easymock.EasyMock.*;
  */
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.profiles.active=test")
 class ResourceServiceTest {
+    @Autowired
+    GenreRepository databaseGenreRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
     private ResourceService resourceService;
     private GenreRepository genreRepository;
 
     @BeforeEach
     public void setup() {
         genreRepository = EasyMock.createMock(GenreRepository.class);
-        resourceService = new ResourceService(genreRepository);
+        resourceService = new ResourceService(genreRepository, new ObjectMapper(), Duration.ofHours(1));
     }
 
     @Test
@@ -40,5 +50,74 @@ class ResourceServiceTest {
         assertThat(response).isEqualTo(GenreDTO.mapEntitiesToDTOs(List.of(genre)));
     }
 
+    @Test
+    void getGenreCatalogSuccessTest() {
+        reset(genreRepository);
+        final Genre genre = new Genre();
+        genre.setId(1);
+        genre.setName("fiction");
+        expect(genreRepository.findAllRows()).andReturn(List.of(row(genre)));
+        replay(genreRepository);
+        final GenreCatalogDTO catalog = resourceService.getGenreCatalog();
+        assertThat(resourceService.getGenreCatalog()).isSameAs(catalog);
+        verify(genreRepository);
+        assertThat(new String(catalog.json(), StandardCharsets.UTF_8)).isEqualTo("[{\"id\":1,\"name\":\"fiction\"}]");
+        assertThat(catalog.eTag()).matches("\"[0-9a-f]{32}\"");
+        assertThat(catalog.gzippedETag()).matches("\"[0-9a-f]{32}-gz\"");
+    }
 
+    @Test
+    void getGenreCatalogExpiredTest() {
+        resourceService = new ResourceService(genreRepository, new ObjectMapper(), Duration.ZERO);
+        reset(genreRepository);
+        final Genre genre = new Genre();
+        genre.setId(1);
+        genre.setName("fiction");
+        expect(genreRepository.findAllRows()).andReturn(List.of(row(genre))).times(2);
+        final Genre renamed = new Genre();
+        renamed.setId(1);
+        renamed.setName("fantasy");
+        expect(genreRepository.findAllRows()).andReturn(List.of(row(renamed)));
+        replay(genreRepository);
+        final GenreCatalogDTO catalog = resourceService.getGenreCatalog();
+        assertThat(resourceService.getGenreCatalog()).isSameAs(catalog);
+        final GenreCatalogDTO rebuilt = resourceService.getGenreCatalog();
+        verify(genreRepository);
+        assertThat(rebuilt.genres()).extracting(GenreDTO::getName).containsExactly("fantasy");
+        assertThat(rebuilt.eTag()).isNotEqualTo(catalog.eTag());
+    }
+
+    @Test
+    void getGenreCatalogDatabaseChangeTest() {
+        final ResourceService uncachedService = new ResourceService(databaseGenreRepository, new ObjectMapper(),
+                Duration.ZERO);
+        // The Hibernate caches hold the genres before the change.
+        databaseGenreRepository.findAll();
+        final GenreCatalogDTO catalog = uncachedService.getGenreCatalog();
+        assertThat(catalog.genres()).extracting(GenreDTO::getName).containsExactly("fiction", "novel", "mystery");
+
+        jdbcTemplate.update("update genre set name = 'poetry' where id = 1");
+        try {
+            final GenreCatalogDTO rebuilt = uncachedService.getGenreCatalog();
+            assertThat(rebuilt.genres()).extracting(GenreDTO::getName)
+                    .containsExactly("poetry", "novel", "mystery");
+            assertThat(rebuilt.eTag()).isNotEqualTo(catalog.eTag());
+        } finally {
+            jdbcTemplate.update("update genre set name = 'fiction' where id = 1");
+        }
+    }
+
+    private static GenreRepository.GenreRow row(final Genre genre) {
+        return new GenreRepository.GenreRow() {
+            @Override
+            public Integer getId() {
+                return genre.getId();
+            }
+
+            @Override
+            public String getName() {
+                return genre.getName();
+            }
+        };
+    }
 }
\ No newline at end of file
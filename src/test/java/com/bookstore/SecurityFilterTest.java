@@ -0,0 +1,102 @@
+package com.bookstore;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.bookstore.repository.UserRepository;
+import com.bookstore.repository.entity.Users;
+import com.bookstore.service.AuthService;
+import com.bookstore.service.SecurityFilter;
+import com.bookstore.service.TokenService;
+import com.bookstore.service.dto.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.*;
+
+/**
+ * Test class for {@link SecurityFilter}.
+ */
+class SecurityFilterTest {
+    private static final String SECRET = "test_secret";
+
+    private UserRepository userRepository;
+    private TokenService tokenService;
+    private SecurityFilter securityFilter;
+
+    @BeforeEach
+    public void setup() {
+        userRepository = EasyMock.createMock(UserRepository.class);
+        tokenService = new TokenService(SECRET, Duration.ofMinutes(15), 100, new SimpleMeterRegistry());
+        securityFilter = new SecurityFilter(tokenService,
+                new AuthService(userRepository, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenWithRoleAuthenticatesWithoutLookupTest() throws Exception {
+        replay(userRepository);
+        final String token = tokenService.generateAccessToken(new Users("admin", "hash", UserRole.ADMIN));
+        final Authentication authentication = filter(token);
+        verify(userRepository);
+        assertThat(authentication.getName()).isEqualTo("admin");
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN", "ROLE_USER");
+    }
+
+    @Test
+    void tokenWithoutRoleUsesCachedUserTest() throws Exception {
+        expect(userRepository.findByUsername("user")).andReturn(new Users("user", "hash", UserRole.USER)).once();
+        replay(userRepository);
+        final String token = JWT.create().withSubject("user").withExpiresAt(Instant.now().plusSeconds(60))
+                .sign(Algorithm.HMAC256(SECRET));
+        filter(token);
+        SecurityContextHolder.clearContext();
+        final Authentication authentication = filter(token);
+        verify(userRepository);
+        assertThat(authentication.getName()).isEqualTo("user");
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void tokenWithoutRoleOfUnknownUserTest() throws Exception {
+        expect(userRepository.findByUsername("removed")).andReturn(null);
+        replay(userRepository);
+        final String token = JWT.create().withSubject("removed").withExpiresAt(Instant.now().plusSeconds(60))
+                .sign(Algorithm.HMAC256(SECRET));
+        assertThat(filter(token)).isNull();
+        verify(userRepository);
+    }
+
+    private Authentication filter(final String token) throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        final Authentication[] authentication = new Authentication[1];
+        securityFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                authentication[0] = SecurityContextHolder.getContext().getAuthentication();
+            }
+        });
+        return authentication[0];
+    }
+}
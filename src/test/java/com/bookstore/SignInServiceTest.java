@@ -0,0 +1,106 @@
+package com.bookstore;
+
+import com.bookstore.repository.entity.Users;
+import com.bookstore.service.RefreshTokenService;
+import com.bookstore.service.SignInService;
+import com.bookstore.service.dto.JwtDTO;
+import com.bookstore.service.dto.SignInRequestDTO;
+import com.bookstore.service.dto.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link SignInService}.
+ */
+class SignInServiceTest {
+    private AuthenticationManager authenticationManager;
+    private RefreshTokenService refreshTokenService;
+    private SimpleMeterRegistry meterRegistry;
+    private SignInService signInService;
+
+    @BeforeEach
+    public void setup() {
+        authenticationManager = EasyMock.createMock(AuthenticationManager.class);
+        refreshTokenService = EasyMock.createMock(RefreshTokenService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        signInService = new SignInService(authenticationManager, refreshTokenService, 1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        signInService.shutdown();
+    }
+
+    @Test
+    void signInSuccessTest() throws Exception {
+        final Users user = new Users("admin", "hash", UserRole.ADMIN);
+        final JwtDTO tokens = new JwtDTO("access", "refresh");
+        expect(authenticationManager.authenticate(anyObject()))
+                .andReturn(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        expect(refreshTokenService.signIn(user)).andReturn(tokens);
+        replay(authenticationManager, refreshTokenService);
+
+        assertThat(signInService.signIn(new SignInRequestDTO("admin", "pass1")).get(5, TimeUnit.SECONDS))
+                .isEqualTo(tokens);
+        assertThat(meterRegistry.get("auth.password.check").timer().count()).isEqualTo(1);
+        verify(authenticationManager, refreshTokenService);
+    }
+
+    @Test
+    void signInInvalidTest() {
+        expect(authenticationManager.authenticate(anyObject())).andThrow(new BadCredentialsException("Bad"));
+        replay(authenticationManager, refreshTokenService);
+
+        final CompletableFuture<JwtDTO> result = signInService.signIn(new SignInRequestDTO("admin", "wrong"));
+        final ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> result.get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(BadCredentialsException.class);
+        verify(authenticationManager, refreshTokenService);
+    }
+
+    @Test
+    void signInQueueFullTest() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Users user = new Users("user", "hash", UserRole.USER);
+        final Authentication authentication =
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        expect(authenticationManager.authenticate(anyObject())).andAnswer(() -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return authentication;
+        }).times(2);
+        expect(refreshTokenService.signIn(user)).andReturn(new JwtDTO("access", "refresh")).times(2);
+        replay(authenticationManager, refreshTokenService);
+
+        final SignInRequestDTO request = new SignInRequestDTO("user", "pass2");
+        // The first sign in takes the only thread, the second one the only place in the queue.
+        final CompletableFuture<JwtDTO> running = signInService.signIn(request);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        final CompletableFuture<JwtDTO> queued = signInService.signIn(request);
+        assertThrows(IllegalStateException.class, () -> signInService.signIn(request));
+        assertThat(meterRegistry.get("auth.signin.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("executor.queued").tag("name", "signin").gauge().value()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isNotNull();
+        verify(authenticationManager, refreshTokenService);
+    }
+}
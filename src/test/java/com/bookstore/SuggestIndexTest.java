@@ -0,0 +1,108 @@
+package com.bookstore;
+
+import com.bookstore.repository.AuthorRepository;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.entity.Author;
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.dto.SuggestionDTO;
+import com.bookstore.service.event.AuthorChangedEvent;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.search.SuggestIndex;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static com.bookstore.Views.facetLink;
+import static com.bookstore.Views.titleView;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.*;
+
+/**
+ * Test class for {@link SuggestIndex}.
+ */
+class SuggestIndexTest {
+
+    private SuggestIndex suggestIndex;
+
+    @BeforeEach
+    public void setup() {
+        final BookRepository bookRepository = EasyMock.createMock(BookRepository.class);
+        final AuthorRepository authorRepository = EasyMock.createMock(AuthorRepository.class);
+        expect(bookRepository.findAllTitles()).andReturn(List.of(titleView(1L, "The Da Vinci Code"),
+                titleView(2L, "It"), titleView(3L, "Digital Fortress")));
+        expect(bookRepository.findAllAuthorLinks()).andReturn(List.of(facetLink(1L, 3L), facetLink(3L, 3L),
+                facetLink(2L, 1L)));
+        expect(authorRepository.findAll()).andReturn(List.of(author(1L, "Stephen", "King"),
+                author(3L, "Dan", "Brown"), author(4L, "Daniel", null)));
+        replay(bookRepository, authorRepository);
+        suggestIndex = new SuggestIndex(bookRepository, authorRepository, true);
+        suggestIndex.build();
+        verify(bookRepository, authorRepository);
+    }
+
+    @Test
+    void suggestSuccessTest() {
+        assertThat(suggestIndex.suggest("Da", 10)).extracting(SuggestionDTO::text)
+                .containsExactly("Dan Brown", "The Da Vinci Code", "Daniel");
+        assertThat(suggestIndex.suggest("da", 1)).extracting(SuggestionDTO::text).containsExactly("Dan Brown");
+        assertThat(suggestIndex.suggest("  vinci  co", 10)).extracting(SuggestionDTO::id).containsExactly(1L);
+        assertThat(suggestIndex.suggest("king", 10)).extracting(SuggestionDTO::type)
+                .containsExactly(SuggestionDTO.Type.AUTHOR);
+        assertThat(suggestIndex.suggest("zzz", 10)).isEmpty();
+    }
+
+    @Test
+    void bookChangedSuccessTest() {
+        suggestIndex.onBookChanged(new BookChangedEvent(4L, null, book("Dark Tower", 4L)));
+        suggestIndex.onBookChanged(new BookChangedEvent(5L, null, book("Dreamcatcher", 4L)));
+        suggestIndex.onBookChanged(new BookChangedEvent(1L, book("The Da Vinci Code", 3L), null));
+        final List<SuggestionDTO> suggestions = suggestIndex.suggest("da", 10);
+        assertThat(suggestions).extracting(SuggestionDTO::text)
+                .containsExactlyInAnyOrder("Daniel", "Dan Brown", "Dark Tower");
+        assertThat(suggestions.get(0).weight()).isEqualTo(2L);
+        assertThat(suggestIndex.suggest("vinci", 10)).isEmpty();
+    }
+
+    @Test
+    void authorChangedMergeSuccessTest() {
+        IntStream.rangeClosed(10, 600).forEach(id -> suggestIndex.onAuthorChanged(
+                new AuthorChangedEvent((long) id, authorDTO("Writer", String.valueOf(id)))));
+        suggestIndex.onAuthorChanged(new AuthorChangedEvent(1L, authorDTO("Stephen", "Edwin King")));
+        suggestIndex.onAuthorChanged(new AuthorChangedEvent(4L, null));
+        assertThat(suggestIndex.suggest("writer 59", 20)).hasSize(11);
+        assertThat(suggestIndex.suggest("edwin", 10)).extracting(SuggestionDTO::weight).containsExactly(1L);
+        assertThat(suggestIndex.suggest("daniel", 10)).isEmpty();
+    }
+
+    private static BookDTO book(final String title, final Long authorId) {
+        final BookDTO book = new BookDTO();
+        book.setTitle(title);
+        book.setListOfAuthors(Set.of(authorDTO("name", null, authorId)));
+        return book;
+    }
+
+    private static AuthorDTO authorDTO(final String name, final String surname) {
+        return authorDTO(name, surname, null);
+    }
+
+    private static AuthorDTO authorDTO(final String name, final String surname, final Long id) {
+        final AuthorDTO author = new AuthorDTO();
+        author.setId(id);
+        author.setName(name);
+        author.setSurname(surname);
+        return author;
+    }
+
+    private static Author author(final Long id, final String name, final String surname) {
+        final Author author = new Author();
+        author.setId(id);
+        author.setName(name);
+        author.setSurname(surname);
+        return author;
+    }
+}
@@ -0,0 +1,122 @@
+package com.bookstore;
+
+import com.bookstore.repository.BookRepository;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.search.TitleIndex;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.bookstore.Views.titleView;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link TitleIndex}.
+ */
+class TitleIndexTest {
+
+    private BookRepository bookRepository;
+    private TitleIndex titleIndex;
+
+    @BeforeEach
+    public void setup() {
+        bookRepository = EasyMock.createMock(BookRepository.class);
+        expect(bookRepository.findAllTitles()).andReturn(List.of(titleView(1L, "The Da Vinci Code"),
+                titleView(2L, "It"), titleView(3L, "Angels & Demons")));
+        replay(bookRepository);
+        titleIndex = new TitleIndex(bookRepository, true);
+        titleIndex.build();
+    }
+
+    @Test
+    void searchSuccessTest() {
+        assertThat(titleIndex.isReady()).isTrue();
+        assertThat(titleIndex.search("da vinci")).containsExactly(1);
+        assertThat(titleIndex.search("E")).containsExactly(1, 3);
+        assertThat(titleIndex.search("code of")).isEmpty();
+        verify(bookRepository);
+    }
+
+    @Test
+    void searchFuzzySuccessTest() {
+        assertThat(titleIndex.searchFuzzy("Da Vinchi")).containsExactly(1);
+        assertThat(titleIndex.searchFuzzy("angles demon")).containsExactly(3);
+        assertThat(titleIndex.searchFuzzy("itt")).containsExactly(2);
+        assertThat(titleIndex.searchFuzzy("ot")).isEmpty();
+        assertThat(titleIndex.searchFuzzy("vinci angels")).isEmpty();
+        assertThat(titleIndex.correct("vinchi cod")).isEqualTo("vinci code");
+        assertThat(titleIndex.correct("Da Vinci")).isNull();
+    }
+
+    @Test
+    void searchFuzzyBookChangedSuccessTest() {
+        titleIndex.onBookChanged(new BookChangedEvent(4L, null, book("Hamlet")));
+        titleIndex.onBookChanged(new BookChangedEvent(3L, null, null));
+        assertThat(titleIndex.searchFuzzy("hamlett")).containsExactly(4);
+        assertThat(titleIndex.searchFuzzy("angels")).isEmpty();
+        assertThat(titleIndex.correct("Hamlett")).isEqualTo("hamlet");
+    }
+
+    @Test
+    void searchDisabledTest() {
+        final TitleIndex disabledIndex = new TitleIndex(bookRepository, false);
+        disabledIndex.build();
+        assertThat(disabledIndex.isReady()).isFalse();
+        assertThrows(IllegalStateException.class, () -> disabledIndex.search("it"));
+        assertThrows(IllegalStateException.class, () -> disabledIndex.searchFuzzy("it"));
+    }
+
+    @Test
+    void bookChangedSuccessTest() {
+        titleIndex.onBookChanged(new BookChangedEvent(4L, null, book("The Lost Symbol")));
+        titleIndex.onBookChanged(new BookChangedEvent(1L, null, book("Inferno")));
+        titleIndex.onBookChanged(new BookChangedEvent(2L, null, null));
+        assertThat(titleIndex.search("the")).containsExactly(4);
+        assertThat(titleIndex.search("inf")).containsExactly(1);
+        assertThat(titleIndex.search("it")).isEmpty();
+    }
+
+    @Test
+    void bookChangedMergeSuccessTest() throws InterruptedException {
+        IntStream.rangeClosed(4, 2000).forEach(id -> titleIndex.onBookChanged(
+                new BookChangedEvent((long) id, null, book("Volume " + id))));
+        titleIndex.onBookChanged(new BookChangedEvent(3L, null, null));
+        titleIndex.onBookChanged(new BookChangedEvent(1500L, null, book("Inferno")));
+        assertMerged();
+        // The merge runs in the background: the results are the same once it is over.
+        Thread.sleep(500);
+        assertMerged();
+    }
+
+    @Test
+    void bookChangedWordRemovedTest() {
+        titleIndex.onBookChanged(new BookChangedEvent(4L, null, book("Hamlet")));
+        titleIndex.onBookChanged(new BookChangedEvent(4L, null, book("Macbeth")));
+        assertThat(titleIndex.searchFuzzy("hamlett")).isEmpty();
+        assertThat(titleIndex.correct("hamlett")).isNull();
+        assertThat(titleIndex.searchFuzzy("macbet")).containsExactly(4);
+        titleIndex.onBookChanged(new BookChangedEvent(4L, null, null));
+        assertThat(titleIndex.searchFuzzy("macbet")).isEmpty();
+        assertThat(titleIndex.search("it")).containsExactly(2);
+    }
+
+    private void assertMerged() {
+        assertThat(titleIndex.search("volume 1999")).containsExactly(1999);
+        assertThat(titleIndex.search("volume")).hasSize(1996);
+        assertThat(titleIndex.search("volume 1500")).isEmpty();
+        assertThat(titleIndex.searchFuzzy("infern")).containsExactly(1500);
+        assertThat(titleIndex.search("demons")).isEmpty();
+    }
+
+    private static BookDTO book(final String title) {
+        final BookDTO book = new BookDTO();
+        book.setTitle(title);
+        return book;
+    }
+}
@@ -0,0 +1,61 @@
+package com.bookstore;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.bookstore.repository.entity.Users;
+import com.bookstore.service.TokenService;
+import com.bookstore.service.dto.TokenClaimsDTO;
+import com.bookstore.service.dto.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link TokenService}.
+ */
+class TokenServiceTest {
+    private static final String SECRET = "test_secret";
+
+    private SimpleMeterRegistry meterRegistry;
+    private TokenService tokenService;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        tokenService = new TokenService(SECRET, Duration.ofMinutes(15), 100, meterRegistry);
+    }
+
+    @Test
+    void verifyAccessTokenCachedTest() {
+        final String token = tokenService.generateAccessToken(new Users("admin", "hash", UserRole.ADMIN));
+        final TokenClaimsDTO claims = tokenService.verifyAccessToken(token);
+        assertThat(claims).isEqualTo(new TokenClaimsDTO("admin", UserRole.ADMIN));
+        assertThat(tokenService.verifyAccessToken(token)).isSameAs(claims);
+        assertThat(tokenService.validateToken(token)).isEqualTo("admin");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "access.tokens").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void verifyInvalidAccessTokenFailedTest() {
+        final String token = tokenService.generateAccessToken(new Users("user", "hash", UserRole.USER));
+        final String forged = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertThrows(JWTVerificationException.class, () -> tokenService.verifyAccessToken(forged));
+        // A failed verification is not cached.
+        assertThrows(JWTVerificationException.class, () -> tokenService.verifyAccessToken(forged));
+
+        final String expired = JWT.create().withSubject("user").withExpiresAt(Instant.now().minusSeconds(60))
+                .sign(Algorithm.HMAC256(SECRET));
+        assertThrows(JWTVerificationException.class, () -> tokenService.verifyAccessToken(expired));
+        final String otherSecret = JWT.create().withSubject("user").withExpiresAt(Instant.now().plusSeconds(60))
+                .sign(Algorithm.HMAC256("other_secret"));
+        assertThrows(JWTVerificationException.class, () -> tokenService.verifyAccessToken(otherSecret));
+    }
+}
@@ -0,0 +1,81 @@
+package com.bookstore;
+
+import com.bookstore.repository.BookCatalogView;
+import com.bookstore.repository.BookFacetView;
+import com.bookstore.repository.BookTextView;
+import com.bookstore.repository.BookTitleView;
+
+/**
+ * Factories of the book projections returned by the mocked {@link com.bookstore.repository.BookRepository}.
+ */
+public final class Views {
+
+    private Views() {
+    }
+
+    public static BookTitleView titleView(final Long id, final String title) {
+        return new BookTitleView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+        };
+    }
+
+    public static BookTextView textView(final Long id, final String title, final String description) {
+        return new BookTextView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+        };
+    }
+
+    public static BookCatalogView catalogRow(final Long id, final Double price, final Integer year) {
+        return new BookCatalogView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Double getPrice() {
+                return price;
+            }
+
+            @Override
+            public Integer getYear() {
+                return year;
+            }
+        };
+    }
+
+    public static BookFacetView facetLink(final Long bookId, final Long facetId) {
+        return new BookFacetView() {
+            @Override
+            public Long getBookId() {
+                return bookId;
+            }
+
+            @Override
+            public Long getFacetId() {
+                return facetId;
+            }
+        };
+    }
+}
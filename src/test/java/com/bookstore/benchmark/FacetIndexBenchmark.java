@@ -0,0 +1,71 @@
+package com.bookstore.benchmark;
+
+import com.bookstore.repository.BookFacetView;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.service.dto.AuthorDTO;
+import com.bookstore.service.dto.BookDTO;
+import com.bookstore.service.event.BookChangedEvent;
+import com.bookstore.service.search.FacetIndex;
+import org.easymock.EasyMock;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.bookstore.Views.facetLink;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+/**
+ * Benchmark of a book write to the {@link FacetIndex} holding one book per author, the write moving a book to
+ * another author.
+ * <p>
+ * Run like {@link TokenServiceBenchmark}, with {@code com.bookstore.benchmark.FacetIndexBenchmark} as the main
+ * class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacetIndexBenchmark {
+    @Param({"10000", "200000"})
+    private int authors;
+
+    private FacetIndex facetIndex;
+    private long bookId;
+
+    @Setup
+    public void setup() {
+        final List<BookFacetView> links = new ArrayList<>(authors);
+        for (long id = 1; id <= authors; id++) {
+            links.add(facetLink(id, id));
+        }
+        final BookRepository bookRepository = EasyMock.createMock(BookRepository.class);
+        expect(bookRepository.findAllAuthorLinks()).andReturn(links);
+        expect(bookRepository.findAllGenreLinks()).andReturn(List.of());
+        replay(bookRepository);
+        facetIndex = new FacetIndex(bookRepository, true);
+        facetIndex.build();
+    }
+
+    @Benchmark
+    public void bookChanged() {
+        bookId = bookId % authors + 1;
+        final AuthorDTO author = new AuthorDTO();
+        author.setId(authors + 1 - bookId);
+        final BookDTO book = new BookDTO();
+        book.setListOfAuthors(Set.of(author));
+        facetIndex.onBookChanged(new BookChangedEvent(bookId, null, book));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FacetIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,64 @@
+package com.bookstore.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.bookstore.repository.entity.Users;
+import com.bookstore.service.TokenService;
+import com.bookstore.service.dto.TokenClaimsDTO;
+import com.bookstore.service.dto.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the verification of a repeated access token by the {@link TokenService}: with a verifier built on
+ * every call as it used to be, with the reusable verifier, and with the verified-token cache.
+ * <p>
+ * Run with {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.bookstore.benchmark.TokenServiceBenchmark"}, the forked benchmark JVM needing
+ * the classpath on its command line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenServiceBenchmark {
+    private static final String SECRET = "benchmark_secret";
+
+    private TokenService uncachedTokenService;
+    private TokenService cachedTokenService;
+    private String token;
+
+    @Setup
+    public void setup() {
+        uncachedTokenService = new TokenService(SECRET, Duration.ofHours(1), 0, new SimpleMeterRegistry());
+        cachedTokenService = new TokenService(SECRET, Duration.ofHours(1), 10_000, new SimpleMeterRegistry());
+        token = cachedTokenService.generateAccessToken(new Users("admin", "hash", UserRole.ADMIN));
+    }
+
+    @Benchmark
+    public String rebuiltVerifier() {
+        return JWT.require(Algorithm.HMAC256(SECRET)).build().verify(token).getSubject();
+    }
+
+    @Benchmark
+    public TokenClaimsDTO reusedVerifier() {
+        return uncachedTokenService.verifyAccessToken(token);
+    }
+
+    @Benchmark
+    public TokenClaimsDTO cachedToken() {
+        return cachedTokenService.verifyAccessToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TokenServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -25,7 +25,7 @@ INSERT INTO BOOK_GENRE(BOOK_ID, GENRE_ID) VALUES (2, 2);
 INSERT INTO BOOK_AUTHOR(BOOK_ID, AUTHOR_ID) VALUES (2, 1);
 
 INSERT INTO BOOK(ID, TITLE, DESCRIPTION, PRICE, YEAR, CREATION_DATE)
-VALUES (nextval('public.book_id_seq'), 'unknown', null, null, null, NOW());
+VALUES (nextval('public.book_id_seq'), 'unknown', 'A story about a secret code', null, null, NOW());
 
 INSERT INTO USERS(ID, USERNAME, PASSWORD, ROLE) VALUES(1, 'admin' ,'$2y$10$588re1Ynf1OkVjsoyDbKMOAifc0txhx7omh87jDuf8BirWlnmOoGi', 'ADMIN');
 INSERT INTO USERS(ID, USERNAME, PASSWORD, ROLE) VALUES(2, 'user', '$2y$10$thvBolpbhUcdVqbU0/rDN.RWYrO1zz4c9fqD0fzKM8.8wKyq9ElCS', 'USER')